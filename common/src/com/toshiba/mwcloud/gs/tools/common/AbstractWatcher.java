@@ -13,25 +13,16 @@
 
 package com.toshiba.mwcloud.gs.tools.common;
 
+import java.util.Collections;
+
 /**
  * 「待ち」についてデフォルトの実装を持つWatcher。
  * サブクラスで「何を待つか」を定義する。
+ * 待ちは {@link WatcherScheduler} でポーリングする。
  */
 public abstract class AbstractWatcher implements Watcher {
 	@Override
 	public boolean waitCompletion(int waitSeconds) {
-		long startTime = System.currentTimeMillis();
-		long waitMilliseconds = (waitSeconds == Watcher.WAIT_FOREVER) ? Long.MAX_VALUE : waitSeconds * 1000L;
-		while ((System.currentTimeMillis() - startTime) < waitMilliseconds) {
-			if (isCompleted()) {
-				return true;
-			}
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				// なにもしない
-			}
-		}
-		return false;
+		return WatcherScheduler.waitCompletion(Collections.singletonList(this), waitSeconds);
 	}
 }
@@ -35,11 +35,20 @@ import com.sun.jersey.client.urlconnection.HTTPSProperties;
 public class ClientHelper {
 
 	/**
-	 * Get client configuration for SSL/TLS.
+	 * SSL context shared by the clients, so that the TLS sessions and the
+	 * keep-alive connections can be reused across the clients.
+	 */
+	private static SSLContext sslContext;
+
+	/**
+	 * Get the SSL context trusting all certificates.
 	 * 
-	 * @return client configure
+	 * @return SSL context
 	 */
-	public static ClientConfig configureClient() {
+	private static synchronized SSLContext getSslContext() {
+		if (sslContext != null) {
+			return sslContext;
+		}
 		TrustManager[] certs = new TrustManager[] { new X509TrustManager() {
 			@Override
 			public X509Certificate[] getAcceptedIssuers() {
@@ -61,6 +70,17 @@ public class ClientHelper {
 		} catch (java.security.GeneralSecurityException ex) {
 		}
 		HttpsURLConnection.setDefaultSSLSocketFactory(ctx.getSocketFactory());
+		sslContext = ctx;
+		return ctx;
+	}
+
+	/**
+	 * Get client configuration for SSL/TLS.
+	 * 
+	 * @return client configure
+	 */
+	public static ClientConfig configureClient() {
+		SSLContext ctx = getSslContext();
 
 		ClientConfig config = new DefaultClientConfig();
 		try {
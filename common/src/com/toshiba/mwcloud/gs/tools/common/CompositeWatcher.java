@@ -19,6 +19,7 @@ import java.util.List;
 /**
  * 複数の条件が全て満たされるまで待つためのWatcher。
  * コンストラクタに渡した複数のWatcherが全て完了状態になるまで待つ。
+ * 待つ場合はWatcherごとに並列にポーリングし、完了したWatcherはそれ以降ポーリングしない。
  */
 public class CompositeWatcher extends AbstractWatcher {
 	private List<Watcher> watchers;
@@ -28,7 +29,7 @@ public class CompositeWatcher extends AbstractWatcher {
 	}
 
 	@Override
-	public boolean isCompleted() {
+	public synchronized boolean isCompleted() {
 		for (int i = watchers.size() - 1; i >= 0; --i) {
 			if (watchers.get(i).isCompleted()) {
 				watchers.remove(i);
@@ -36,4 +37,13 @@ public class CompositeWatcher extends AbstractWatcher {
 		}
 		return watchers.isEmpty();
 	}
-}
\ No newline at end of file
+
+	@Override
+	public boolean waitCompletion(int waitSeconds) {
+		List<Watcher> targets;
+		synchronized (this) {
+			targets = new ArrayList<Watcher>(watchers);
+		}
+		return WatcherScheduler.waitCompletion(targets, waitSeconds);
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for the operations which are executed on many nodes at the same time.
+ * <p>
+ * The tasks run on virtual threads if the JDK supports them, or on a bounded pool of daemon
+ * threads otherwise. The number of the running tasks of an operation is limited, the results
+ * are passed to a listener on the calling thread as soon as each task finishes, and the tasks
+ * which have not finished by the deadline of the operation, or when the listener stops the
+ * operation, are cancelled and reported to the listener as timed out or cancelled.
+ * <p>
+ * Cancelling a task interrupts its thread, but does not abort a blocking I/O such as an HTTP
+ * request through {@code URLConnection}. Such a request may still reach the node after the
+ * task is reported as timed out.
+ */
+public class FanOutExecutor {
+
+	/**
+	 * Default number of the tasks of an operation which run at the same time.
+	 */
+	public static final int DEFAULT_PARALLELISM = 8;
+
+	/**
+	 * Constant for an operation without deadline.
+	 */
+	public static final long NO_DEADLINE = 0;
+
+	/**
+	 * Maximum number of the platform threads shared by the operations.
+	 */
+	private static final int MAX_THREADS = 64;
+
+	private static final ExecutorService EXECUTOR = createExecutor();
+
+	/**
+	 * A task executed for an item.
+	 *
+	 * @param <T> type of the items
+	 * @param <R> type of the results
+	 */
+	public interface Task<T, R> {
+		/**
+		 * Execute the task.
+		 *
+		 * @param item item
+		 * @return result
+		 * @throws Exception if the task fails
+		 */
+		R call(T item) throws Exception;
+	}
+
+	/**
+	 * Receives the results of the tasks on the calling thread, in the order of completion.
+	 *
+	 * @param <T> type of the items
+	 * @param <R> type of the results
+	 */
+	public interface Listener<T, R> {
+		/**
+		 * Called when a task finishes, and for each task which did not finish by the deadline
+		 * or was cancelled, after the operation ends.
+		 *
+		 * @param result result of the task
+		 * @return {@code false} to cancel the remaining tasks, otherwise {@code true}. Ignored
+		 * for the tasks which did not finish.
+		 */
+		boolean onResult(Result<T, R> result);
+	}
+
+	/**
+	 * Result of the task of an item.
+	 *
+	 * @param <T> type of the items
+	 * @param <R> type of the results
+	 */
+	public static class Result<T, R> {
+		private final T item;
+		private final R value;
+		private final Throwable error;
+
+		Result(T item, R value, Throwable error) {
+			this.item = item;
+			this.value = value;
+			this.error = error;
+		}
+
+		/**
+		 * Get the item.
+		 * @return item
+		 */
+		public T getItem() {
+			return item;
+		}
+
+		/**
+		 * Get the result of the task.
+		 * @return result, or {@code null} if the task failed
+		 */
+		public R getValue() {
+			return value;
+		}
+
+		/**
+		 * Get the error of the task.
+		 * @return the exception thrown by the task, a {@code TimeoutException} if the task
+		 * did not finish by the deadline, a {@code CancellationException} if the task was
+		 * cancelled by the listener, or {@code null} if the task succeeded
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		/**
+		 * Check whether the task succeeded.
+		 * @return {@code true} if the task succeeded
+		 */
+		public boolean isSucceeded() {
+			return error == null;
+		}
+	}
+
+	private FanOutExecutor() {}
+
+	private static ExecutorService createExecutor() {
+		try {
+			// Java 21以降は仮想スレッドを使う
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			final AtomicInteger threadNo = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+					60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "gs-fanout-" + threadNo.incrementAndGet());
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+	/**
+	 * Execute a task for each item.
+	 *
+	 * @param <T> type of the items
+	 * @param <R> type of the results
+	 * @param items items
+	 * @param task task
+	 * @param parallelism maximum number of the tasks which run at the same time
+	 * @param timeoutMillis time (ms) by which the tasks must finish, or {@link #NO_DEADLINE}
+	 * @param listener listener of the results, or {@code null}
+	 * @return results in the order of the items
+	 * @throws InterruptedException if interrupted. The running tasks are cancelled.
+	 */
+	public static <T, R> List<Result<T, R>> execute(List<T> items, final Task<T, R> task,
+			int parallelism, long timeoutMillis, Listener<T, R> listener) throws InterruptedException {
+		int count = items.size();
+		List<Result<T, R>> results = new ArrayList<Result<T, R>>(count);
+		for (int i = 0; i < count; i++) {
+			results.add(null);
+		}
+		long deadline = (timeoutMillis == NO_DEADLINE) ? Long.MAX_VALUE : System.nanoTime() + timeoutMillis * 1000000L;
+		CompletionService<R> service = new ExecutorCompletionService<R>(EXECUTOR);
+		Map<Future<R>, Integer> running = new HashMap<Future<R>, Integer>();
+		int next = 0;
+		int limit = Math.max(1, parallelism);
+		boolean cancelled = false;
+		try {
+			while (!cancelled && (next < count || !running.isEmpty())) {
+				// 同時に実行するタスク数の上限までタスクを開始する
+				while (next < count && running.size() < limit) {
+					final T item = items.get(next);
+					running.put(service.submit(new Callable<R>() {
+						@Override
+						public R call() throws Exception {
+							return task.call(item);
+						}
+					}), next);
+					next++;
+				}
+
+				Future<R> future;
+				if (deadline == Long.MAX_VALUE) {
+					future = service.take();
+				} else {
+					future = service.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (future == null) {
+						break;
+					}
+				}
+				int index = running.remove(future);
+				Result<T, R> result;
+				try {
+					result = new Result<T, R>(items.get(index), future.get(), null);
+				} catch (ExecutionException e) {
+					result = new Result<T, R>(items.get(index), null, e.getCause());
+				}
+				results.set(index, result);
+				if (listener != null && !listener.onResult(result)) {
+					cancelled = true;
+				}
+			}
+		} finally {
+			for (Future<R> future : running.keySet()) {
+				future.cancel(true);
+			}
+		}
+
+		// 期限までに終わらなかったタスク、キャンセルしたタスク
+		for (int i = 0; i < count; i++) {
+			if (results.get(i) == null) {
+				Throwable error = cancelled ? new CancellationException()
+						: new TimeoutException("Timed out after " + timeoutMillis + " ms");
+				Result<T, R> result = new Result<T, R>(items.get(i), null, error);
+				results.set(i, result);
+				if (listener != null) {
+					listener.onResult(result);
+				}
+			}
+		}
+		return results;
+	}
+}
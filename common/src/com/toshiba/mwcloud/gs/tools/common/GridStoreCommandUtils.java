@@ -16,14 +16,15 @@ package com.toshiba.mwcloud.gs.tools.common;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -189,7 +190,7 @@ public class GridStoreCommandUtils {
 	 * @throws GridStoreCommandException if it's unable to join cluster
 	 * @throws IllegalStateException if the status of node is not 'STARTED'
 	 */
-	private static Watcher joinCluster(String clusterName, int designatedCount, GSNode node, String userId, String password, boolean waitServicing) throws GridStoreCommandException {
+	static Watcher joinCluster(String clusterName, int designatedCount, GSNode node, String userId, String password, boolean waitServicing) throws GridStoreCommandException {
 		final GridStoreWebAPI webapi = new GridStoreWebAPI(node, userId, password);
 
 		// 事前条件チェック
@@ -689,7 +690,7 @@ public class GridStoreCommandUtils {
 		cluster.setStat(clStat);
 
 		// 各ノードのステータスを取得する  (並列)
-		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		String errMessage = "";
 		if ( cluster.getNodes().size() == 0 ){
 			// gs_adminから1台でappendされたときの回避用
 			return true;
@@ -702,53 +703,33 @@ public class GridStoreCommandUtils {
 			final GSNode nodeFinal = node;	
 			GridStoreCommandUtils.getNodeStat(nodeFinal, userId, password);
 		} else {
-			int threadCount = THREAD_COUNT;
-			if ( cluster.getNodes().size() < THREAD_COUNT ){
-				threadCount = cluster.getNodes().size();
+			for (T obj : cluster.getNodes()) {
+				if (cluster.getSystemSSL()) {
+					((GSNode) obj).setSystemSSL(true);
+				}
 			}
-			ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+			List<FanOutExecutor.Result<T, GSNodeStat>> results;
 			try {
-				for (final T obj : cluster.getNodes()) {
-					GSNode node = (GSNode) obj;
-					if (cluster.getSystemSSL()) {
-						node.setSystemSSL(true);
+				results = FanOutExecutor.execute(cluster.getNodes(), new FanOutExecutor.Task<T, GSNodeStat>() {
+					@Override
+					public GSNodeStat call(T obj) throws Exception {
+						return GridStoreCommandUtils.getNodeStat((GSNode) obj, userId, password);
 					}
-					final GSNode nodeFinal = node;	
-					futures.add(pool.submit(new Callable<Boolean>(){
-						@Override
-						public Boolean call() throws Exception {
-							try {
-								GridStoreCommandUtils.getNodeStat(nodeFinal, userId, password);
-								return true;
-							} catch (Exception e) {
-								throw e;
-							}
-						}
-					}));
-				}
-				pool.shutdown();
-				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+				}, THREAD_COUNT, STAT_TIMEOUT, null);
 			} catch (InterruptedException e) {
-				e.printStackTrace();
-			} finally {
-				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new GridStoreCommandException("D10152: Interrupted while getting node status.", e);
 			}
-		}
-
-		String errMessage = "";
-		for (Future<Boolean> future : futures) {
-			try {
-				future.get();
-			} catch (InterruptedException e) {
-				assert false; // 既に全タスク完了しているので待ちは発生せず、割り込みもないはず。
-			} catch (ExecutionException e) { // 処理中に例外が発生した場合
-				if ( e.getCause() != null ){
-					errMessage += e.getCause().getMessage() +"\n";
-				} else {
-					errMessage += e.getMessage() +"\n";
+			for (FanOutExecutor.Result<T, GSNodeStat> result : results) {
+				Throwable t = result.getError();
+				if ( t instanceof TimeoutException ){
+					errMessage += "D10153: Timed out while getting node status. (node="+result.getItem()+")\n";
+				} else if ( t != null ){
+					errMessage += t.getMessage() +"\n";
 				}
 			}
 		}
+
 		if ( !errMessage.isEmpty() ){
 			throw new GridStoreCommandException(errMessage);
 		}
@@ -820,6 +801,7 @@ public class GridStoreCommandUtils {
 
 			if ( stat.getNodeRole() == NodeRole.MASTER ){
 				clStat.setMasterNode(node);
+				putMasterCache(cluster, node);
 			}
 		}
 		clStat.setServiceNodeCount(countService);
@@ -1155,9 +1137,85 @@ public class GridStoreCommandUtils {
 
 	static int THREAD_COUNT = 8;
 
+	/**
+	 * Time (ms) by which the status of all of the nodes must be acquired.
+	 */
+	static long STAT_TIMEOUT = 60000;
+
+	/**
+	 * Maximum number of threads which probe the nodes for the master node.
+	 */
+	static int MASTER_PROBE_THREAD_COUNT = 32;
+
+	/**
+	 * Time (ms) for which the master node found in a cluster is reused.
+	 */
+	static long MASTER_CACHE_TTL = 5000;
+
+	private static class CachedMaster {
+		final NodeKey nodeKey;
+		final long expireTime;
+
+		CachedMaster(NodeKey nodeKey, long expireTime) {
+			this.nodeKey = nodeKey;
+			this.expireTime = expireTime;
+		}
+	}
+
+	/**
+	 * Master nodes found recently, by cluster name and nodes.
+	 */
+	private static final Map<String, CachedMaster> MASTER_CACHE = new HashMap<String, CachedMaster>();
+
+	/**
+	 * Get the key of a cluster in {@link #MASTER_CACHE}, so that the cluster variables with
+	 * the same cluster name and different nodes do not share the master node.
+	 */
+	private static <T> String getMasterCacheKey(GSCluster<T> cluster) {
+		Set<String> nodeKeys = new TreeSet<String>();
+		for (T obj : cluster.getNodes()) {
+			nodeKeys.add(((GSNode) obj).getNodeKey().toString());
+		}
+		return cluster.getName() + nodeKeys;
+	}
+
+	private static <T> void putMasterCache(GSCluster<T> cluster, GSNode masterNode) {
+		synchronized (MASTER_CACHE) {
+			MASTER_CACHE.put(getMasterCacheKey(cluster),
+					new CachedMaster(masterNode.getNodeKey(), System.currentTimeMillis() + MASTER_CACHE_TTL));
+		}
+	}
+
+	private static <T> NodeKey getMasterCache(GSCluster<T> cluster) {
+		String key = getMasterCacheKey(cluster);
+		synchronized (MASTER_CACHE) {
+			CachedMaster cached = MASTER_CACHE.get(key);
+			if ( cached == null ){
+				return null;
+			}
+			if ( cached.expireTime <= System.currentTimeMillis() ){
+				MASTER_CACHE.remove(key);
+				return null;
+			}
+			return cached.nodeKey;
+		}
+	}
+
+	private static <T> void removeMasterCache(GSCluster<T> cluster) {
+		synchronized (MASTER_CACHE) {
+			MASTER_CACHE.remove(getMasterCacheKey(cluster));
+		}
+	}
+
 	/**
 	 * Get the cluster master node. <br>
 	 * Returns a GSNode object corresponding to the master even if the master node is not included in the cluster definition.
+	 * <p>
+	 * The nodes are probed concurrently, and the master node confirmed first is returned
+	 * without waiting for the other nodes, so that a stopped machine does not delay the search.
+	 * The master node found is remembered for {@link #MASTER_CACHE_TTL} ms, and is probed
+	 * first with the other nodes, so that it is usually confirmed first while it is still the
+	 * master node, and a stopped master node does not delay the search.
 	 * 
 	 * @param <T> generic type
 	 * @param cluster GridDB cluster 
@@ -1168,68 +1226,158 @@ public class GridStoreCommandUtils {
 	 */
 	public static <T> GSNode findMasterNode(GSCluster<T> cluster, String userId, String password) throws GridStoreCommandException{
 
-		for (T obj : cluster.getNodes()) {
-			GSNode node = (GSNode)obj;
-			if (cluster.getSystemSSL()) {
-				node.setSystemSSL(true);
+		List<T> nodes = cluster.getNodes();
+		if ( nodes.isEmpty() ){
+			return null;
+		}
+
+		// 直前に見つけたMASTERノードを他のノードと並行して最初に確認する
+		// (他のノードから同じMASTERノードを確認しない)
+		final Set<NodeKey> confirming = Collections.newSetFromMap(new ConcurrentHashMap<NodeKey, Boolean>());
+		List<GSNode> probes = new ArrayList<GSNode>(nodes.size() + 1);
+		GSNode cachedNode = null;
+		NodeKey cachedKey = getMasterCache(cluster);
+		if ( cachedKey != null ){
+			cachedNode = getMasterNodeObject(cluster, cachedKey);
+			probes.add(cachedNode);
+			confirming.add(cachedKey);
+		}
+		for (T obj : nodes) {
+			if ( obj != cachedNode ){
+				probes.add((GSNode) obj);
 			}
-			GridStoreWebAPI webapi = new GridStoreWebAPI(node, userId, password);
+		}
 
-			// クラスタ名が正しいかを確認する
-			JsonNode stats;
-			try {
-				stats = webapi.getNodeStat(AddressType.SYSTEM);
-			} catch (GridStoreWebAPIException e) {
-				if ( e.getErrorCode() != GridStoreWebAPIException.CODE_API_CONNECT_ERROR ){
-					throw new GridStoreCommandException("D10135: Failed to check node status. ("+e.getMessage()+")", e);
+		final GSNode[] found = new GSNode[1];
+		final GSCluster<T> clusterFinal = cluster;
+		List<FanOutExecutor.Result<GSNode, GSNode>> results;
+		try {
+			results = FanOutExecutor.execute(probes, new FanOutExecutor.Task<GSNode, GSNode>() {
+				@Override
+				public GSNode call(GSNode node) throws Exception {
+					return probeMasterNode(clusterFinal, node, userId, password, confirming);
 				}
-				continue;
-			}
-			// クラスタ名を取得
-			// メモ：クラスタを組んでいない場合は空文字列
-			JsonNode clusterStats = stats.path("cluster");
-			String clusterName = clusterStats.path("clusterName").textValue();
-			if (clusterName == null || clusterName.isEmpty() ){
-				continue;	// どのクラスタにも参加していない
-			} else if (!cluster.getName().equals(clusterName)) { // 別クラスタに参加している 場合
-				throw new GridStoreCommandException("D10136: The node has already joined the other cluster \""+clusterName+"\". (node="+node+")");
-			}
+			}, MASTER_PROBE_THREAD_COUNT, FanOutExecutor.NO_DEADLINE, new FanOutExecutor.Listener<GSNode, GSNode>() {
+				@Override
+				public boolean onResult(FanOutExecutor.Result<GSNode, GSNode> result) {
+					// 最初に確認できたMASTERノードで終了する
+					if ( result.getValue() != null ){
+						found[0] = result.getValue();
+						return false;
+					}
+					return true;
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GridStoreCommandException("D10135: Failed to check node status. (interrupted)", e);
+		}
+		if ( found[0] != null ){
+			putMasterCache(cluster, found[0]);
+			return found[0];
+		}
+		removeMasterCache(cluster);
 
-			// 自分がMASTERノードか確認する
-			if ("MASTER".equals(getClusterStatus(clusterStats))){
-				return node;
+		// MASTERノードが見つからなければ、定義順で最初のノードのエラーを返す。
+		// (クラスタ定義にないMASTERノードのエラーは返さない)
+		Map<GSNode, Throwable> errors = new IdentityHashMap<GSNode, Throwable>();
+		for (FanOutExecutor.Result<GSNode, GSNode> result : results) {
+			errors.put(result.getItem(), result.getError());
+		}
+		for (T obj : nodes) {
+			Throwable cause = errors.get(obj);
+			if ( cause instanceof GridStoreCommandException ){
+				throw (GridStoreCommandException) cause;
+			} else if ( cause != null ){
+				throw new GridStoreCommandException("D10135: Failed to check node status. ("+cause.getMessage()+")", cause);
 			}
+		}
+		return null;
+	}
 
-			// クラスタを組んでいれば、MASTERの情報を持っているはず
-			JsonNode master = clusterStats.path("master");
-			if ( master.isMissingNode() ){
-				return null;
-			}
-			String address = master.path("address").textValue();
-			int port = master.path("port").intValue();
+	/**
+	 * Get the master node reported by a node, and confirm that it is the master node.
+	 * 
+	 * @param cluster GridDB cluster
+	 * @param node node to be probed
+	 * @param userId GridDB user name
+	 * @param password GridDB password
+	 * @param confirming nodes which are being confirmed by the other probes
+	 * @return master node, or {@code null} if the node does not know the master node, the master node
+	 *     is not confirmed, or the master node is confirmed by another probe
+	 * @throws GridStoreCommandException it's unable to check node status or the node has already joined the other cluster
+	 */
+	private static <T> GSNode probeMasterNode(GSCluster<T> cluster, GSNode node, String userId, String password,
+			Set<NodeKey> confirming) throws GridStoreCommandException {
+		if (cluster.getSystemSSL()) {
+			node.setSystemSSL(true);
+		}
+		GridStoreWebAPI webapi = new GridStoreWebAPI(node, userId, password);
 
-			GSNode masterNode = cluster.getNode(new NodeKey(address, port));
-			if (masterNode == null) {
-				masterNode = new GSNode(address, port);
-			}
-			if (cluster.getSystemSSL()) {
-				masterNode.setSystemSSL(true);
+		// クラスタ名が正しいかを確認する
+		JsonNode stats;
+		try {
+			stats = webapi.getNodeStat(AddressType.SYSTEM);
+		} catch (GridStoreWebAPIException e) {
+			if ( e.getErrorCode() != GridStoreWebAPIException.CODE_API_CONNECT_ERROR ){
+				throw new GridStoreCommandException("D10135: Failed to check node status. ("+e.getMessage()+")", e);
 			}
+			return null;
+		}
+		// クラスタ名を取得
+		// メモ：クラスタを組んでいない場合は空文字列
+		JsonNode clusterStats = stats.path("cluster");
+		String clusterName = clusterStats.path("clusterName").textValue();
+		if (clusterName == null || clusterName.isEmpty() ){
+			return null;	// どのクラスタにも参加していない
+		} else if (!cluster.getName().equals(clusterName)) { // 別クラスタに参加している 場合
+			throw new GridStoreCommandException("D10136: The node has already joined the other cluster \""+clusterName+"\". (node="+node+")");
+		}
 
-			// 本当にMASTERノードか確認する。
-			JsonNode json = null;
-			try {
-				json = new GridStoreWebAPI(masterNode, userId, password).getNodeStat();
-			} catch (GridStoreWebAPIException e) {
-				continue;
-			}
-			if ("MASTER".equals(getClusterStatus(json))){
-				return masterNode;
-			}
+		// 自分がMASTERノードか確認する
+		if ("MASTER".equals(getClusterStatus(clusterStats))){
+			return node;
+		}
+
+		// クラスタを組んでいれば、MASTERの情報を持っているはず
+		JsonNode master = clusterStats.path("master");
+		if ( master.isMissingNode() ){
+			return null;
+		}
+		String address = master.path("address").textValue();
+		int port = master.path("port").intValue();
+
+		// 同じMASTERノードは1回だけ確認する
+		NodeKey masterKey = new NodeKey(address, port);
+		if ( !confirming.add(masterKey) ){
+			return null;
+		}
+		GSNode masterNode = getMasterNodeObject(cluster, masterKey);
+
+		// 本当にMASTERノードか確認する。
+		JsonNode json = null;
+		try {
+			json = new GridStoreWebAPI(masterNode, userId, password).getNodeStat();
+		} catch (GridStoreWebAPIException e) {
+			return null;
+		}
+		if ("MASTER".equals(getClusterStatus(json))){
+			return masterNode;
 		}
 		return null;
 	}
 
+	private static <T> GSNode getMasterNodeObject(GSCluster<T> cluster, NodeKey nodeKey) {
+		GSNode masterNode = cluster.getNode(nodeKey);
+		if (masterNode == null) {
+			masterNode = new GSNode(nodeKey.getAddress(), nodeKey.getPort());
+		}
+		if (cluster.getSystemSSL()) {
+			masterNode.setSystemSSL(true);
+		}
+		return masterNode;
+	}
+
 	/**
 	 * Cancel SQL processing.
 	 *
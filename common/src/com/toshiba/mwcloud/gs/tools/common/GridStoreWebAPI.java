@@ -16,6 +16,8 @@ package com.toshiba.mwcloud.gs.tools.common;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.ws.rs.core.MediaType;
@@ -25,6 +27,7 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
@@ -125,6 +128,93 @@ public class GridStoreWebAPI {
 
 	private static final int CONNECT_TIMEOUT = 3000;
 
+	/**
+	 * Time (ms) after which a client which has not been used is destroyed.
+	 */
+	private static final long CLIENT_IDLE_TIMEOUT = 60000;
+
+	/**
+	 * Mapper shared by the calls. Its configuration must not be changed.
+	 */
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/**
+	 * Readers of the result classes, which are thread-safe.
+	 */
+	private static final Map<Class<?>, ObjectReader> READERS = new HashMap<Class<?>, ObjectReader>();
+
+	/**
+	 * HTTP clients shared by the calls to the same node.
+	 */
+	private static final Map<NodeKey, SharedClient> CLIENTS = new HashMap<NodeKey, SharedClient>();
+
+	/**
+	 * HTTP client shared by the calls to a node.
+	 *
+	 * <p>The client keeps no per-call state, the credentials are added to each
+	 * request, so that it can be used by several threads. The connections are
+	 * kept alive by the HTTP handler, and the TLS sessions are reused because
+	 * the clients share the SSL context of {@link ClientHelper}.
+	 */
+	private static class SharedClient {
+		final Client client;
+		int users;
+		long lastUsed;
+
+		SharedClient(Client client) {
+			this.client = client;
+		}
+	}
+
+	/**
+	 * Get the shared client of a node, creating it if there is none, and destroy
+	 * the clients which have been idle for {@link #CLIENT_IDLE_TIMEOUT}.
+	 * 
+	 * @param nodeKey node
+	 * @return client, which must be returned by {@link #releaseClient}
+	 */
+	private static SharedClient acquireClient(NodeKey nodeKey) {
+		synchronized (CLIENTS) {
+			long now = System.currentTimeMillis();
+			Iterator<SharedClient> it = CLIENTS.values().iterator();
+			while (it.hasNext()) {
+				SharedClient idle = it.next();
+				if (idle.users == 0 && now - idle.lastUsed >= CLIENT_IDLE_TIMEOUT) {
+					it.remove();
+					idle.client.destroy();
+				}
+			}
+			SharedClient shared = CLIENTS.get(nodeKey);
+			if (shared == null) {
+				Client client = ClientHelper.createClient();
+				client.setConnectTimeout(CONNECT_TIMEOUT);
+				shared = new SharedClient(client);
+				CLIENTS.put(nodeKey, shared);
+			}
+			shared.users++;
+			shared.lastUsed = now;
+			return shared;
+		}
+	}
+
+	private static void releaseClient(SharedClient shared) {
+		synchronized (CLIENTS) {
+			shared.users--;
+			shared.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	private static ObjectReader getReader(Class<?> resultClass) {
+		synchronized (READERS) {
+			ObjectReader reader = READERS.get(resultClass);
+			if (reader == null) {
+				reader = MAPPER.readerFor(resultClass);
+				READERS.put(resultClass, reader);
+			}
+			return reader;
+		}
+	}
+
 	/**
 	 * Address type enum 
 	 *
@@ -150,12 +240,8 @@ public class GridStoreWebAPI {
 	public <Result> Result callWebApi(String method, String path,
 				MultivaluedMap<String, String> params, Class<Result> resultClass)
 				throws GridStoreWebAPIException {
-		Client client = null;
+		SharedClient shared = acquireClient(nodeKey);
 		try {
-			// BASIC認証に対応したHTTPクライアントを取得する
-			client = ClientHelper.createClient();
-			client.setConnectTimeout(CONNECT_TIMEOUT);
-			client.addFilter(new HTTPBasicAuthFilter(userId, password));
 			String url;
 			if (getSystemSSL()) {
 				// Use url with SSL connection
@@ -164,7 +250,9 @@ public class GridStoreWebAPI {
 				// Does not use url with SSL connection
 				url = "http://" + nodeKey.getAddress() + ":" + nodeKey.getPort() + path;
 			}
-			WebResource webResource = client.resource(url);
+			WebResource webResource = shared.client.resource(url);
+			// BASIC認証はリクエストごとに設定する
+			webResource.addFilter(new HTTPBasicAuthFilter(userId, password));
 			if (params != null && !method.equals(POST)) {
 				webResource = webResource.queryParams(params);
 			}
@@ -181,7 +269,7 @@ public class GridStoreWebAPI {
 			if (resultClass == String.class) {
 				return resultClass.cast(result);
 			} else {
-				return new ObjectMapper().readValue(result, resultClass);
+				return getReader(resultClass).readValue(result);
 			}
 
 		} catch (JsonParseException e) {
@@ -213,9 +301,7 @@ public class GridStoreWebAPI {
 			}
 
 		} finally {
-			if (client != null) {
-				client.destroy();
-			}
+			releaseClient(shared);
 		}
 	}
 
@@ -490,7 +576,7 @@ public class GridStoreWebAPI {
 			if ( result != null && !result.isEmpty()){
 				JsonNode details = null;
 				try {
-					details = new ObjectMapper().readValue(result, JsonNode.class);
+					details = MAPPER.readTree(result);
 
 					int errorStatus = details.path("errorStatus").asInt(0);
 					String errorMessage = details.path("errorMessage").asText();
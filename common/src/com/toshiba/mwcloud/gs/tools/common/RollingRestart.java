@@ -0,0 +1,442 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.toshiba.mwcloud.gs.tools.common.GridStoreWebAPI.NodeKeyPartition;
+import com.toshiba.mwcloud.gs.tools.common.GridStoreWebAPI.PartitionInfo;
+
+/**
+ * Restarts the nodes of a running cluster step by step without stopping the service.
+ * <p>
+ * The nodes of a step leave the cluster, stop, start and join the cluster again, each node in
+ * parallel with the other nodes of the step. The next step starts after all of the nodes are
+ * SERVICING again and the backups of every partition have reached the LSN which the owner had
+ * when the step ended. The nodes of a step are chosen from the followers so that each partition
+ * held by the nodes keeps the given number of replicas on the other nodes, and so that the
+ * majority of the nodes stays in the cluster. The master node is restarted last, alone.
+ *
+ * @param <T> type of the nodes of the cluster
+ */
+public class RollingRestart<T> {
+
+	/**
+	 * Phases of the restart of a node.
+	 */
+	public static enum Phase { LEAVE, STOP, START, JOIN, SYNC };
+
+	/**
+	 * Receives the progress of a rolling restart.
+	 */
+	public interface Listener {
+		/**
+		 * Called when a step starts, on the calling thread.
+		 *
+		 * @param step step number, starting from 1
+		 * @param nodes nodes restarted in the step
+		 */
+		void onStep(int step, List<GSNode> nodes);
+
+		/**
+		 * Called when a phase starts. The phases other than {@code SYNC} are called on the thread
+		 * which restarts the node.
+		 *
+		 * @param node node, or {@code null} for {@code SYNC}
+		 * @param phase phase
+		 */
+		void onPhase(GSNode node, Phase phase);
+	}
+
+	/**
+	 * Timing of the restart of a node.
+	 */
+	public static class NodeReport {
+		private final GSNode node;
+		private final int step;
+		private final long[] millis = new long[Phase.values().length];
+		private String error;
+
+		NodeReport(GSNode node, int step) {
+			this.node = node;
+			this.step = step;
+			Arrays.fill(millis, -1);
+		}
+
+		/**
+		 * Get the node.
+		 * @return node
+		 */
+		public GSNode getNode() {
+			return node;
+		}
+
+		/**
+		 * Get the step in which the node was restarted.
+		 * @return step number, starting from 1
+		 */
+		public int getStep() {
+			return step;
+		}
+
+		/**
+		 * Get the time of a phase.
+		 * @param phase phase
+		 * @return time (ms), or -1 if the phase did not finish
+		 */
+		public long getMillis(Phase phase) {
+			return millis[phase.ordinal()];
+		}
+
+		/**
+		 * Get the total time of the finished phases.
+		 * @return time (ms)
+		 */
+		public long getTotalMillis() {
+			long total = 0;
+			for (long m : millis) {
+				if (m > 0) {
+					total += m;
+				}
+			}
+			return total;
+		}
+
+		/**
+		 * Get the error.
+		 * @return error message, or {@code null} if the node was restarted
+		 */
+		public String getError() {
+			return error;
+		}
+
+		/**
+		 * Check whether the node was restarted and synchronized.
+		 * @return {@code true} if succeeded
+		 */
+		public boolean isSucceeded() {
+			return error == null;
+		}
+	}
+
+	private final GSCluster<T> cluster;
+	private final String userId;
+	private final String password;
+	private final String osPassword;
+	private final int parallelism;
+	private final int minReplicas;
+	private final int waitSeconds;
+
+	/**
+	 * Constructor for {@code RollingRestart}.
+	 *
+	 * @param cluster cluster
+	 * @param userId GridDB user name
+	 * @param password GridDB password
+	 * @param osPassword password of OS user 'gsadm'
+	 * @param parallelism maximum number of the nodes restarted in a step
+	 * @param minReplicas number of the replicas of each partition which must stay in the cluster
+	 * @param waitSeconds timeout (sec) of each phase, or {@link Watcher#WAIT_FOREVER}
+	 */
+	public RollingRestart(GSCluster<T> cluster, String userId, String password, String osPassword,
+			int parallelism, int minReplicas, int waitSeconds) {
+		this.cluster = cluster;
+		this.userId = userId;
+		this.password = password;
+		this.osPassword = osPassword;
+		this.parallelism = Math.max(1, parallelism);
+		this.minReplicas = Math.max(0, minReplicas);
+		this.waitSeconds = waitSeconds;
+	}
+
+	/**
+	 * Restart all of the nodes of the cluster.
+	 * <p>
+	 * The restart stops at the first step in which a node fails or the partitions are not
+	 * synchronized in time. The nodes of the later steps are not restarted.
+	 *
+	 * @param listener listener of the progress
+	 * @return timings of the restarted nodes, in the order of the restart
+	 * @throws GridStoreCommandException if it meets 1 of the below conditions:
+	 * <ul>
+	 * <li>Current cluster configuration is mismatched with cluster definition</li>
+	 * <li>All nodes in the cluster are not 'SERVICING'</li>
+	 * <li>The cluster has too few nodes to keep the service</li>
+	 * <li>The master node or the partitions cannot be acquired</li>
+	 * <li>A node cannot be restarted without losing the replicas</li>
+	 * </ul>
+	 * @throws InterruptedException if interrupted
+	 */
+	public List<NodeReport> execute(Listener listener) throws GridStoreCommandException, InterruptedException {
+		if ( !GridStoreCommandUtils.getStatCluster(cluster, userId, password) ){
+			throw new GridStoreCommandException("D10154: Current cluster configuration is mismatched with cluster definition.");
+		}
+		if ( cluster.getStat().getClusterStatus() != ClusterStatus.SERVICE_STABLE ){
+			throw new GridStoreCommandException("D10155: All nodes in the cluster must be 'SERVICING'.");
+		}
+		// 過半数のノードがクラスタに残る必要がある
+		final int designatedCount = cluster.getNodes().size();
+		int maxDown = (designatedCount - 1) / 2;
+		if ( maxDown < 1 ){
+			throw new GridStoreCommandException("D10156: A cluster of "+designatedCount+" nodes cannot be restarted without stopping the service.");
+		}
+
+		// パーティション情報と照合するため、各ノードのクラスタアドレスを取得する
+		Map<GSNode, NodeKey> clusterKeys = new HashMap<GSNode, NodeKey>();
+		List<GSNode> remaining = new ArrayList<GSNode>();
+		GSNode masterStat = cluster.getStat().getMasterNode();
+		GSNode firstMaster = null;
+		for (T obj : cluster.getNodes()) {
+			GSNode node = (GSNode) obj;
+			JsonNode self = GridStoreCommandUtils.getStat(node, userId, password).path("cluster").path("nodeList").path(0);
+			clusterKeys.put(node, new NodeKey(self.path("address").textValue(), self.path("port").asInt()));
+			if ( masterStat != null && node.getNodeKey().equals(masterStat.getNodeKey()) ){
+				firstMaster = node;
+			} else {
+				remaining.add(node);
+			}
+		}
+		// MASTERノードは最後に再起動する
+		if ( firstMaster != null ){
+			remaining.add(firstMaster);
+		}
+
+		List<NodeReport> reports = new ArrayList<NodeReport>();
+		int stepNo = 0;
+		while ( !remaining.isEmpty() ){
+			GSNode master = GridStoreCommandUtils.findMasterNode(cluster, userId, password);
+			if ( master == null ){
+				throw new GridStoreCommandException("D10157: The master node of the cluster is not found.");
+			}
+			PartitionInfo[] partitions;
+			try {
+				partitions = new GridStoreWebAPI(master, userId, password).getNodePartition();
+			} catch (GridStoreWebAPIException e) {
+				throw new GridStoreCommandException("D10158: Failed to get the partitions. msg=["+e.getMessage()+"]", e);
+			}
+
+			if ( stepNo == 0 ){
+				// 再起動を始める前に、全ノードがレプリカを残して再起動できることを確認する
+				for (GSNode node : remaining) {
+					if ( !keepsReplicas(Arrays.asList(node), partitions, clusterKeys) ){
+						throw new GridStoreCommandException("D10160: The node cannot be restarted while keeping "+minReplicas
+								+" replicas of its partitions. (node="+node+")");
+					}
+				}
+			}
+			List<GSNode> step = selectStep(remaining, master, partitions, clusterKeys, Math.min(parallelism, maxDown));
+			remaining.removeAll(step);
+			stepNo++;
+			listener.onStep(stepNo, step);
+
+			final Map<GSNode, NodeReport> stepReports = new HashMap<GSNode, NodeReport>();
+			for (GSNode node : step) {
+				NodeReport report = new NodeReport(node, stepNo);
+				stepReports.put(node, report);
+				reports.add(report);
+			}
+			final Listener listenerFinal = listener;
+			List<FanOutExecutor.Result<GSNode, Void>> results = FanOutExecutor.execute(step,
+					new FanOutExecutor.Task<GSNode, Void>() {
+						@Override
+						public Void call(GSNode node) throws Exception {
+							restartNode(node, stepReports.get(node), designatedCount, listenerFinal);
+							return null;
+						}
+					}, step.size(), FanOutExecutor.NO_DEADLINE, null);
+			boolean failed = false;
+			for (FanOutExecutor.Result<GSNode, Void> result : results) {
+				if ( !result.isSucceeded() ){
+					stepReports.get(result.getItem()).error = result.getError().getMessage();
+					failed = true;
+				}
+			}
+			if ( failed ){
+				break;
+			}
+
+			// 全パーティションのバックアップがオーナーに追いつくまで待つ
+			listener.onPhase(null, Phase.SYNC);
+			long start = System.currentTimeMillis();
+			boolean synced = new SyncWatcher().waitCompletion(waitSeconds);
+			for (NodeReport report : stepReports.values()) {
+				if ( synced ){
+					report.millis[Phase.SYNC.ordinal()] = System.currentTimeMillis() - start;
+				} else {
+					report.error = "D10159: Timed out while waiting for the partitions to be synchronized.";
+				}
+			}
+			if ( !synced ){
+				break;
+			}
+		}
+		return reports;
+	}
+
+	/**
+	 * Choose the nodes of the next step.
+	 */
+	private List<GSNode> selectStep(List<GSNode> remaining, GSNode master, PartitionInfo[] partitions,
+			Map<GSNode, NodeKey> clusterKeys, int limit) throws GridStoreCommandException {
+		List<GSNode> step = new ArrayList<GSNode>();
+		GSNode masterInRemaining = null;
+		for (GSNode node : remaining) {
+			if ( node.getNodeKey().equals(master.getNodeKey()) ){
+				// MASTERノードは他のノードと同時に再起動しない
+				masterInRemaining = node;
+				continue;
+			}
+			if ( step.size() < limit ){
+				step.add(node);
+				if ( !keepsReplicas(step, partitions, clusterKeys) ){
+					step.remove(step.size() - 1);
+				}
+			}
+		}
+		if ( step.isEmpty() && masterInRemaining != null ){
+			step.add(masterInRemaining);
+			if ( !keepsReplicas(step, partitions, clusterKeys) ){
+				step.clear();
+			}
+		}
+		if ( step.isEmpty() ){
+			GSNode node = remaining.get(0);
+			throw new GridStoreCommandException("D10160: The node cannot be restarted while keeping "+minReplicas
+					+" replicas of its partitions. (node="+node+")");
+		}
+		return step;
+	}
+
+	/**
+	 * Check whether every partition held by the nodes keeps the replicas on the other nodes.
+	 */
+	private boolean keepsReplicas(List<GSNode> nodes, PartitionInfo[] partitions, Map<GSNode, NodeKey> clusterKeys) {
+		Set<NodeKey> down = new HashSet<NodeKey>();
+		for (GSNode node : nodes) {
+			down.add(clusterKeys.get(node));
+		}
+		for (PartitionInfo pInfo : partitions) {
+			Set<NodeKey> holders = new HashSet<NodeKey>();
+			if ( pInfo.owner != null ){
+				holders.add(new NodeKey(pInfo.owner.address, pInfo.owner.port));
+			}
+			if ( pInfo.backup != null ){
+				for (NodeKeyPartition backup : pInfo.backup) {
+					holders.add(new NodeKey(backup.address, backup.port));
+				}
+			}
+			int before = holders.size();
+			holders.removeAll(down);
+			if ( holders.size() != before && holders.size() < minReplicas ){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void restartNode(GSNode node, NodeReport report, int designatedCount, Listener listener)
+			throws GridStoreCommandException {
+		if (cluster.getSystemSSL()) {
+			node.setSystemSSL(true);
+		}
+		listener.onPhase(node, Phase.LEAVE);
+		long start = System.currentTimeMillis();
+		finishPhase(report, Phase.LEAVE, start, GridStoreCommandUtils.leaveCluster(node, userId, password, false));
+
+		listener.onPhase(node, Phase.STOP);
+		start = System.currentTimeMillis();
+		finishPhase(report, Phase.STOP, start, GridStoreCommandUtils.stopNode(node, userId, password, false));
+
+		listener.onPhase(node, Phase.START);
+		start = System.currentTimeMillis();
+		finishPhase(report, Phase.START, start, GridStoreCommandUtils.startNode(node, userId, password, osPassword, -1));
+
+		listener.onPhase(node, Phase.JOIN);
+		start = System.currentTimeMillis();
+		finishPhase(report, Phase.JOIN, start,
+				GridStoreCommandUtils.joinCluster(cluster.getName(), designatedCount, node, userId, password, true));
+	}
+
+	private void finishPhase(NodeReport report, Phase phase, long start, Watcher watcher) throws GridStoreCommandException {
+		if ( !watcher.waitCompletion(waitSeconds) ){
+			throw new GridStoreCommandException("D10161: Timed out in "+phase+" phase. (node="+report.getNode()+")");
+		}
+		report.millis[phase.ordinal()] = System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Waits until all of the nodes are in the cluster and the owner and the backups of every
+	 * partition have reached the LSN which the owner had when the step ended.
+	 * <p>
+	 * The LSN of the owner keeps increasing while the data is updated, so the backups are not
+	 * compared with the current LSN of the owner but with the LSN recorded at the first poll.
+	 */
+	private class SyncWatcher extends AbstractWatcher {
+		private Map<Integer, Long> targetLsn;
+
+		@Override
+		public boolean isCompleted() {
+			try {
+				GSNode master = GridStoreCommandUtils.findMasterNode(cluster, userId, password);
+				if ( master == null ){
+					return false;
+				}
+				PartitionInfo[] partitions = new GridStoreWebAPI(master, userId, password).getNodePartition();
+				if ( targetLsn == null ){
+					// ステップ終了時点のオーナーのLSNを記録する
+					targetLsn = new HashMap<Integer, Long>();
+					for (PartitionInfo pInfo : partitions) {
+						targetLsn.put(pInfo.pId, (pInfo.owner != null) ? pInfo.owner.lsn : pInfo.maxLsn);
+					}
+				}
+				JsonNode stats = GridStoreCommandUtils.getStat(master, userId, password);
+				if ( GridStoreCommandUtils.getActiveCount(stats) != GridStoreCommandUtils.getDesinatedCount(stats) ){
+					return false;
+				}
+				for (PartitionInfo pInfo : partitions) {
+					if ( pInfo.owner == null ){
+						return false;
+					}
+					if ( pInfo.catchup != null && pInfo.catchup.length > 0 ){
+						return false;
+					}
+					Long target = targetLsn.get(pInfo.pId);
+					long lsn = (target != null) ? target : 0;
+					if ( pInfo.owner.lsn < lsn ){
+						return false;
+					}
+					if ( pInfo.backup != null ){
+						for (NodeKeyPartition backup : pInfo.backup) {
+							if ( backup.lsn < lsn ){
+								return false;
+							}
+						}
+					}
+				}
+				return true;
+			} catch (GridStoreCommandException e) {
+				return false;
+			} catch (GridStoreWebAPIException e) {
+				return false;
+			}
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.common;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 複数のWatcherを共有のスレッドで並列にポーリングするスケジューラ。
+ * <p>
+ * Watcherごとに独立してポーリングし、間隔は最初は短く、徐々に長くする。
+ * 完了したWatcherはそれ以降ポーリングしない。全てのWatcherが完了した時点でFutureを完了する。
+ */
+public class WatcherScheduler {
+
+	/**
+	 * 最初のポーリング間隔(ミリ秒)。
+	 */
+	static long INITIAL_INTERVAL = 250;
+
+	/**
+	 * ポーリング間隔の最大値(ミリ秒)。
+	 */
+	static long MAX_INTERVAL = 1000;
+
+	/**
+	 * ポーリングのスレッド数。停止しているマシンへの接続待ちで他のノードの確認が遅れないようにする。
+	 */
+	private static final int THREAD_COUNT = 16;
+
+	private static final ScheduledExecutorService EXECUTOR = createExecutor();
+
+	private WatcherScheduler() {}
+
+	private static ScheduledExecutorService createExecutor() {
+		final AtomicInteger threadNo = new AtomicInteger();
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(THREAD_COUNT, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "gs-watcher-" + threadNo.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// キャンセルしたポーリングをキューに残さない
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+
+	/**
+	 * Watcherのポーリングを開始する。
+	 *
+	 * @param watchers 完了を待つWatcher
+	 * @return 全てのWatcherが完了したら完了するFuture。キャンセルするとポーリングを止める。
+	 */
+	public static CompletableFuture<Void> watch(List<? extends Watcher> watchers) {
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+		final AtomicInteger remaining = new AtomicInteger(watchers.size());
+		if (watchers.isEmpty()) {
+			future.complete(null);
+			return future;
+		}
+		for (Watcher watcher : watchers) {
+			poll(watcher, future, remaining, INITIAL_INTERVAL, 0);
+		}
+		return future;
+	}
+
+	private static void poll(final Watcher watcher, final CompletableFuture<Void> future,
+			final AtomicInteger remaining, final long interval, long delay) {
+		EXECUTOR.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (future.isDone()) {
+					return;
+				}
+				boolean completed;
+				try {
+					completed = watcher.isCompleted();
+				} catch (RuntimeException e) {
+					future.completeExceptionally(e);
+					return;
+				}
+				if (completed) {
+					if (remaining.decrementAndGet() == 0) {
+						future.complete(null);
+					}
+				} else {
+					poll(watcher, future, remaining, Math.min(interval * 2, MAX_INTERVAL), interval);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 全てのWatcherが完了するかタイムアウトするまで待つ。
+	 * タイムアウトした場合や割り込まれた場合はポーリングを止める。
+	 *
+	 * @param watchers 完了を待つWatcher
+	 * @param waitSeconds タイムアウト時間(秒)。Watcher.WAIT_FOREVERを指定した場合はタイムアウトなし。
+	 * @return 全て完了した場合はtrue。タイムアウトした場合や割り込まれた場合はfalse。
+	 */
+	public static boolean waitCompletion(List<? extends Watcher> watchers, int waitSeconds) {
+		CompletableFuture<Void> future = watch(watchers);
+		try {
+			if (waitSeconds == Watcher.WAIT_FOREVER) {
+				future.get();
+			} else {
+				future.get(waitSeconds * 1000L, TimeUnit.MILLISECONDS);
+			}
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			future.cancel(false);
+		}
+	}
+}
@@ -0,0 +1,457 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.common.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.toshiba.mwcloud.gs.ColumnInfo;
+import com.toshiba.mwcloud.gs.GSType;
+import com.toshiba.mwcloud.gs.TimeUnit;
+
+/**
+ * Reads a file written by {@link BinaryRowWriter}.
+ *
+ * <p>The file is memory-mapped in windows and scanned row by row. {@link #next()} only locates
+ * the values of the row, and each value is decoded when it is requested, so the columns which
+ * are not used are skipped without decoding. The file must not be compressed.
+ */
+public class BinaryRowReader implements Closeable {
+
+	/** Size of a mapped window of the file */
+	private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final List<ColumnInfo> columns;
+	private final GSType[] types;
+	private final boolean[] precise;
+	private final int bitmapSize;
+
+	private ByteBuffer window;
+	private long windowStart;
+	private long position;
+
+	private int rowStart;
+	private final int[] offsets;
+	private long rowCount;
+	private boolean finished;
+
+	/**
+	 * Constructor for {@code BinaryRowReader}. The header of the file is read.
+	 *
+	 * @param path the file
+	 * @throws IOException if an I/O error occurs or the file is not a binary row file
+	 */
+	public BinaryRowReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			fileSize = channel.size();
+			map(0, 16);
+			byte[] magic = new byte[BinaryRowWriter.MAGIC.length];
+			window.get(magic);
+			if (!Arrays.equals(magic, BinaryRowWriter.MAGIC)) {
+				throw new IOException("Not a binary row file: " + path);
+			}
+			int version = window.getInt();
+			if (version != BinaryRowWriter.FORMAT_VERSION) {
+				throw new IOException("Unsupported binary row file version: " + version);
+			}
+			int columnCount = window.getInt();
+			position = 16;
+
+			List<ColumnInfo> list = new ArrayList<ColumnInfo>(columnCount);
+			types = new GSType[columnCount];
+			precise = new boolean[columnCount];
+			for (int i = 0; i < columnCount; i++) {
+				String name = readString();
+				types[i] = GSType.valueOf(readString());
+				String precisionName = readString();
+				ColumnInfo.Builder builder = new ColumnInfo.Builder().setName(name).setType(types[i]);
+				if (!precisionName.isEmpty()) {
+					TimeUnit precision = TimeUnit.valueOf(precisionName);
+					builder.setTimePrecision(precision);
+					precise[i] = (precision == TimeUnit.MICROSECOND || precision == TimeUnit.NANOSECOND);
+				}
+				list.add(builder.toInfo());
+			}
+			columns = Collections.unmodifiableList(list);
+			bitmapSize = (columnCount + 7) / 8;
+			offsets = new int[columnCount];
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the columns of the rows.
+	 *
+	 * @return the columns
+	 */
+	public List<ColumnInfo> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Move to the next row.
+	 *
+	 * @return {@code true} if there is a row, {@code false} if the end of the rows is reached
+	 * @throws IOException if an I/O error occurs or the file is broken
+	 */
+	public boolean next() throws IOException {
+		if (finished) {
+			return false;
+		}
+		ensure(position, 4);
+		int length = window.getInt((int) (position - windowStart));
+		if (length == BinaryRowWriter.END_OF_ROWS) {
+			finished = true;
+			ensure(position + 4, 8);
+			long expected = window.getLong((int) (position + 4 - windowStart));
+			if (expected != rowCount) {
+				throw new IOException("Broken binary row file: " + rowCount + " rows read, " + expected + " expected");
+			}
+			return false;
+		}
+		ensure(position + 4, length);
+		rowStart = (int) (position + 4 - windowStart);
+		int offset = rowStart + bitmapSize;
+		for (int i = 0; i < types.length; i++) {
+			if (isNull(i)) {
+				offsets[i] = -1;
+			} else {
+				offsets[i] = offset;
+				offset += valueSize(i, offset);
+			}
+		}
+		if (offset != rowStart + length) {
+			throw new IOException("Broken binary row file: row " + (rowCount + 1));
+		}
+		position += 4 + length;
+		rowCount++;
+		return true;
+	}
+
+	/**
+	 * Get the number of rows read.
+	 *
+	 * @return number of rows
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Check whether the value of the current row is NULL.
+	 *
+	 * @param column the column number
+	 * @return {@code true} if the value is NULL
+	 */
+	public boolean isNull(int column) {
+		return (window.get(rowStart + column / 8) & (1 << (column % 8))) != 0;
+	}
+
+	public boolean getBool(int column) {
+		return window.get(offset(column)) != 0;
+	}
+
+	public byte getByte(int column) {
+		return window.get(offset(column));
+	}
+
+	public short getShort(int column) {
+		return window.getShort(offset(column));
+	}
+
+	public int getInteger(int column) {
+		return window.getInt(offset(column));
+	}
+
+	public long getLong(int column) {
+		return window.getLong(offset(column));
+	}
+
+	public float getFloat(int column) {
+		return window.getFloat(offset(column));
+	}
+
+	public double getDouble(int column) {
+		return window.getDouble(offset(column));
+	}
+
+	/**
+	 * Get the TIMESTAMP value as milliseconds since the epoch.
+	 *
+	 * @param column the column number
+	 * @return milliseconds
+	 */
+	public long getTimestampMillis(int column) {
+		return window.getLong(offset(column));
+	}
+
+	/**
+	 * Get the TIMESTAMP value.
+	 *
+	 * @param column the column number
+	 * @return the value, or {@code null} if it is NULL
+	 */
+	public Date getTimestamp(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		return new Date(getTimestampMillis(column));
+	}
+
+	/**
+	 * Get the TIMESTAMP value including the nanoseconds if the precision is MICROSECOND or
+	 * NANOSECOND.
+	 *
+	 * @param column the column number
+	 * @return the value, or {@code null} if it is NULL
+	 */
+	public Timestamp getPreciseTimestamp(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		int offset = offset(column);
+		Timestamp ts = new Timestamp(window.getLong(offset));
+		if (precise[column]) {
+			ts.setNanos(window.getInt(offset + 8));
+		}
+		return ts;
+	}
+
+	/**
+	 * Get the STRING or GEOMETRY (WKT) value.
+	 *
+	 * @param column the column number
+	 * @return the value, or {@code null} if it is NULL
+	 */
+	public String getString(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		return readString(offset(column));
+	}
+
+	/**
+	 * Get the BLOB or BYTE_ARRAY value.
+	 *
+	 * @param column the column number
+	 * @return the value, or {@code null} if it is NULL
+	 */
+	public byte[] getBytes(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		return readBytes(offset(column));
+	}
+
+	/**
+	 * Get the value as an object of the same class as {@code Row#getValue(int)} returns, except
+	 * BLOB values which are returned as {@code byte[]}.
+	 *
+	 * @param column the column number
+	 * @return the value, or {@code null} if it is NULL
+	 */
+	public Object getValue(int column) {
+		if (isNull(column)) {
+			return null;
+		}
+		int offset = offsets[column];
+		switch (types[column]) {
+		case BOOL:
+			return getBool(column);
+		case BYTE:
+			return getByte(column);
+		case SHORT:
+			return getShort(column);
+		case INTEGER:
+			return getInteger(column);
+		case LONG:
+			return getLong(column);
+		case FLOAT:
+			return getFloat(column);
+		case DOUBLE:
+			return getDouble(column);
+		case TIMESTAMP:
+			return precise[column] ? getPreciseTimestamp(column) : getTimestamp(column);
+		case BLOB:
+		case BYTE_ARRAY:
+			return getBytes(column);
+		case STRING_ARRAY: {
+			String[] array = new String[window.getInt(offset)];
+			offset += 4;
+			for (int k = 0; k < array.length; k++) {
+				array[k] = readString(offset);
+				offset += 4 + window.getInt(offset);
+			}
+			return array;
+		}
+		case BOOL_ARRAY: {
+			boolean[] array = new boolean[window.getInt(offset)];
+			for (int k = 0; k < array.length; k++) {
+				array[k] = window.get(offset + 4 + k) != 0;
+			}
+			return array;
+		}
+		case SHORT_ARRAY: {
+			short[] array = new short[window.getInt(offset)];
+			slice(offset + 4).asShortBuffer().get(array);
+			return array;
+		}
+		case INTEGER_ARRAY: {
+			int[] array = new int[window.getInt(offset)];
+			slice(offset + 4).asIntBuffer().get(array);
+			return array;
+		}
+		case LONG_ARRAY: {
+			long[] array = new long[window.getInt(offset)];
+			slice(offset + 4).asLongBuffer().get(array);
+			return array;
+		}
+		case FLOAT_ARRAY: {
+			float[] array = new float[window.getInt(offset)];
+			slice(offset + 4).asFloatBuffer().get(array);
+			return array;
+		}
+		case DOUBLE_ARRAY: {
+			double[] array = new double[window.getInt(offset)];
+			slice(offset + 4).asDoubleBuffer().get(array);
+			return array;
+		}
+		case TIMESTAMP_ARRAY: {
+			Date[] array = new Date[window.getInt(offset)];
+			for (int k = 0; k < array.length; k++) {
+				array[k] = new Date(window.getLong(offset + 4 + k * 8));
+			}
+			return array;
+		}
+		default:
+			// STRING, GEOMETRY
+			return getString(column);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private int offset(int column) {
+		int offset = offsets[column];
+		if (offset < 0) {
+			throw new IllegalStateException("Column " + column + " is NULL");
+		}
+		return offset;
+	}
+
+	private int valueSize(int column, int offset) {
+		switch (types[column]) {
+		case BOOL:
+		case BYTE:
+			return 1;
+		case SHORT:
+			return 2;
+		case INTEGER:
+		case FLOAT:
+			return 4;
+		case LONG:
+		case DOUBLE:
+			return 8;
+		case TIMESTAMP:
+			return precise[column] ? 12 : 8;
+		case BOOL_ARRAY:
+			return 4 + window.getInt(offset);
+		case SHORT_ARRAY:
+			return 4 + window.getInt(offset) * 2;
+		case INTEGER_ARRAY:
+		case FLOAT_ARRAY:
+			return 4 + window.getInt(offset) * 4;
+		case LONG_ARRAY:
+		case DOUBLE_ARRAY:
+		case TIMESTAMP_ARRAY:
+			return 4 + window.getInt(offset) * 8;
+		case STRING_ARRAY: {
+			int count = window.getInt(offset);
+			int size = 4;
+			for (int k = 0; k < count; k++) {
+				size += 4 + window.getInt(offset + size);
+			}
+			return size;
+		}
+		default:
+			// STRING, GEOMETRY, BLOB, BYTE_ARRAY
+			return 4 + window.getInt(offset);
+		}
+	}
+
+	private ByteBuffer slice(int offset) {
+		ByteBuffer dup = window.duplicate();
+		dup.position(offset);
+		return dup.slice();
+	}
+
+	private byte[] readBytes(int offset) {
+		byte[] bytes = new byte[window.getInt(offset)];
+		ByteBuffer dup = window.duplicate();
+		dup.position(offset + 4);
+		dup.get(bytes);
+		return bytes;
+	}
+
+	private String readString(int offset) {
+		return new String(readBytes(offset), BinaryRowWriter.ENCODING);
+	}
+
+	private String readString() throws IOException {
+		ensure(position, 4);
+		int length = window.getInt((int) (position - windowStart));
+		ensure(position + 4, length);
+		String value = readString((int) (position - windowStart));
+		position += 4 + length;
+		return value;
+	}
+
+	/** Map the window so that the range of the file is in the window. */
+	private void ensure(long start, int length) throws IOException {
+		if (start + length > fileSize || length < 0) {
+			throw new IOException("Broken binary row file: unexpected end of file");
+		}
+		if (window == null || start < windowStart || start + length > windowStart + window.capacity()) {
+			map(start, length);
+		}
+	}
+
+	private void map(long start, int length) throws IOException {
+		long size = Math.min(Math.max(WINDOW_SIZE, length), fileSize - start);
+		if (size < length) {
+			throw new IOException("Broken binary row file: unexpected end of file");
+		}
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		windowStart = start;
+	}
+}
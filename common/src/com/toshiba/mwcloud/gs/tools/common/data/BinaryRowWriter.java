@@ -0,0 +1,353 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.common.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import com.toshiba.mwcloud.gs.ColumnInfo;
+import com.toshiba.mwcloud.gs.GSType;
+import com.toshiba.mwcloud.gs.TimeUnit;
+
+/**
+ * Writes rows in the binary row file format ({@link ToolConstants.RowFileType#BINARY}).
+ *
+ * <p>The file consists of a header, the rows and a trailer. All numbers are big-endian, and all
+ * strings are written as an int byte length followed by the UTF-8 bytes.
+ *
+ * <pre>
+ * header  : magic "GSROWBIN", int version, int column count,
+ *           for each column: string name, string GSType name, string time precision ("" if none)
+ * row     : int length of the rest of the row, null bitmap ((column count + 7) / 8 bytes,
+ *           bit (i % 8) of byte (i / 8) is set if column i is NULL), values of non-NULL columns
+ * trailer : int -1, long row count
+ * </pre>
+ *
+ * <p>The values are written as follows.
+ * <ul>
+ * <li>BOOL, BYTE: 1 byte. SHORT: short. INTEGER: int. LONG: long. FLOAT: float. DOUBLE: double
+ * <li>TIMESTAMP: long milliseconds since the epoch, followed by int nanoseconds of the second
+ * if the precision is MICROSECOND or NANOSECOND
+ * <li>STRING, GEOMETRY (WKT): string. BLOB: int byte length followed by the bytes
+ * <li>arrays: int element count followed by the elements as above (TIMESTAMP: milliseconds only)
+ * </ul>
+ */
+public class BinaryRowWriter implements Closeable {
+
+	/** ファイルの先頭 */
+	static final byte[] MAGIC = {'G', 'S', 'R', 'O', 'W', 'B', 'I', 'N'};
+
+	/** フォーマットのバージョン */
+	static final int FORMAT_VERSION = 1;
+
+	/** ロウの終端 */
+	static final int END_OF_ROWS = -1;
+
+	static final Charset ENCODING = Charset.forName("UTF-8");
+
+	private final WritableByteChannel channel;
+	private final GSType[] types;
+	private final boolean[] precise;
+	private final int flushSize;
+	private ByteBuffer buffer;
+	private long rowCount;
+	private long byteCount;
+	private boolean closed;
+
+	/**
+	 * Constructor for {@code BinaryRowWriter}. The header is written to the buffer.
+	 *
+	 * @param channel the channel to write, which is closed by this writer
+	 * @param columns the columns of the rows
+	 * @param bufferSize size of the buffer flushed to the channel
+	 */
+	public BinaryRowWriter(WritableByteChannel channel, List<ColumnInfo> columns, int bufferSize) {
+		this.channel = channel;
+		this.flushSize = Math.max(1024, bufferSize);
+		this.buffer = ByteBuffer.allocate(flushSize + 1024);
+		this.types = new GSType[columns.size()];
+		this.precise = new boolean[columns.size()];
+
+		buffer.put(MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putInt(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnInfo column = columns.get(i);
+			TimeUnit precision = column.getTimePrecision();
+			types[i] = column.getType();
+			precise[i] = (precision == TimeUnit.MICROSECOND || precision == TimeUnit.NANOSECOND);
+			putString(column.getName());
+			putString(types[i].name());
+			putString(precision == null ? "" : precision.name());
+		}
+	}
+
+	/**
+	 * Write a row.
+	 *
+	 * @param values the values of the columns, {@code null} for NULL
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeRow(Object[] values) throws IOException {
+		int bitmapSize = (types.length + 7) / 8;
+		ensure(4 + bitmapSize);
+		int start = buffer.position();
+		buffer.putInt(0);
+		int bitmap = buffer.position();
+		for (int i = 0; i < bitmapSize; i++) {
+			buffer.put((byte) 0);
+		}
+		for (int i = 0; i < types.length; i++) {
+			Object value = values[i];
+			if (value == null) {
+				buffer.put(bitmap + i / 8, (byte) (buffer.get(bitmap + i / 8) | (1 << (i % 8))));
+			} else {
+				putValue(types[i], precise[i], value);
+			}
+		}
+		buffer.putInt(start, buffer.position() - start - 4);
+		rowCount++;
+		if (buffer.position() >= flushSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Get the number of rows written.
+	 *
+	 * @return number of rows
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Get the number of bytes written to the channel.
+	 *
+	 * @return number of bytes
+	 */
+	public long getByteCount() {
+		return byteCount + buffer.position();
+	}
+
+	/**
+	 * Write the trailer and close the channel.
+	 *
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			ensure(12);
+			buffer.putInt(END_OF_ROWS);
+			buffer.putLong(rowCount);
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Close the channel without writing the rows in the buffer and the trailer, so that the file
+	 * is detected as broken by {@link BinaryRowReader}. Does nothing if already closed.
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Do nothing
+		}
+	}
+
+	private void putValue(GSType type, boolean precise, Object value) throws IOException {
+		switch (type) {
+		case BOOL:
+			ensure(1);
+			buffer.put((byte) (((Boolean) value) ? 1 : 0));
+			break;
+		case BYTE:
+			ensure(1);
+			buffer.put(((Number) value).byteValue());
+			break;
+		case SHORT:
+			ensure(2);
+			buffer.putShort(((Number) value).shortValue());
+			break;
+		case INTEGER:
+			ensure(4);
+			buffer.putInt(((Number) value).intValue());
+			break;
+		case LONG:
+			ensure(8);
+			buffer.putLong(((Number) value).longValue());
+			break;
+		case FLOAT:
+			ensure(4);
+			buffer.putFloat(((Number) value).floatValue());
+			break;
+		case DOUBLE:
+			ensure(8);
+			buffer.putDouble(((Number) value).doubleValue());
+			break;
+		case TIMESTAMP:
+			putTimestamp((Date) value, precise);
+			break;
+		case BLOB:
+			putBytes(toBytes(value));
+			break;
+		case STRING_ARRAY: {
+			String[] array = (String[]) value;
+			ensure(4);
+			buffer.putInt(array.length);
+			for (String s : array) {
+				putString(s);
+			}
+			break;
+		}
+		case BOOL_ARRAY: {
+			boolean[] array = (boolean[]) value;
+			ensure(4 + array.length);
+			buffer.putInt(array.length);
+			for (boolean b : array) {
+				buffer.put((byte) (b ? 1 : 0));
+			}
+			break;
+		}
+		case BYTE_ARRAY:
+			putBytes((byte[]) value);
+			break;
+		case SHORT_ARRAY: {
+			short[] array = (short[]) value;
+			ensure(4 + array.length * 2);
+			buffer.putInt(array.length);
+			buffer.asShortBuffer().put(array);
+			buffer.position(buffer.position() + array.length * 2);
+			break;
+		}
+		case INTEGER_ARRAY: {
+			int[] array = (int[]) value;
+			ensure(4 + array.length * 4);
+			buffer.putInt(array.length);
+			buffer.asIntBuffer().put(array);
+			buffer.position(buffer.position() + array.length * 4);
+			break;
+		}
+		case LONG_ARRAY: {
+			long[] array = (long[]) value;
+			ensure(4 + array.length * 8);
+			buffer.putInt(array.length);
+			buffer.asLongBuffer().put(array);
+			buffer.position(buffer.position() + array.length * 8);
+			break;
+		}
+		case FLOAT_ARRAY: {
+			float[] array = (float[]) value;
+			ensure(4 + array.length * 4);
+			buffer.putInt(array.length);
+			buffer.asFloatBuffer().put(array);
+			buffer.position(buffer.position() + array.length * 4);
+			break;
+		}
+		case DOUBLE_ARRAY: {
+			double[] array = (double[]) value;
+			ensure(4 + array.length * 8);
+			buffer.putInt(array.length);
+			buffer.asDoubleBuffer().put(array);
+			buffer.position(buffer.position() + array.length * 8);
+			break;
+		}
+		case TIMESTAMP_ARRAY: {
+			Date[] array = (Date[]) value;
+			ensure(4 + array.length * 8);
+			buffer.putInt(array.length);
+			for (Date d : array) {
+				buffer.putLong(d.getTime());
+			}
+			break;
+		}
+		default:
+			// STRING, GEOMETRY
+			putString(value.toString());
+			break;
+		}
+	}
+
+	private void putTimestamp(Date value, boolean precise) {
+		ensure(12);
+		buffer.putLong(value.getTime());
+		if (precise) {
+			if (value instanceof Timestamp) {
+				buffer.putInt(((Timestamp) value).getNanos());
+			} else {
+				buffer.putInt((int) Math.floorMod(value.getTime(), 1000L) * 1000000);
+			}
+		}
+	}
+
+	private static byte[] toBytes(Object value) throws IOException {
+		if (value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		Blob blob = (Blob) value;
+		try {
+			return blob.getBytes(1, (int) blob.length());
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private void putString(String value) {
+		putBytes(value.getBytes(ENCODING));
+	}
+
+	private void putBytes(byte[] bytes) {
+		ensure(4 + bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	private void ensure(int size) {
+		if (buffer.remaining() < size) {
+			ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+			buffer.flip();
+			newBuffer.put(buffer);
+			buffer = newBuffer;
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		byteCount += buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
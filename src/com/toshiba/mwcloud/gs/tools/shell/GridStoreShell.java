@@ -99,6 +99,72 @@ public class GridStoreShell {
   /** Variable that store null CSV standard. */
   public static final String NAME_NULL_CSV = "GS_NULL_CSV";
 
+  /** Variable that store the flag whether to fetch the query result on a background thread. */
+  public static final String NAME_PREFETCH = "GS_PREFETCH";
+
+  /** Variable that store the number of worker threads which format the lines of getcsv. */
+  public static final String NAME_EXPORT_THREADS = "GS_EXPORT_THREADS";
+
+  /** Variable that store the codec of the files written by sub-commands. */
+  public static final String NAME_COMPRESSION = "GS_COMPRESSION";
+
+  /** Variable that store the compression level of the files written by sub-commands. */
+  public static final String NAME_COMPRESSION_LEVEL = "GS_COMPRESSION_LEVEL";
+
+  /** Variable that store the buffer size of the files written by sub-commands. */
+  public static final String NAME_OUTPUT_BUFFER_SIZE = "GS_OUTPUT_BUFFER_SIZE";
+
+  /** Variable that store the flag whether to record the timing breakdown of queries. */
+  public static final String NAME_QUERY_TIMING = "GS_QUERY_TIMING";
+
+  /** Variable that store the flag whether to cache the results of queries. */
+  public static final String NAME_RESULT_CACHE = "GS_RESULT_CACHE";
+
+  /** Variable that store the maximum number of the cached results of queries. */
+  public static final String NAME_RESULT_CACHE_SIZE = "GS_RESULT_CACHE_SIZE";
+
+  /** Variable that store the time to live (sec) of the cached results of queries. */
+  public static final String NAME_RESULT_CACHE_TTL = "GS_RESULT_CACHE_TTL";
+
+  /** Variable that store the maximum number of rows of a cached result of a query. */
+  public static final String NAME_RESULT_CACHE_MAX_ROWS = "GS_RESULT_CACHE_MAX_ROWS";
+
+  /** Variable that store the flag whether to cache the schemas of containers. */
+  public static final String NAME_SCHEMA_CACHE = "GS_SCHEMA_CACHE";
+
+  /** Variable that store the maximum number of containers whose schemas are cached. */
+  public static final String NAME_SCHEMA_CACHE_SIZE = "GS_SCHEMA_CACHE_SIZE";
+
+  /** Variable that store the time to live (sec) of the cached schemas of containers. */
+  public static final String NAME_SCHEMA_CACHE_TTL = "GS_SCHEMA_CACHE_TTL";
+
+  /** Variable that store the maximum number of open containers kept for row operations. */
+  public static final String NAME_CONTAINER_POOL_SIZE = "GS_CONTAINER_POOL_SIZE";
+
+  /** Variable that store the maximum number of idle auxiliary SQL connections. */
+  public static final String NAME_SQL_POOL_SIZE = "GS_SQL_POOL_SIZE";
+
+  /** Variable that store the number of statements executed at the same time by sqlbatch. */
+  public static final String NAME_SQL_BATCH_THREADS = "GS_SQL_BATCH_THREADS";
+
+  /** Variable that store the number of replicas of each partition kept during rollingrestart. */
+  public static final String NAME_ROLLING_MIN_REPLICAS = "GS_ROLLING_MIN_REPLICAS";
+
+  /** Variable that store the flag whether to bind the variables in SQL as parameters. */
+  public static final String NAME_SQL_PREPARE = "GS_SQL_PREPARE";
+
+  /** Variable that store the maximum number of the prepared statements of a connection. */
+  public static final String NAME_SQL_PREPARE_CACHE_SIZE = "GS_SQL_PREPARE_CACHE_SIZE";
+
+  /** Variable that store the number of rows sent by a multiPut call of putrows. */
+  public static final String NAME_PUTROWS_BATCH_SIZE = "GS_PUTROWS_BATCH_SIZE";
+
+  /** Variable that store the number of worker threads which put the rows of loadcsv. */
+  public static final String NAME_LOAD_THREADS = "GS_LOAD_THREADS";
+
+  /** Variable that store the number of rows removed by a transaction of removerows. */
+  public static final String NAME_REMOVEROWS_BATCH_SIZE = "GS_REMOVEROWS_BATCH_SIZE";
+
   /** Variable that store the value of TQL fetch mode. */
   public static final String TQL_FETCH_MODE = "GS_TQL_FETCH_MODE";
 
@@ -134,6 +200,18 @@ public class GridStoreShell {
     MAINTENANCE;
   }
 
+  /** How to count the results of SQL SELECT statements. */
+  public enum SQL_COUNT_MODE {
+    /** Execute a count query after the SELECT statement (TRUE). */
+    SYNC,
+    /** Execute a count query on another connection in the background. */
+    ASYNC,
+    /** Count the results as they are fetched. */
+    FETCH,
+    /** Do not count the results (FALSE). */
+    NONE;
+  }
+
   /** Number of saved commands (command history), default is 20. */
   public static int m_historyCount = 20;
 
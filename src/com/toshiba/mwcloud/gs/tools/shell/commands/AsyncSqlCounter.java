@@ -0,0 +1,138 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the results of an SQL SELECT statement on a background thread.
+ *
+ * <p>The count query is executed on a connection of the {@link SqlConnectionPool}, other than the
+ * one which fetches the results, so that the results can be fetched without waiting for the
+ * count. The count query is cancelled by {@link #close()}.
+ */
+class AsyncSqlCounter implements Closeable {
+
+  /** Maximum time to wait for the count thread after the count query is cancelled. */
+  private static final long CANCEL_WAIT_MS = 1000;
+
+  private final SqlConnectionPool pool;
+  private final String countSql;
+  private final Thread thread;
+  private final long startNanos = System.nanoTime();
+
+  private volatile Statement stmt;
+  private volatile boolean cancelled;
+  private volatile boolean done;
+  private volatile long count = -1;
+  private volatile long elapsedMillis;
+
+  /**
+   * Constructor for {@code AsyncSqlCounter}. The count query is started immediately.
+   *
+   * @param pool the pool of the connection on which the count query is executed
+   * @param sql the SELECT statement
+   */
+  AsyncSqlCounter(SqlConnectionPool pool, String sql) {
+    this.pool = pool;
+    this.countSql = "select count(*) from ( " + sql + " ) dummy";
+    this.thread = new Thread(this::run, "gs_sh-sqlcount");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Check whether the count query has finished.
+   *
+   * @return {@code true} if finished, successfully or not
+   */
+  boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Get the number of results.
+   *
+   * @return the number of results, or -1 if the count query has not finished or failed
+   */
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Get the execution time of the count query.
+   *
+   * @return the execution time in milliseconds
+   */
+  long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /** Cancel the count query if it is running, and wait for the count thread for a while. */
+  @Override
+  public void close() {
+    if (done) {
+      return;
+    }
+    cancelled = true;
+    Statement s = stmt;
+    if (s != null) {
+      try {
+        s.cancel();
+      } catch (SQLException e) {
+        // Do nothing
+      }
+    }
+    try {
+      thread.join(CANCEL_WAIT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    try {
+      Connection con = pool.borrow();
+      try {
+        if (cancelled) {
+          return;
+        }
+        try (Statement s = con.createStatement()) {
+          stmt = s;
+          if (cancelled) {
+            return;
+          }
+          s.setFetchSize(1);
+          try (ResultSet rs = s.executeQuery(countSql)) {
+            if (rs.next()) {
+              count = rs.getLong(1);
+            }
+          }
+        }
+      } finally {
+        pool.release(con);
+      }
+    } catch (Exception e) {
+      // The count is not displayed
+    } finally {
+      stmt = null;
+      elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+      done = true;
+    }
+  }
+}
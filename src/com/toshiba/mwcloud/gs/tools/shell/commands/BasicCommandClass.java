@@ -25,6 +25,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -749,16 +750,43 @@ public class BasicCommandClass extends AbstractCommandClass {
 
   /**
    * The main method for sub-command {@code sqlcount}.<br>
-   * Set the flag whether to execute count query when SQL querying.
+   * Set how to count the number of the result when SQL querying.
    *
-   * @param sqlCount if {@code false}, gs shell does not count the number of the result when
-   *     querying by sql sub-command and hit count is not displayed, {@code true} to display the hit
-   *     count to the standard output
+   * @param sqlCount {@code TRUE} to execute count query before fetching the result, {@code FALSE}
+   *     not to count, {@code ASYNC} to execute count query on another connection while fetching
+   *     the result, {@code FETCH} to display the number of the fetched rows when all rows are
+   *     fetched
+   * @throws ShellException if {@code sqlCount} is not any of the above
    * @see ScriptContext
    */
   @GSCommand(name = "sqlcount")
-  public void setSqlCount(boolean sqlCount) {
-    getContext().setAttribute(GridStoreShell.SQL_COUNT, sqlCount, ScriptContext.ENGINE_SCOPE);
+  public void setSqlCount(String sqlCount) {
+    GridStoreShell.SQL_COUNT_MODE mode;
+    String value = sqlCount.trim().toLowerCase(Locale.ROOT);
+    switch (value) {
+      case "yes":
+      case "on":
+      case "true":
+      case "1":
+        mode = GridStoreShell.SQL_COUNT_MODE.SYNC;
+        break;
+      case "no":
+      case "off":
+      case "false":
+      case "0":
+        mode = GridStoreShell.SQL_COUNT_MODE.NONE;
+        break;
+      case "async":
+        mode = GridStoreShell.SQL_COUNT_MODE.ASYNC;
+        break;
+      case "fetch":
+        mode = GridStoreShell.SQL_COUNT_MODE.FETCH;
+        break;
+      default:
+        throw new ShellException(
+            getMessage("error.illegalEnum", sqlCount, "[TRUE, FALSE, ASYNC, FETCH]"));
+    }
+    getContext().setAttribute(GridStoreShell.SQL_COUNT, mode, ScriptContext.ENGINE_SCOPE);
   }
 
   /**
@@ -16,6 +16,7 @@ package com.toshiba.mwcloud.gs.tools.shell.commands;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.toshiba.mwcloud.gs.tools.common.CombinedStatus;
 import com.toshiba.mwcloud.gs.tools.common.CompositeWatcher;
+import com.toshiba.mwcloud.gs.tools.common.FanOutExecutor;
 import com.toshiba.mwcloud.gs.tools.common.GSCluster;
 import com.toshiba.mwcloud.gs.tools.common.GSNode;
 import com.toshiba.mwcloud.gs.tools.common.GSNodeStat;
@@ -25,6 +26,7 @@ import com.toshiba.mwcloud.gs.tools.common.GridStoreWebAPI;
 import com.toshiba.mwcloud.gs.tools.common.GridStoreWebAPIException;
 import com.toshiba.mwcloud.gs.tools.common.NotificationMode;
 import com.toshiba.mwcloud.gs.tools.common.NullWatcher;
+import com.toshiba.mwcloud.gs.tools.common.RollingRestart;
 import com.toshiba.mwcloud.gs.tools.common.Watcher;
 import com.toshiba.mwcloud.gs.tools.shell.AbstractCommandClass;
 import com.toshiba.mwcloud.gs.tools.shell.GridStoreShell;
@@ -35,15 +37,10 @@ import com.toshiba.mwcloud.gs.tools.shell.annotation.GSCommand;
 import com.toshiba.mwcloud.gs.tools.shell.annotation.GSNullable;
 import com.toshiba.mwcloud.gs.tools.shell.commands.BasicCommandClass.ModOperator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import javax.script.ScriptContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,7 +54,10 @@ import org.slf4j.LoggerFactory;
  * @see AbstractCommandClass
  */
 public class ClusterCommandClass extends AbstractCommandClass {
-  private static final int THREAD_COUNT = 8;
+  private static final int THREAD_COUNT = FanOutExecutor.DEFAULT_PARALLELISM;
+
+  /** Time (ms) by which the stop requests of stopnode must finish. */
+  private static final long STOP_REQUEST_TIMEOUT = 60000;
   private static Logger logger = LoggerFactory.getLogger(ClusterCommandClass.class);
 
   private void checkUserIdAndPassword(String userId, String password) {
@@ -284,54 +284,47 @@ public class ClusterCommandClass extends AbstractCommandClass {
     if (nodes.length == 0) {
       throw new ShellException(getMessage("error.clusterNodeNull"));
     }
-    ExecutorService pool = Executors.newFixedThreadPool(THREAD_COUNT);
-    List<Future<Watcher>> futures = new ArrayList<Future<Watcher>>();
+    List<FanOutExecutor.Result<ShellNode, Watcher>> results;
     try {
-      for (final ShellNode node : nodes) {
-        futures.add(
-            pool.submit(
-                new Callable<Watcher>() {
-                  @Override
-                  public Watcher call() throws Exception {
-                    try {
-                      println(
-                          getMessage("message.nodeStarting", node.getName())); // ノード {0} を起動します。
-                      if (isSystemSSL()) {
-                        node.setSystemSSL(true);
-                      }
-                      Watcher watcher =
-                          GridStoreCommandUtils.startNode(
-                              node, userId, password, osPassword, waitSecondsVal);
-                      return watcher;
-                    } catch (Exception e) {
-                      String message =
-                          getMessage("error.nodeStarting", node.getName(), e.getMessage());
-                      println(message);
-                      logger.error(message, e);
-                      throw e;
-                    }
+      results =
+          FanOutExecutor.execute(
+              Arrays.asList(nodes),
+              new FanOutExecutor.Task<ShellNode, Watcher>() {
+                @Override
+                public Watcher call(ShellNode node) throws Exception {
+                  println(getMessage("message.nodeStarting", node.getName())); // ノード {0} を起動します。
+                  if (isSystemSSL()) {
+                    node.setSystemSSL(true);
                   }
-                }));
-      }
-      pool.shutdown();
-      pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+                  return GridStoreCommandUtils.startNode(
+                      node, userId, password, osPassword, waitSecondsVal);
+                }
+              },
+              THREAD_COUNT,
+              FanOutExecutor.NO_DEADLINE,
+              new FanOutExecutor.Listener<ShellNode, Watcher>() {
+                @Override
+                public boolean onResult(FanOutExecutor.Result<ShellNode, Watcher> result) {
+                  // 失敗したノードは完了した順にすぐ表示する
+                  if (!result.isSucceeded()) {
+                    printNodeError("error.nodeStarting", result);
+                  }
+                  return true;
+                }
+              });
     } catch (InterruptedException e) {
-      e.printStackTrace();
-    } finally {
-      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.interrupted"), e);
     }
 
     final List<Watcher> watchers = new ArrayList<Watcher>();
-    for (Future<Watcher> future : futures) {
-      try {
-        watchers.add(future.get());
-      } catch (InterruptedException e) {
-        assert false;
-      } catch (ExecutionException e) {
+    for (FanOutExecutor.Result<ShellNode, Watcher> result : results) {
+      if (result.isSucceeded()) {
+        watchers.add(result.getValue());
       }
     }
-    if (watchers.size() < futures.size()) {
-      int errorCount = futures.size() - watchers.size();
+    if (watchers.size() < results.size()) {
+      int errorCount = results.size() - watchers.size();
       throw new ShellException(
           getMessage("error.someNodesNotStarted", errorCount, watchers.size()));
     }
@@ -347,10 +340,17 @@ public class ClusterCommandClass extends AbstractCommandClass {
     }
   }
 
-  private void stopNodeImpl(ShellNode[] nodes, Integer waitSeconds, boolean force)
+  private void printNodeError(String key, FanOutExecutor.Result<ShellNode, Watcher> result) {
+    Throwable error = result.getError();
+    String message = getMessage(key, result.getItem().getName(), error.getMessage());
+    println(message);
+    logger.error(message, error);
+  }
+
+  private void stopNodeImpl(ShellNode[] nodes, Integer waitSeconds, final boolean force)
       throws GridStoreCommandException {
-    String userId = (String) getContext().getAttribute(GridStoreShell.USER);
-    String password = (String) getContext().getAttribute(GridStoreShell.PASSWORD);
+    final String userId = (String) getContext().getAttribute(GridStoreShell.USER);
+    final String password = (String) getContext().getAttribute(GridStoreShell.PASSWORD);
     checkUserIdAndPassword(userId, password);
     int waitSecondsVal = getWaitTime(waitSeconds);
 
@@ -358,19 +358,41 @@ public class ClusterCommandClass extends AbstractCommandClass {
       throw new ShellException(getMessage("error.clusterNodeNull"));
     }
 
+    List<FanOutExecutor.Result<ShellNode, Watcher>> results;
+    try {
+      results =
+          FanOutExecutor.execute(
+              Arrays.asList(nodes),
+              new FanOutExecutor.Task<ShellNode, Watcher>() {
+                @Override
+                public Watcher call(ShellNode node) throws Exception {
+                  println(getMessage("message.nodeStopping", node.getName()));
+                  if (isSystemSSL()) {
+                    node.setSystemSSL(true);
+                  }
+                  return GridStoreCommandUtils.stopNode(node, userId, password, force);
+                }
+              },
+              THREAD_COUNT,
+              STOP_REQUEST_TIMEOUT,
+              new FanOutExecutor.Listener<ShellNode, Watcher>() {
+                @Override
+                public boolean onResult(FanOutExecutor.Result<ShellNode, Watcher> result) {
+                  if (!result.isSucceeded()) {
+                    printNodeError("error.nodeStopping", result);
+                  }
+                  return true;
+                }
+              });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.interrupted"), e);
+    }
+
     List<Watcher> watchers = new ArrayList<Watcher>(nodes.length);
-    for (ShellNode node : nodes) {
-      try {
-        println(getMessage("message.nodeStopping", node.getName()));
-        if (isSystemSSL()) {
-          node.setSystemSSL(true);
-        }
-        watchers.add(GridStoreCommandUtils.stopNode(node, userId, password, force));
-        // println(getMessage("message.nodeStopped", node.getName()));
-      } catch (Exception e) {
-        String message = getMessage("error.nodeStopping", node.getName(), e.getMessage());
-        println(message);
-        logger.error(message, e);
+    for (FanOutExecutor.Result<ShellNode, Watcher> result : results) {
+      if (result.isSucceeded()) {
+        watchers.add(result.getValue());
       }
     }
 
@@ -568,6 +590,141 @@ public class ClusterCommandClass extends AbstractCommandClass {
     }
   }
 
+  /**
+   * The main method for sub-command {@code rollingrestart}.<br>
+   * Restart all the nodes of the cluster step by step without stopping the service. Need to run
+   * with administrator user.
+   *
+   * @param cluster cluster variable
+   * @param parallel maximum number of the nodes restarted at the same time
+   * @param waitSeconds waiting time (in second) of each phase of a node
+   * @throws GridStoreCommandException if it meets 1 of the below conditions:
+   *     <ul>
+   *       <li>Current cluster configuration is mismatched with cluster definition
+   *       <li>All nodes in the cluster are not 'SERVICING'
+   *       <li>A node cannot be restarted without losing the replicas of its partitions
+   *     </ul>
+   *
+   * @throws ShellException when user name/password/OS password is not set, node is not defined in
+   *     the cluster variable, or some nodes are not restarted
+   * @see RollingRestart
+   * @see ScriptContext
+   */
+  @GSCommand
+  public void rollingRestart(
+      ShellCluster cluster, @GSNullable Integer parallel, @GSNullable Integer waitSeconds)
+      throws GridStoreCommandException {
+    String userId = (String) getContext().getAttribute(GridStoreShell.USER);
+    String password = (String) getContext().getAttribute(GridStoreShell.PASSWORD);
+    String osPassword = (String) getContext().getAttribute(GridStoreShell.OSPASSWORD);
+    checkUserIdAndPassword(userId, password, osPassword);
+    checkClusterNode(cluster);
+    int waitSecondsVal = getWaitTime(waitSeconds);
+    if (parallel != null && parallel <= 0) {
+      throw new ShellException(getMessage("error.rollingRestartParallel", parallel));
+    }
+
+    if (isSystemSSL()) {
+      cluster.setSystemSSL(true);
+    }
+    RollingRestart<ShellNode> restart =
+        new RollingRestart<ShellNode>(
+            cluster,
+            userId,
+            password,
+            osPassword,
+            (parallel == null) ? 1 : parallel,
+            getRollingMinReplicas(),
+            waitSecondsVal);
+    long start = System.currentTimeMillis();
+    List<RollingRestart.NodeReport> reports;
+    try {
+      reports =
+          restart.execute(
+              new RollingRestart.Listener() {
+                @Override
+                public void onStep(int step, List<GSNode> nodes) {
+                  StringBuilder names = new StringBuilder();
+                  for (GSNode node : nodes) {
+                    names.append((names.length() == 0) ? "" : ", ");
+                    names.append(((ShellNode) node).getName());
+                  }
+                  println(getMessage("message.rollingRestartStep", step, names));
+                }
+
+                @Override
+                public void onPhase(GSNode node, RollingRestart.Phase phase) {
+                  if (node == null) {
+                    println(getMessage("message.rollingRestartSync"));
+                  } else {
+                    String name = ((ShellNode) node).getName();
+                    println(getMessage("message.rollingRestartPhase", name, phase));
+                  }
+                }
+              });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.interrupted"), e);
+    }
+
+    // ノードごとの各フェーズの所要時間を表示する
+    println("");
+    println(
+        String.format(
+            "%-9s %4s %8s %8s %8s %8s %8s %8s  %s",
+            "Node", "Step", "Leave", "Stop", "Start", "Join", "Sync", "Total", "Result"));
+    int restarted = 0;
+    for (RollingRestart.NodeReport report : reports) {
+      println(
+          String.format(
+              "%-9s %4d %8s %8s %8s %8s %8s %8d  %s",
+              ((ShellNode) report.getNode()).getName(),
+              report.getStep(),
+              formatMillis(report.getMillis(RollingRestart.Phase.LEAVE)),
+              formatMillis(report.getMillis(RollingRestart.Phase.STOP)),
+              formatMillis(report.getMillis(RollingRestart.Phase.START)),
+              formatMillis(report.getMillis(RollingRestart.Phase.JOIN)),
+              formatMillis(report.getMillis(RollingRestart.Phase.SYNC)),
+              report.getTotalMillis(),
+              report.isSucceeded() ? "OK" : report.getError()));
+      if (report.isSucceeded()) {
+        restarted++;
+      }
+    }
+    println("");
+
+    int nodeCount = cluster.getNodes().size();
+    if (restarted < nodeCount) {
+      throw new ShellException(
+          getMessage("error.rollingRestartFailed", nodeCount - restarted, restarted));
+    }
+    println(
+        getMessage("message.rollingRestarted", nodeCount, System.currentTimeMillis() - start));
+  }
+
+  private static String formatMillis(long millis) {
+    return (millis < 0) ? "-" : String.valueOf(millis);
+  }
+
+  /**
+   * Get the number of the replicas of each partition kept during rollingrestart.
+   *
+   * @return the value of the hidden variable, or 1 if there is no valid value
+   */
+  private int getRollingMinReplicas() {
+    try {
+      int value =
+          Integer.parseInt(
+              (String) getContext().getAttribute(GridStoreShell.NAME_ROLLING_MIN_REPLICAS));
+      if (value >= 0) {
+        return value;
+      }
+    } catch (Exception e) {
+      // Do nothing
+    }
+    return 1;
+  }
+
   /**
    * The main method for sub-command {@code stat}.<br>
    * Display the node configuration data. Need to run with administrator user.
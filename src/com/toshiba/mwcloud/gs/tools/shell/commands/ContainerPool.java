@@ -0,0 +1,99 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+import com.toshiba.mwcloud.gs.Container;
+import com.toshiba.mwcloud.gs.GSException;
+import com.toshiba.mwcloud.gs.GridStore;
+import com.toshiba.mwcloud.gs.Row;
+
+/**
+ * Size-bounded LRU pool of the open {@link Container} handles of a connection.
+ *
+ * <p>The handles are keyed by the container name, which is case-insensitive. A handle is closed
+ * when it is evicted or released. The handles are used in the auto commit mode, and must not be
+ * closed by the users.
+ */
+class ContainerPool {
+
+  private final LinkedHashMap<String, Container<Object, Row>> handles =
+      new LinkedHashMap<String, Container<Object, Row>>(16, 0.75f, true);
+
+  /**
+   * Get the handle of a container, opening it if it is not pooled.
+   *
+   * @param store the store
+   * @param name the container name
+   * @param maxHandles maximum number of pooled handles
+   * @return the handle, or {@code null} if the container does not exist
+   * @throws GSException if the container cannot be opened
+   * @see GridStore#getContainer
+   */
+  synchronized Container<Object, Row> get(GridStore store, String name, int maxHandles)
+      throws GSException {
+    String key = name.toLowerCase(Locale.ROOT);
+    Container<Object, Row> container = handles.get(key);
+    if (container != null) {
+      return container;
+    }
+    container = store.getContainer(name);
+    if (container == null) {
+      return null;
+    }
+    handles.put(key, container);
+    List<Container<Object, Row>> evicted = new ArrayList<Container<Object, Row>>();
+    Iterator<Container<Object, Row>> it = handles.values().iterator();
+    while (handles.size() > maxHandles && it.hasNext()) {
+      evicted.add(it.next());
+      it.remove();
+    }
+    closeAll(evicted);
+    return container;
+  }
+
+  /**
+   * Close and remove the handle of a container.
+   *
+   * @param name the container name, or {@code null} to release all of the handles
+   */
+  synchronized void release(String name) {
+    if (name == null) {
+      List<Container<Object, Row>> all = new ArrayList<Container<Object, Row>>(handles.values());
+      handles.clear();
+      closeAll(all);
+    } else {
+      Container<Object, Row> container = handles.remove(name.toLowerCase(Locale.ROOT));
+      if (container != null) {
+        closeAll(Collections.singletonList(container));
+      }
+    }
+  }
+
+  private static void closeAll(List<Container<Object, Row>> containers) {
+    for (Container<Object, Row> container : containers) {
+      try {
+        container.close();
+      } catch (GSException e) {
+        // Do nothing
+      }
+    }
+  }
+}
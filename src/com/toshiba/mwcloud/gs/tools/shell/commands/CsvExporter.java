@@ -0,0 +1,271 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the lines of a CSV file.
+ *
+ * <p>Lines are collected into batches. Each batch is formatted, CSV-encoded and converted to bytes
+ * by a worker thread, and the encoded batches are written to a channel in the order of the lines.
+ * The output is the same as {@code CSVWriter} with the default settings: every value is quoted, a
+ * quote is escaped by another quote, {@code null} is written as an empty unquoted value and lines
+ * end with "\n".
+ */
+class CsvExporter implements Closeable {
+  private static final char SEPARATOR = ',';
+  private static final char QUOTE = '"';
+  private static final String LINE_END = "\n";
+
+  private final WritableByteChannel channel;
+  private final Charset charset;
+  private final int batchRows;
+  private final int maxPendingBatches;
+  private final ExecutorService workers;
+  private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<Future<ByteBuffer>>();
+
+  private List<Callable<String[]>> batch;
+  private long lineCount;
+  private long byteCount;
+  private final long startNanos;
+  private boolean closed;
+
+  /**
+   * Constructor for {@code CsvExporter}.
+   *
+   * @param channel the channel to write, which is closed by this exporter
+   * @param charset encoding of the file
+   * @param threads number of worker threads, if 1 or less the lines are encoded by the calling
+   *     thread
+   * @param batchRows number of lines in a batch
+   */
+  CsvExporter(WritableByteChannel channel, Charset charset, int threads, int batchRows) {
+    this.channel = channel;
+    this.charset = charset;
+    this.batchRows = Math.max(1, batchRows);
+    if (threads > 1) {
+      final AtomicInteger threadNo = new AtomicInteger();
+      this.workers =
+          Executors.newFixedThreadPool(
+              threads,
+              r -> {
+                Thread t = new Thread(r, "gs_sh-csv-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+              });
+      this.maxPendingBatches = threads * 2;
+    } else {
+      this.workers = null;
+      this.maxPendingBatches = 0;
+    }
+    this.batch = new ArrayList<Callable<String[]>>(this.batchRows);
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Write a line.
+   *
+   * @param line values of the line, the array is copied
+   * @throws IOException if an I/O error occurs
+   */
+  void writeLine(String... line) throws IOException {
+    final String[] copy = line.clone();
+    writeLine(() -> copy);
+  }
+
+  /**
+   * Write a line which is formatted later by a worker thread.
+   *
+   * @param formatter returns the values of the line
+   * @throws IOException if an I/O error occurs
+   */
+  void writeLine(Callable<String[]> formatter) throws IOException {
+    batch.add(formatter);
+    lineCount++;
+    if (batch.size() >= batchRows) {
+      submitBatch();
+    }
+  }
+
+  /**
+   * Get the number of lines written.
+   *
+   * @return number of lines
+   */
+  long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Get the number of bytes written to the channel, which is the size before compression.
+   *
+   * @return number of bytes
+   */
+  long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Get the elapsed time since this exporter was created.
+   *
+   * @return elapsed time in nanoseconds
+   */
+  long getElapsedNanos() {
+    return System.nanoTime() - startNanos;
+  }
+
+  /**
+   * Write the remaining lines and close the file.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      submitBatch();
+      while (!pending.isEmpty()) {
+        writeBuffer(await(pending.removeFirst()));
+      }
+    } finally {
+      abort();
+    }
+  }
+
+  /** Discard the lines which are not written yet, and close the file. */
+  void abort() {
+    closed = true;
+    for (Future<ByteBuffer> f : pending) {
+      f.cancel(true);
+    }
+    pending.clear();
+    if (workers != null) {
+      workers.shutdownNow();
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Do nothing
+    }
+  }
+
+  private void submitBatch() throws IOException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final List<Callable<String[]>> lines = batch;
+    batch = new ArrayList<Callable<String[]>>(batchRows);
+    if (workers == null) {
+      try {
+        writeBuffer(encode(lines));
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+      return;
+    }
+    pending.addLast(workers.submit(() -> encode(lines)));
+    // Write the finished batches in order, and wait for the oldest one when too many are pending
+    while (pending.size() > maxPendingBatches
+        || (!pending.isEmpty() && pending.peekFirst().isDone())) {
+      writeBuffer(await(pending.removeFirst()));
+    }
+  }
+
+  private ByteBuffer encode(List<Callable<String[]>> lines) throws Exception {
+    StringBuilder builder = new StringBuilder(lines.size() * 64);
+    for (Callable<String[]> formatter : lines) {
+      appendLine(builder, formatter.call());
+    }
+    return charset.encode(CharBuffer.wrap(builder));
+  }
+
+  private void writeBuffer(ByteBuffer buffer) throws IOException {
+    byteCount += buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static ByteBuffer await(Future<ByteBuffer> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Append a CSV line.
+   *
+   * @param builder the destination
+   * @param line values of the line
+   */
+  static void appendLine(StringBuilder builder, String[] line) {
+    for (int i = 0; i < line.length; ++i) {
+      if (i != 0) {
+        builder.append(SEPARATOR);
+      }
+      String value = line[i];
+      if (value == null) {
+        continue;
+      }
+      builder.append(QUOTE);
+      if (value.indexOf(QUOTE) < 0) {
+        builder.append(value);
+      } else {
+        for (int k = 0; k < value.length(); ++k) {
+          char c = value.charAt(k);
+          if (c == QUOTE) {
+            builder.append(QUOTE);
+          }
+          builder.append(c);
+        }
+      }
+      builder.append(QUOTE);
+    }
+    builder.append(LINE_END);
+  }
+}
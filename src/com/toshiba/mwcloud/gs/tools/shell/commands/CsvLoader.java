@@ -0,0 +1,382 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.toshiba.mwcloud.gs.ContainerInfo;
+import com.toshiba.mwcloud.gs.GSException;
+import com.toshiba.mwcloud.gs.GSTimeoutException;
+import com.toshiba.mwcloud.gs.GridStore;
+import com.toshiba.mwcloud.gs.Row;
+
+/**
+ * Puts the rows read from CSV files by worker threads.
+ *
+ * <p>The rows are grouped by partition, and the rows of a partition are always put by the same
+ * worker, so that the batches of a partition are put in order while the partitions are put in
+ * parallel. Each worker has its own {@link GridStore}. The number of the batches which are
+ * submitted but not put yet is limited, so that the memory is bounded even if the workers are
+ * slower than the reader. A batch which failed with a recoverable error or a timeout is retried
+ * if all of its containers have a row key, because a retried put overwrites the rows which have
+ * already been put only in that case.
+ */
+class CsvLoader implements Closeable {
+
+  /** Creates a row to be put. */
+  interface RowFactory {
+
+    /**
+     * Create a row.
+     *
+     * @param store the store of the worker
+     * @param info the schema of the container
+     * @param values the values of the columns in the order of the schema, {@code null} for NULL
+     * @param location the file name and the line number of the row, for error messages
+     * @return the row
+     * @throws GSException if the row cannot be created
+     */
+    Row create(GridStore store, ContainerInfo info, String[] values, String location)
+        throws GSException;
+  }
+
+  private static final int MAX_RETRIES = 3;
+  private static final long RETRY_INTERVAL_MS = 1000;
+
+  private final Callable<GridStore> storeSource;
+  private final RowFactory rowFactory;
+  private final int batchRows;
+  private final ExecutorService[] workers;
+  private final GridStore[] stores;
+  private final Semaphore inFlight;
+  private final Map<Integer, List<PendingRow>> batches = new HashMap<Integer, List<PendingRow>>();
+  private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+  private final AtomicLong putCount = new AtomicLong();
+  private int bufferedRows;
+  private boolean closed;
+
+  /**
+   * Constructor for {@code CsvLoader}.
+   *
+   * @param storeSource opens the store of a worker, called by the worker
+   * @param rowFactory creates the rows, called by the workers
+   * @param threads number of worker threads
+   * @param batchRows number of rows put by a request
+   */
+  CsvLoader(Callable<GridStore> storeSource, RowFactory rowFactory, int threads, int batchRows) {
+    this.storeSource = storeSource;
+    this.rowFactory = rowFactory;
+    this.batchRows = Math.max(1, batchRows);
+    int count = Math.max(1, threads);
+    this.workers = new ExecutorService[count];
+    this.stores = new GridStore[count];
+    for (int i = 0; i < count; i++) {
+      final String name = "gs_sh-load-" + (i + 1);
+      workers[i] =
+          Executors.newSingleThreadExecutor(
+              r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+              });
+    }
+    this.inFlight = new Semaphore(count * 2);
+  }
+
+  /**
+   * Add a row to be put.
+   *
+   * @param container the container name
+   * @param info the schema of the container
+   * @param partition the partition of the container
+   * @param values the values of the columns in the order of the schema, {@code null} for NULL
+   * @param location the file name and the line number of the row
+   * @throws GSException if a previous batch failed with a {@code GSException}
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  void add(String container, ContainerInfo info, int partition, String[] values, String location)
+      throws GSException, InterruptedException {
+    checkFailure();
+    List<PendingRow> batch = batches.get(partition);
+    if (batch == null) {
+      batch = new ArrayList<PendingRow>();
+      batches.put(partition, batch);
+    }
+    batch.add(new PendingRow(container, info, values, location));
+    bufferedRows++;
+    if (batch.size() >= batchRows) {
+      submit(partition, batches.remove(partition));
+    } else if (bufferedRows >= batchRows * workers.length) {
+      // Too many rows of small partitions are buffered, put the largest batch
+      int largest = -1;
+      for (Map.Entry<Integer, List<PendingRow>> e : batches.entrySet()) {
+        if (largest < 0 || e.getValue().size() > batches.get(largest).size()) {
+          largest = e.getKey();
+        }
+      }
+      submit(largest, batches.remove(largest));
+    }
+  }
+
+  /**
+   * Put the remaining rows and wait for the workers.
+   *
+   * @throws GSException if a batch failed with a {@code GSException}
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  void finish() throws GSException, InterruptedException {
+    Iterator<Map.Entry<Integer, List<PendingRow>>> it = batches.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Integer, List<PendingRow>> e = it.next();
+      it.remove();
+      checkFailure();
+      submit(e.getKey(), e.getValue());
+    }
+    inFlight.acquire(workers.length * 2);
+    inFlight.release(workers.length * 2);
+    checkFailure();
+  }
+
+  /**
+   * Get the number of the rows which have been put.
+   *
+   * @return number of rows
+   */
+  long getPutCount() {
+    return putCount.get();
+  }
+
+  /** Stop the workers and close their stores. The rows which are not put yet are discarded. */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    failure.compareAndSet(null, new IOException("closed"));
+    for (int i = 0; i < workers.length; i++) {
+      final int workerNo = i;
+      workers[i].execute(
+          () -> {
+            if (stores[workerNo] != null) {
+              try {
+                stores[workerNo].close();
+              } catch (GSException e) {
+                // Do nothing
+              }
+              stores[workerNo] = null;
+            }
+          });
+      workers[i].shutdown();
+    }
+    for (ExecutorService worker : workers) {
+      try {
+        worker.awaitTermination(RETRY_INTERVAL_MS * MAX_RETRIES, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void checkFailure() throws GSException {
+    Exception e = failure.get();
+    if (e instanceof GSException) {
+      throw (GSException) e;
+    } else if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e != null) {
+      throw new GSException(e.getMessage(), e);
+    }
+  }
+
+  private void submit(int partition, final List<PendingRow> batch) throws InterruptedException {
+    bufferedRows -= batch.size();
+    inFlight.acquire();
+    final int workerNo = Math.floorMod(partition, workers.length);
+    workers[workerNo].execute(
+        () -> {
+          try {
+            if (failure.get() == null) {
+              put(workerNo, batch);
+            }
+          } catch (Exception e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            inFlight.release();
+          }
+        });
+  }
+
+  @SuppressWarnings("deprecation")
+  private void put(int workerNo, List<PendingRow> batch) throws Exception {
+    if (stores[workerNo] == null) {
+      stores[workerNo] = storeSource.call();
+    }
+    GridStore store = stores[workerNo];
+    Map<String, List<Row>> rows = new HashMap<String, List<Row>>();
+    // multiPut is not atomic; a retry after a partial success duplicates the rows without key
+    boolean retryable = true;
+    for (PendingRow pending : batch) {
+      List<Row> containerRows = rows.get(pending.container);
+      if (containerRows == null) {
+        containerRows = new ArrayList<Row>();
+        rows.put(pending.container, containerRows);
+      }
+      containerRows.add(rowFactory.create(store, pending.info, pending.values, pending.location));
+      retryable &= !pending.info.getRowKeyColumnList().isEmpty();
+    }
+    for (int retry = 0; ; retry++) {
+      try {
+        store.multiPut(rows);
+        break;
+      } catch (com.toshiba.mwcloud.gs.GSRecoverableException | GSTimeoutException e) {
+        if (!retryable || retry >= MAX_RETRIES) {
+          throw e;
+        }
+        Thread.sleep(RETRY_INTERVAL_MS << retry);
+      }
+    }
+    putCount.addAndGet(batch.size());
+  }
+
+  private static class PendingRow {
+    final String container;
+    final ContainerInfo info;
+    final String[] values;
+    final String location;
+
+    PendingRow(String container, ContainerInfo info, String[] values, String location) {
+      this.container = container;
+      this.info = info;
+      this.values = values;
+      this.location = location;
+    }
+  }
+
+  /**
+   * Reads the records of a CSV file in the format written by {@link CsvExporter}.
+   *
+   * <p>A value is {@code null} if it is empty and not quoted, so that NULL and an empty string
+   * can be distinguished. A quoted value can contain separators, doubled quotes and line breaks.
+   */
+  static class RecordReader {
+    private final BufferedReader in;
+    private long line;
+    private long recordLine;
+
+    /**
+     * Constructor for {@code RecordReader}.
+     *
+     * @param in the reader, which is not closed by this reader
+     */
+    RecordReader(BufferedReader in) {
+      this.in = in;
+    }
+
+    /**
+     * Get the line number where the last record started.
+     *
+     * @return the line number, starting from 1
+     */
+    long getLineNumber() {
+      return recordLine;
+    }
+
+    /**
+     * Read a record. Empty lines are skipped.
+     *
+     * @return the values, or {@code null} at the end of the file
+     * @throws IOException if an I/O error occurs or a quoted value is not terminated
+     */
+    String[] read() throws IOException {
+      int c = in.read();
+      while (c == '\r' || c == '\n') {
+        if (c == '\n') {
+          line++;
+        }
+        c = in.read();
+      }
+      if (c < 0) {
+        return null;
+      }
+      recordLine = line + 1;
+
+      List<String> values = new ArrayList<String>();
+      StringBuilder value = new StringBuilder();
+      boolean quoted = false;
+      while (true) {
+        if (c == ',') {
+          values.add(toValue(value, quoted));
+          value.setLength(0);
+          quoted = false;
+        } else if (c < 0 || c == '\n' || c == '\r') {
+          values.add(toValue(value, quoted));
+          if (c == '\r') {
+            in.mark(1);
+            if (in.read() != '\n') {
+              in.reset();
+            }
+          }
+          if (c >= 0) {
+            line++;
+          }
+          return values.toArray(new String[values.size()]);
+        } else if (c == '"' && !quoted && value.length() == 0) {
+          quoted = true;
+          readQuoted(value);
+        } else {
+          value.append((char) c);
+        }
+        c = in.read();
+      }
+    }
+
+    private void readQuoted(StringBuilder value) throws IOException {
+      while (true) {
+        int c = in.read();
+        if (c < 0) {
+          throw new IOException("Unterminated quoted value at line " + recordLine);
+        } else if (c == '"') {
+          in.mark(1);
+          if (in.read() != '"') {
+            in.reset();
+            return;
+          }
+        } else if (c == '\n') {
+          line++;
+        }
+        value.append((char) c);
+      }
+    }
+
+    private static String toValue(StringBuilder value, boolean quoted) {
+      return (value.length() == 0 && !quoted) ? null : value.toString();
+    }
+  }
+}
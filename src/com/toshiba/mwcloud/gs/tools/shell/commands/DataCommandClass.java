@@ -19,7 +19,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.opencsv.CSVWriter;
 import com.toshiba.mwcloud.gs.AggregationResult;
 import com.toshiba.mwcloud.gs.ColumnInfo;
 import com.toshiba.mwcloud.gs.CompressionMethod;
@@ -53,6 +52,8 @@ import com.toshiba.mwcloud.gs.tools.common.GSNode;
 import com.toshiba.mwcloud.gs.tools.common.GridDBJdbcUtils;
 import com.toshiba.mwcloud.gs.tools.common.GridStoreCommandException;
 import com.toshiba.mwcloud.gs.tools.common.GridStoreCommandUtils;
+import com.toshiba.mwcloud.gs.tools.common.data.BinaryRowReader;
+import com.toshiba.mwcloud.gs.tools.common.data.BinaryRowWriter;
 import com.toshiba.mwcloud.gs.tools.common.data.ConnectionInfo;
 import com.toshiba.mwcloud.gs.tools.common.data.EventInfo;
 import com.toshiba.mwcloud.gs.tools.common.data.ExpirationInfo;
@@ -68,48 +69,61 @@ import com.toshiba.mwcloud.gs.tools.shell.ShellCluster;
 import com.toshiba.mwcloud.gs.tools.shell.ShellException;
 import com.toshiba.mwcloud.gs.tools.shell.annotation.GSCommand;
 import com.toshiba.mwcloud.gs.tools.shell.annotation.GSNullable;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.Closeable;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.text.ParseException;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.script.Bindings;
+import java.util.zip.GZIPInputStream;
 import javax.script.ScriptContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -122,6 +136,63 @@ public class DataCommandClass extends AbstractCommandClass {
   private static final int FETCH_SIZE = 1000;
   private static final Charset CSV_ENCODING = Charset.forName("UTF-8");
 
+  /** Upper limit of the default number of worker threads which format the lines of an export. */
+  private static final int EXPORT_THREADS_DEFAULT = 4;
+
+  /** Default maximum number of results kept by the result cache. */
+  private static final int RESULT_CACHE_SIZE_DEFAULT = 16;
+
+  /** Default time to live (sec) of the results kept by the result cache. */
+  private static final int RESULT_CACHE_TTL_DEFAULT = 60;
+
+  /** Default maximum number of rows of a result kept by the result cache. */
+  private static final int RESULT_CACHE_MAX_ROWS_DEFAULT = 10000;
+
+  /** Default maximum number of containers whose schemas are kept by the schema cache. */
+  private static final int SCHEMA_CACHE_SIZE_DEFAULT = 256;
+
+  /** Default time to live (sec) of the schemas kept by the schema cache. */
+  private static final int SCHEMA_CACHE_TTL_DEFAULT = 60;
+
+  /** Default maximum number of open containers kept by the container pool. */
+  private static final int CONTAINER_POOL_SIZE_DEFAULT = 16;
+
+  /** Default maximum number of idle auxiliary SQL connections kept open. */
+  private static final int SQL_POOL_SIZE_DEFAULT = 2;
+
+  /** Default number of statements executed at the same time by sqlbatch. */
+  private static final int SQL_BATCH_THREADS_DEFAULT = 4;
+
+  /** Maximum length of a statement displayed in the report of sqlbatch. */
+  private static final int SQL_BATCH_DISPLAY_LENGTH = 60;
+
+  /** Number of the containers whose queries are executed by a fetchAll call of tqlmulti. */
+  private static final int TQL_MULTI_BATCH_SIZE = 100;
+
+  /** Name of the column of tqlmulti results which holds the container name. */
+  private static final String TQL_MULTI_CONTAINER_COLUMN = "ContainerName";
+
+  /** Upper limit of the default number of worker threads which put the rows of loadcsv. */
+  private static final int LOAD_THREADS_DEFAULT = 4;
+
+  /** Default number of rows sent by a multiPut call of putrows. */
+  private static final int PUTROWS_BATCH_SIZE_DEFAULT = 1000;
+
+  /** Default number of rows removed by a transaction of removerows. */
+  private static final int REMOVEROWS_BATCH_SIZE_DEFAULT = 1000;
+
+  /** Maximum number of threads which scan the partitions for the container list. */
+  private static final int SHOW_CONTAINER_THREADS = 8;
+
+  /** Default maximum number of prepared statements kept for a connection. */
+  private static final int SQL_PREPARE_CACHE_SIZE_DEFAULT = 32;
+
+  /** Number of queries whose timing is kept for {@code showtiming}. */
+  private static final int QUERY_TIMING_HISTORY = 100;
+
+  /** Default buffer size of the files written by sub-commands. */
+  private static final int OUTPUT_BUFFER_SIZE_DEFAULT = 64 * 1024;
+
   private static final String BLOB_SHOW_STRING = "(BLOB)";
 
   private static final String GS_NULL_STDOUT_DEFAULT = "(NULL)";
@@ -150,6 +221,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
   // No SQL
   private GridStore gridStore;
+  private Properties m_gsProp;
   private String queryContainerName;
   private Container<Object, Row> queryContainer;
   private Query<?> queryObj;
@@ -160,15 +232,36 @@ public class DataCommandClass extends AbstractCommandClass {
   // New SQL (JDBC)
   private Connection m_jdbcCon;
   private Statement m_jdbcStmt;
-  private ResultSet m_jdbcRS;
+  private SqlRows m_jdbcRS;
   private String m_jdbcSQL = "";
+  private String m_jdbcUrl;
+  private Properties m_jdbcProp;
+  private SqlConnectionPool m_sqlPool;
+  private final PreparedSqlCache m_preparedSql = new PreparedSqlCache();
+  private AsyncSqlCounter m_sqlCounter;
+  private boolean m_sqlCountByFetch;
+  private long m_sqlFetchedCount;
+
+  /** Timing of the current query, {@code null} if the timing is disabled. */
+  private QueryTiming m_queryTiming;
+  private final ArrayDeque<QueryTiming> m_queryTimings = new ArrayDeque<QueryTiming>();
+
+  private final QueryResultCache m_resultCache = new QueryResultCache();
+
+  private final SchemaCache m_schemaCache = new SchemaCache();
+
+  private final ContainerPool m_containerPool = new ContainerPool();
 
   /* Improve CLI result format */
   private static final Integer MAX_COLUMN_WIDTH_DEFAULT = 31;
   private static final Integer MIN_COLUMN_WIDTH_LIMIT = 1;
   private static final Integer MAX_COLUMN_WIDTH_LIMIT = 1_000_000;
   private Integer  m_resultMaxWidth = MAX_COLUMN_WIDTH_DEFAULT;
-  private enum ResultFormat { TABLE, CSV }
+  private static final Integer RESULT_SAMPLE_ROWS_DEFAULT = 100;
+  private static final Integer MIN_RESULT_SAMPLE_ROWS_LIMIT = 0;
+  private static final Integer MAX_RESULT_SAMPLE_ROWS_LIMIT = 100_000;
+  private Integer  m_resultSampleRows = RESULT_SAMPLE_ROWS_DEFAULT;
+  private enum ResultFormat { TABLE, CSV, STREAM }
   private ResultFormat m_resultFormat = ResultFormat.TABLE;
 
   private String m_dbName;
@@ -281,13 +374,19 @@ public class DataCommandClass extends AbstractCommandClass {
   }
 
   /**
-   * SQLでカウントクエリを実行するかを確認します.
+   * SQLの検索結果の件数の取得方法を返します.
    *
-   * @return true: する(デフォルト) / false: しない
+   * @return 件数の取得方法 (デフォルト: SYNC)
    */
-  private boolean isSqlCount() {
+  private GridStoreShell.SQL_COUNT_MODE getSqlCountMode() {
     Object object = getContext().getAttribute(GridStoreShell.SQL_COUNT);
-    return object != null ? (Boolean) object : true;
+    if (object instanceof GridStoreShell.SQL_COUNT_MODE) {
+      return (GridStoreShell.SQL_COUNT_MODE) object;
+    } else if (object instanceof Boolean) {
+      return ((Boolean) object) ? GridStoreShell.SQL_COUNT_MODE.SYNC
+          : GridStoreShell.SQL_COUNT_MODE.NONE;
+    }
+    return GridStoreShell.SQL_COUNT_MODE.SYNC;
   }
 
   /**
@@ -399,6 +498,7 @@ public class DataCommandClass extends AbstractCommandClass {
     }
 
     tqlClosePrivate();
+    m_containerPool.release(null);
     closeQuitely(gridStore);
     gridStore = null;
 
@@ -458,6 +558,8 @@ public class DataCommandClass extends AbstractCommandClass {
         container.close();
       }
       gridStore = store;
+      m_gsProp = prop;
+      m_schemaCache.invalidate(null);
       m_cluster = cluster;
       m_connectedUser = userId;
 
@@ -551,6 +653,15 @@ public class DataCommandClass extends AbstractCommandClass {
       setSslModeProperty(prop);
 
       m_jdbcCon = DriverManager.getConnection(jdbcUrl, prop);
+      m_preparedSql.close();
+      closeSqlPool();
+      m_jdbcUrl = jdbcUrl;
+      m_jdbcProp = prop;
+      m_sqlPool =
+          new SqlConnectionPool(
+              jdbcUrl,
+              prop,
+              getPositiveIntAttribute(GridStoreShell.NAME_SQL_POOL_SIZE, SQL_POOL_SIZE_DEFAULT));
 
       m_connectedUser = userId;
 
@@ -646,8 +757,11 @@ public class DataCommandClass extends AbstractCommandClass {
     queryObjClose();
 
     // NoSQL
+    m_containerPool.release(null);
     closeQuitely(gridStore);
     gridStore = null;
+    m_gsProp = null;
+    m_schemaCache.invalidate(null);
     m_connectTimeZoneVal = null;
 
     // New SQL
@@ -659,6 +773,12 @@ public class DataCommandClass extends AbstractCommandClass {
         // Do nothing
       }
     }
+    m_preparedSql.close();
+    closeSqlPool();
+    m_jdbcUrl = null;
+    m_jdbcProp = null;
+
+    m_resultCache.invalidate(null);
 
     m_dbName = null;
     getContext()
@@ -668,6 +788,8 @@ public class DataCommandClass extends AbstractCommandClass {
 
   /** TQLとSQLの検索オブジェクトをクローズします。 （接続は切断しません。). */
   private void queryObjClose() {
+    m_queryTiming = null;
+
     // TQL
     tqlClosePrivate();
 
@@ -691,6 +813,10 @@ public class DataCommandClass extends AbstractCommandClass {
 
   /** SQLの検索オブジェクトをクローズします. */
   private void sqlClosePrivate() {
+    // 実行中の件数取得はキャンセル
+    closeQuitely(m_sqlCounter);
+    m_sqlCounter = null;
+    m_sqlCountByFetch = false;
     try {
       if (m_jdbcRS != null) {
         m_jdbcRS.close();
@@ -1499,6 +1625,7 @@ public class DataCommandClass extends AbstractCommandClass {
       IndexType indexType,
       IndexType... additionalIndexType) {
     checkConnected();
+    invalidateSchemaCache(containerName);
 
     try {
       Container<Object, Row> container = gridStore.getContainer(containerName);
@@ -1528,6 +1655,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void createCompIndex(String containerName, String... columnNames) {
     checkConnected();
+    invalidateSchemaCache(containerName);
 
     try {
       Container<Object, Row> container = gridStore.getContainer(containerName);
@@ -1566,6 +1694,7 @@ public class DataCommandClass extends AbstractCommandClass {
       IndexType indexType,
       IndexType... additionalIndexType) {
     checkConnected();
+    invalidateSchemaCache(containerName);
 
     try {
       Container<Object, Row> container = gridStore.getContainer(containerName);
@@ -1595,6 +1724,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void dropCompIndex(String containerName, String... columnNames) {
     checkConnected();
+    invalidateSchemaCache(containerName);
 
     try {
       Container<Object, Row> container = gridStore.getContainer(containerName);
@@ -1636,6 +1766,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void createContainer(String metaFile, @GSNullable String containerName) {
     checkConnected();
+    invalidateResultCache(containerName);
 
     try {
       MetaContainerFileIO meta = new MetaContainerFileIO();
@@ -1688,6 +1819,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void createCollection(String containerName, String... args) {
     checkConnected();
+    invalidateResultCache(containerName);
 
     ToolContainerInfo conInfo = new ToolContainerInfo();
     conInfo.setName(containerName);
@@ -1721,6 +1853,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void createTimeSeries(String containerName, String compMethod, String... args) {
     checkConnected();
+    invalidateResultCache(containerName);
 
     ToolContainerInfo conInfo = new ToolContainerInfo();
     conInfo.setName(containerName);
@@ -1810,6 +1943,7 @@ public class DataCommandClass extends AbstractCommandClass {
   private void createContainer(ToolContainerInfo conInfo) {
 
     String createdName = conInfo.getContainerInfo().getName();
+    invalidateSchemaCache(createdName);
     try {
       ContainerInfo cInfo = gridStore.getContainerInfo(createdName);
       if (cInfo != null) {
@@ -1881,10 +2015,10 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand
   public void dropContainer(String containerName) {
     checkConnected();
+    invalidateResultCache(containerName);
 
     try {
-      ExtendedContainerInfo info =
-          ExperimentalTool.getExtendedContainerInfo(gridStore, containerName);
+      ExtendedContainerInfo info = getExtendedContainerInfo(containerName);
       if (info == null) {
         throw new ShellException(getMessage("error.containerNotFound", containerName));
       } else if (info.getAttribute() == ContainerAttribute.VIEW) {
@@ -1893,6 +2027,7 @@ public class DataCommandClass extends AbstractCommandClass {
         throw new ShellException(getMessage("error.notAllowedOnPartitioned", containerName));
       }
 
+      invalidateSchemaCache(containerName);
       gridStore.dropContainer(containerName);
 
     } catch (GSException e) {
@@ -1907,63 +2042,260 @@ public class DataCommandClass extends AbstractCommandClass {
     }
   }
 
-  private void showContainerList() throws GSException {
-    PartitionController partCont = null;
+  /**
+   * Display the list of the containers.
+   *
+   * <p>If the SQL connection exists, the containers are acquired from the metatable {@code
+   * #tables} by a query. Otherwise, or if the query failed, the partitions are scanned by {@link
+   * #SHOW_CONTAINER_THREADS} threads, and the containers of each partition are displayed in the
+   * order of the partitions as soon as they are acquired.
+   *
+   * @param namePattern the container name pattern with the wildcards {@code *} and {@code ?}, or
+   *     {@code null} to list all of the containers
+   * @throws GSException if the number of the partitions cannot be acquired
+   */
+  private void showContainerList(String namePattern) throws GSException {
+    println("Database : " + m_dbName);
+
+    println("Name                 Type        PartitionId");
+    println("---------------------------------------------");
+
+    // [0] is the number of the containers, [1] is the number of the errors
+    long[] counts = new long[2];
+    List<Integer> errorList = new ArrayList<Integer>();
+    boolean listed = false;
+    if (m_jdbcCon != null) {
+      try {
+        listContainersBySql(namePattern, counts);
+        listed = true;
+      } catch (SQLException e) {
+        Logger logger = LoggerFactory.getLogger(DataCommandClass.class);
+        logger.warn("Failed to list containers from " + ToolConstants.META_TABLES, e);
+      }
+    }
+    if (!listed) {
+      Pattern filter = (namePattern != null) ? toContainerNamePattern(namePattern) : null;
+      listContainersByPartition(filter, counts, errorList);
+    }
+
+    println("");
+    print(" Total Count: " + counts[0]);
+    if (counts[1] > 0) {
+      print("   error: " + counts[1]);
+    }
+    println("");
+
+    if (!errorList.isEmpty()) {
+      throw new ShellException(
+          getMessage("error.showContainerInPartition") + " partitionIdList=" + errorList);
+    }
+
+    println("");
+  }
+
+  private void listContainersBySql(String namePattern, long[] counts)
+      throws GSException, SQLException {
+    List<String[]> lines = m_sqlPool.execute(con -> readContainerList(con, namePattern));
+
+    PartitionController partCont = gridStore.getPartitionController();
     try {
-      println("Database : " + m_dbName);
+      List<ContainerListEntry> entries = new ArrayList<ContainerListEntry>(lines.size());
+      for (String[] line : lines) {
+        entries.add(
+            new ContainerListEntry(
+                line[0], line[1], partCont.getPartitionIndexOfContainer(line[0])));
+      }
+      Collections.sort(
+          entries,
+          Comparator.comparingInt((ContainerListEntry entry) -> entry.partitionId)
+              .thenComparing(entry -> entry.name));
+      for (ContainerListEntry entry : entries) {
+        printfln("%-20s %-11s %11d", entry.name, entry.type, entry.partitionId);
+        counts[0]++;
+      }
+    } finally {
+      closeQuitely(partCont);
+    }
+  }
 
-      println("Name                 Type        PartitionId");
-      println("---------------------------------------------");
+  /** A line of the container list of {@code showcontainer}. */
+  private static class ContainerListEntry {
+    final String name;
+    final String type;
+    final int partitionId;
 
-      int containerCount = 0;
-      int containerErrCount = 0;
-      partCont = gridStore.getPartitionController();
-      int partCount = partCont.getPartitionCount();
+    ContainerListEntry(String name, String type, int partitionId) {
+      this.name = name;
+      this.type = type;
+      this.partitionId = partitionId;
+    }
+  }
+
+  /**
+   * Read the names and the types of the containers from the metatable {@code #tables}.
+   *
+   * @param con the connection
+   * @param namePattern the container name pattern with the wildcards, or {@code null}
+   * @return the pairs of the container name and the container type
+   * @throws SQLException if the query fails
+   */
+  private static List<String[]> readContainerList(Connection con, String namePattern)
+      throws SQLException {
+    String sql = "SELECT TABLE_NAME, TABLE_OPTIONAL_TYPE FROM \"" + ToolConstants.META_TABLES + "\"";
+    if (namePattern != null) {
+      // Container names are case-insensitive
+      sql += " WHERE LOWER(TABLE_NAME) LIKE ? ESCAPE '\\'";
+    }
+    List<String[]> lines = new ArrayList<String[]>();
+    try (PreparedStatement stmt = con.prepareStatement(sql)) {
+      if (namePattern != null) {
+        stmt.setString(
+            1,
+            namePattern
+                .toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_")
+                .replace('*', '%')
+                .replace('?', '_'));
+      }
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          String type = rs.getString(2);
+          lines.add(
+              new String[] {
+                rs.getString(1),
+                ("TIMESERIES".equalsIgnoreCase(type)
+                        ? ContainerType.TIME_SERIES
+                        : ContainerType.COLLECTION)
+                    .toString()
+              });
+        }
+      }
+    }
+    return lines;
+  }
+
+  private void listContainersByPartition(Pattern filter, long[] counts, List<Integer> errorList)
+      throws GSException {
+    int partCount;
+    PartitionController partCont = gridStore.getPartitionController();
+    try {
+      partCount = partCont.getPartitionCount();
+    } finally {
+      closeQuitely(partCont);
+    }
 
-      List<Integer> errorList = null;
+    // GridStore is not thread-safe, each thread opens its own
+    final Properties prop = m_gsProp;
+    final List<GridStore> stores = Collections.synchronizedList(new ArrayList<GridStore>());
+    final ThreadLocal<GridStore> threadStore = new ThreadLocal<GridStore>();
+    final AtomicInteger threadNo = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(SHOW_CONTAINER_THREADS, partCount)),
+            r -> {
+              Thread t = new Thread(r, "gs_sh-showcontainer-" + threadNo.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    try {
+      List<Future<List<String[]>>> futures = new ArrayList<Future<List<String[]>>>(partCount);
       for (int partId = 0; partId < partCount; ++partId) {
-        try {
-          List<String> containerNames = partCont.getContainerNames(partId, 0L, null);
+        final int id = partId;
+        futures.add(
+            executor.submit(
+                () -> {
+                  GridStore store = threadStore.get();
+                  if (store == null) {
+                    store = GridStoreFactory.getInstance().getGridStore(prop);
+                    stores.add(store);
+                    threadStore.set(store);
+                  }
+                  return listPartitionContainers(store, id, filter);
+                }));
+      }
 
-          for (String name : containerNames) {
-            ContainerInfo contInfo = gridStore.getContainerInfo(name);
-            if (contInfo == null) {
-              printfln("%-20s  %s", name, "Error: Failed to get container info.");
-              containerErrCount++;
+      for (int partId = 0; partId < partCount; ++partId) {
+        try {
+          for (String[] entry : futures.get(partId).get()) {
+            if (entry[1] == null) {
+              printfln("%-20s  %s", entry[0], "Error: Failed to get container info.");
+              counts[1]++;
             } else {
-              printfln("%-20s %-11s %11d", name, contInfo.getType(), partId);
-              containerCount++;
+              printfln("%-20s %-11s %11d", entry[0], entry[1], partId);
+              counts[0]++;
             }
           }
-        } catch (GSException e) {
+        } catch (ExecutionException e) {
           Logger logger = LoggerFactory.getLogger(DataCommandClass.class);
           logger.error(
-              getMessage("error.showContainerInPartition") + " partitionID=[" + partId + "]", e);
-
-          if (errorList == null) {
-            errorList = new ArrayList<Integer>();
-          }
+              getMessage("error.showContainerInPartition") + " partitionID=[" + partId + "]",
+              e.getCause());
           errorList.add(partId);
         }
       }
-
-      println("");
-      print(" Total Count: " + containerCount);
-      if (containerErrCount > 0) {
-        print("   error: " + containerErrCount);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.showcontainer") + " : msg=[interrupted]", e);
+    } finally {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(1, java.util.concurrent.TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
-      println("");
-
-      if (errorList != null) {
-        throw new ShellException(
-            getMessage("error.showContainerInPartition") + " partitionIdList=" + errorList);
+      synchronized (stores) {
+        for (GridStore store : stores) {
+          closeQuitely(store);
+        }
       }
+    }
+  }
 
-      println("");
-
+  /**
+   * Get the containers of a partition, called by the threads.
+   *
+   * @param store the store of the thread
+   * @param partId the partition
+   * @param filter the container name pattern, or {@code null}
+   * @return the pairs of the container name and the container type sorted by container name. The
+   *     type is {@code null} if the container information cannot be acquired.
+   * @throws GSException if the containers cannot be acquired
+   */
+  private static List<String[]> listPartitionContainers(GridStore store, int partId, Pattern filter)
+      throws GSException {
+    List<String> containerNames;
+    PartitionController partCont = store.getPartitionController();
+    try {
+      containerNames = new ArrayList<String>(partCont.getContainerNames(partId, 0L, null));
     } finally {
-      closeQuitely(partCont);
+      partCont.close();
+    }
+    Collections.sort(containerNames);
+
+    List<String[]> entries = new ArrayList<String[]>();
+    for (String name : containerNames) {
+      if (filter != null && !filter.matcher(name).matches()) {
+        continue;
+      }
+      ContainerInfo contInfo = store.getContainerInfo(name);
+      entries.add(new String[] {name, (contInfo != null) ? contInfo.getType().toString() : null});
     }
+    return entries;
+  }
+
+  /**
+   * Convert a container name pattern with the wildcards {@code *} and {@code ?} to a regular
+   * expression. Container names are case-insensitive.
+   *
+   * @param spec the pattern
+   * @return the regular expression
+   */
+  private static Pattern toContainerNamePattern(String spec) {
+    return Pattern.compile(
+        Pattern.quote(spec).replace("*", "\\E.*\\Q").replace("?", "\\E.\\Q"),
+        Pattern.CASE_INSENSITIVE);
   }
 
   /**
@@ -1977,9 +2309,11 @@ public class DataCommandClass extends AbstractCommandClass {
   public void showContainer(@GSNullable String containerName) {
     checkConnected();
 
-    if (containerName == null) {
+    if (containerName == null
+        || containerName.indexOf('*') >= 0
+        || containerName.indexOf('?') >= 0) {
       try {
-        showContainerList();
+        showContainerList(containerName);
       } catch (Exception e) {
         throw new ShellException(
             getMessage("error.showcontainer") + " : msg=[" + e.getMessage() + "]", e);
@@ -1987,10 +2321,12 @@ public class DataCommandClass extends AbstractCommandClass {
 
     } else {
       try {
-        ExtendedContainerInfo extInfo =
-            ExperimentalTool.getExtendedContainerInfo(gridStore, containerName);
+        // Display the current schema, which may have been changed by other clients,
+        // and refresh the cached one
+        m_schemaCache.invalidate(containerName);
+        ExtendedContainerInfo extInfo = getExtendedContainerInfo(containerName);
         checkContainerExists(containerName, extInfo);
-        ContainerInfo contInfo = gridStore.getContainerInfo(containerName);
+        ContainerInfo contInfo = getContainerInfo(containerName);
         checkContainerExists(containerName, contInfo);
 
         // SINGLE/LARGE以外のコンテナは存在しない扱い
@@ -2077,9 +2413,9 @@ public class DataCommandClass extends AbstractCommandClass {
     ExpirationInfo expInfo = null;
 
     try {
-      props = GridDBJdbcUtils.getTablePartitionProperties(m_jdbcCon, name);
+      props = m_sqlPool.execute(con -> GridDBJdbcUtils.getTablePartitionProperties(con, name));
 
-      expInfo = GridDBJdbcUtils.getExpirationInfo(m_jdbcCon, name);
+      expInfo = m_sqlPool.execute(con -> GridDBJdbcUtils.getExpirationInfo(con, name));
 
     } catch (Exception e) {
       Logger logger = LoggerFactory.getLogger(DataCommandClass.class);
@@ -2393,8 +2729,26 @@ public class DataCommandClass extends AbstractCommandClass {
     }
 
     try {
+      String cacheKey = null;
+      boolean resultCache = isResultCache();
+      m_resultCache.setEnabled(resultCache);
+      if (resultCache && !query.trim().matches("(?is)^(explain|analyze)\\s.*")) {
+        cacheKey = QueryResultCache.key("TQL", m_dbName, containerName, query);
+        long start = System.currentTimeMillis();
+        QueryResultCache.Result cached = m_resultCache.get(cacheKey, getResultCacheTtlMillis());
+        if (cached != null) {
+          queryRowSet = ((QueryResultCache.TqlResult) cached).open();
+          queryContainerName = containerName;
+          lastTql = query.trim();
+          startQueryTiming("TQL", lastTql, start, 0);
+          println(getMessage("message.cachedHitCount", cached.size()));
+          return;
+        }
+      }
+
       queryContainer = gridStore.getContainer(containerName);
       checkContainerExists(containerName, queryContainer);
+      queryContainerName = containerName;
       queryObj = queryContainer.query(query, null);
       lastTql = query.trim(); // Preserve the last executed query using the 'tql' subcommand
 
@@ -2403,8 +2757,7 @@ public class DataCommandClass extends AbstractCommandClass {
           FetchOption.valueOf(GS_TQL_FETCH_MODE_DEFAULT);
 
       // V4.0 パーティショニングテーブルにはPARTIAL_EXECUTIONのみ指定可
-      ExtendedContainerInfo exInfo =
-          ExperimentalTool.getExtendedContainerInfo(gridStore, containerName);
+      ExtendedContainerInfo exInfo = getExtendedContainerInfo(containerName);
       if (exInfo != null && exInfo.getAttribute() == ContainerAttribute.LARGE) {
         fetchOption = FetchOption.PARTIAL_EXECUTION;
       }
@@ -2426,8 +2779,19 @@ public class DataCommandClass extends AbstractCommandClass {
       }
 
       long start = System.currentTimeMillis();
+      long startNanos = System.nanoTime();
       queryRowSet = queryObj.fetch();
+      if (cacheKey != null
+          && !fetchOption.equals(FetchOption.PARTIAL_EXECUTION)
+          && queryRowSet.size() <= getResultCacheMaxRows()) {
+        QueryResultCache.TqlResult result = new QueryResultCache.TqlResult(queryRowSet);
+        queryRowSet.close();
+        putResultCache(cacheKey, containerName, result);
+        queryRowSet = result.open();
+      }
+      long executeNanos = System.nanoTime() - startNanos;
       long end = System.currentTimeMillis();
+      startQueryTiming("TQL", lastTql, start, executeNanos);
 
       if (fetchOption.equals(FetchOption.PARTIAL_EXECUTION)) {
         println(getMessage("message.selectOnly", end - start));
@@ -2446,6 +2810,259 @@ public class DataCommandClass extends AbstractCommandClass {
     }
   }
 
+  /**
+   * The main method for sub-command {@code tqlmulti}.<br>
+   * Execute a search on several containers and retain the combined search results.
+   *
+   * <p>The queries are executed by {@link GridStore#fetchAll(List)} for every {@link
+   * #TQL_MULTI_BATCH_SIZE} containers. The name of the container is added to each row of the
+   * results as the first column.
+   *
+   * @param containerNames comma-separated container names, which can contain the wildcards
+   *     {@code *} and {@code ?}
+   * @param query query string
+   * @throws ShellException if it meets 1 of below conditions:
+   *     <ul>
+   *       <li>The connection is closed
+   *       <li>The query is EXPLAIN or ANALYZE
+   *       <li>The results of the containers have different columns
+   *       <li>Failed to execute query
+   *     </ul>
+   *
+   * @throws IllegalArgumentException error when a container without wildcards does not exist
+   */
+  @GSCommand(multiline = true)
+  public void tqlmulti(String containerNames, String query) {
+    checkConnected();
+
+    queryObjClose();
+
+    // expanding variable values within the query
+    if(query.contains("$")){
+      query = replaceVariable(query);
+    }
+    if (query.trim().matches("(?is)^(explain|analyze)\\s.*")) {
+      throw new ShellException(getMessage("error.tqlMultiExplain"));
+    }
+
+    try {
+      List<String> names = findContainerNames(containerNames);
+      lastTql = query.trim();
+
+      long start = System.currentTimeMillis();
+      long startNanos = System.nanoTime();
+      ContainerInfo schema = null;
+      List<Object> rows = new ArrayList<Object>();
+      for (int from = 0; from < names.size(); from += TQL_MULTI_BATCH_SIZE) {
+        List<String> batchNames =
+            names.subList(from, Math.min(from + TQL_MULTI_BATCH_SIZE, names.size()));
+        List<Container<Object, Row>> containers = new ArrayList<Container<Object, Row>>();
+        List<Query<?>> queries = new ArrayList<Query<?>>();
+        try {
+          for (String name : batchNames) {
+            Container<Object, Row> container = gridStore.getContainer(name);
+            checkContainerExists(name, container);
+            containers.add(container);
+            queries.add(container.query(query, null));
+          }
+          gridStore.fetchAll(queries);
+
+          for (int i = 0; i < queries.size(); i++) {
+            RowSet<?> rowSet = queries.get(i).getRowSet();
+            if (rowSet == null) {
+              continue;
+            }
+            try {
+              boolean first = true;
+              while (rowSet.hasNext()) {
+                Object obj = rowSet.next();
+                if (first) {
+                  ContainerInfo resultSchema = toTqlMultiSchema(rowSet, obj);
+                  if (schema == null) {
+                    schema = resultSchema;
+                  } else if (!isSameColumns(schema, resultSchema)) {
+                    throw new ShellException(
+                        getMessage("error.tqlMultiSchema", batchNames.get(i)));
+                  }
+                  first = false;
+                }
+                rows.add(toTqlMultiRow(schema, batchNames.get(i), obj));
+              }
+            } finally {
+              closeQuitely(rowSet);
+            }
+          }
+        } finally {
+          for (Query<?> q : queries) {
+            closeQuitely(q);
+          }
+          for (Container<Object, Row> container : containers) {
+            closeQuitely(container);
+          }
+        }
+      }
+      if (schema == null) {
+        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+        columns.add(new ColumnInfo(TQL_MULTI_CONTAINER_COLUMN, GSType.STRING));
+        schema = new ContainerInfo(null, ContainerType.COLLECTION, columns, false);
+      }
+      queryRowSet = new QueryResultCache.TqlResult(schema, rows).open();
+      long executeNanos = System.nanoTime() - startNanos;
+      long end = System.currentTimeMillis();
+      startQueryTiming("TQL", lastTql, start, executeNanos);
+
+      println(getMessage("message.hitCount", rows.size(), end - start));
+
+    } catch (GSException e) {
+      queryObjClose();
+      throw new ShellException(getMessage("error.tql") + " : msg=[" + e.getMessage() + "]", e);
+
+    } catch (IllegalArgumentException | ShellException e) {
+      queryObjClose();
+      throw e;
+    }
+  }
+
+  /**
+   * Get the names of the containers specified to {@code tqlmulti}.
+   *
+   * @param containerNames comma-separated container names, which can contain the wildcards
+   *     {@code *} and {@code ?}
+   * @return the container names without duplicates, in the specified order; the names matched by
+   *     a wildcard are sorted
+   * @throws GSException if the container names cannot be listed
+   */
+  private List<String> findContainerNames(String containerNames) throws GSException {
+    Set<String> names = new LinkedHashSet<String>();
+    List<String> allNames = null;
+    for (String spec : containerNames.split(",")) {
+      spec = spec.trim();
+      if (spec.isEmpty()) {
+        continue;
+      }
+      if (spec.indexOf('*') < 0 && spec.indexOf('?') < 0) {
+        names.add(spec);
+        continue;
+      }
+      if (allNames == null) {
+        allNames = new ArrayList<String>();
+        PartitionController partCont = gridStore.getPartitionController();
+        try {
+          int partCount = partCont.getPartitionCount();
+          for (int partId = 0; partId < partCount; ++partId) {
+            allNames.addAll(partCont.getContainerNames(partId, 0L, null));
+          }
+        } finally {
+          closeQuitely(partCont);
+        }
+        Collections.sort(allNames);
+      }
+      Pattern pattern = toContainerNamePattern(spec);
+      for (String name : allNames) {
+        if (pattern.matcher(name).matches()) {
+          names.add(name);
+        }
+      }
+    }
+    return new ArrayList<String>(names);
+  }
+
+  /**
+   * Get the schema of the {@code tqlmulti} results for a result of a container, which has the
+   * container name column before the columns of the result.
+   *
+   * @param rowSet the result of a container
+   * @param obj the first row of the result, or the result of an aggregation
+   * @return the schema
+   * @throws GSException if the schema cannot be acquired
+   */
+  private ContainerInfo toTqlMultiSchema(RowSet<?> rowSet, Object obj) throws GSException {
+    List<ColumnInfo> resultColumns = new ArrayList<ColumnInfo>();
+    if (obj instanceof AggregationResult) {
+      // The column name is the same as the one displayed by get
+      if (((AggregationResult) obj).getDouble() != null) {
+        resultColumns.add(new ColumnInfo("Result", GSType.DOUBLE));
+      } else {
+        // Keep the precision of the aggregated column, as get does
+        resultColumns.add(
+            new ColumnInfo.Builder()
+                .setName("Result")
+                .setType(GSType.TIMESTAMP)
+                .setTimePrecision(rowSet.getSchema().getColumnInfo(0).getTimePrecision())
+                .toInfo());
+      }
+    } else {
+      ContainerInfo resultSchema = rowSet.getSchema();
+      for (int i = 0; i < resultSchema.getColumnCount(); i++) {
+        resultColumns.add(resultSchema.getColumnInfo(i));
+      }
+    }
+    String containerColumn = TQL_MULTI_CONTAINER_COLUMN;
+    for (int i = 0; i < resultColumns.size(); i++) {
+      if (resultColumns.get(i).getName().equalsIgnoreCase(containerColumn)) {
+        containerColumn += "_";
+        i = -1;
+      }
+    }
+    List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+    columns.add(new ColumnInfo(containerColumn, GSType.STRING));
+    columns.addAll(resultColumns);
+    return new ContainerInfo(null, ContainerType.COLLECTION, columns, false);
+  }
+
+  private static boolean isSameColumns(ContainerInfo schema1, ContainerInfo schema2) {
+    if (schema1.getColumnCount() != schema2.getColumnCount()) {
+      return false;
+    }
+    for (int i = 0; i < schema1.getColumnCount(); i++) {
+      ColumnInfo col1 = schema1.getColumnInfo(i);
+      ColumnInfo col2 = schema2.getColumnInfo(i);
+      if (!col1.getName().equalsIgnoreCase(col2.getName()) || col1.getType() != col2.getType()) {
+        return false;
+      }
+      if (col1.getType() == GSType.TIMESTAMP
+          && col1.getTimePrecision() != col2.getTimePrecision()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Convert a row of the result of a container to a row of the {@code tqlmulti} results.
+   *
+   * @param schema the schema of the {@code tqlmulti} results
+   * @param containerName the container name
+   * @param obj the row, or the result of an aggregation
+   * @return the row
+   * @throws GSException if the row cannot be created
+   */
+  private Row toTqlMultiRow(ContainerInfo schema, String containerName, Object obj)
+      throws GSException {
+    Row row = gridStore.createRow(schema);
+    row.setValue(0, containerName);
+    if (obj instanceof Row) {
+      Row src = (Row) obj;
+      for (int i = 1; i < schema.getColumnCount(); i++) {
+        row.setValue(i, src.getValue(i - 1));
+      }
+    } else if (obj instanceof AggregationResult) {
+      AggregationResult agg = (AggregationResult) obj;
+      ColumnInfo column = schema.getColumnInfo(1);
+      if (column.getType() == GSType.TIMESTAMP) {
+        TimeUnit precision = column.getTimePrecision();
+        if (precision == TimeUnit.MICROSECOND || precision == TimeUnit.NANOSECOND) {
+          row.setPreciseTimestamp(1, agg.getPreciseTimestamp());
+        } else {
+          row.setValue(1, agg.getTimestamp());
+        }
+      } else {
+        row.setValue(1, agg.getDouble());
+      }
+    }
+    return row;
+  }
+
   /**
    * TQL/SQLのフェッチサイズを返します.
    *
@@ -2465,95 +3082,342 @@ public class DataCommandClass extends AbstractCommandClass {
   }
 
   /**
-   * NULLの標準出力用文字列を返します.
+   * Check whether the rows are read by a background fetch thread while the previous rows are
+   * formatted and output.
    *
-   * <p>隠し変数GS_NULL_STDOUTの文字列を取得して返します。 値が無かった場合はデフォルト値を返します。
+   * <p>Get the value of hidden variable GS_PREFETCH. If there is no value, return {@code true}.
    *
-   * @return 文字列
+   * @return {@code true} if the background fetch is enabled
    */
-  private String getNullStdOut() {
-    return getAttributeString(GridStoreShell.NAME_NULL_STDOUT, GS_NULL_STDOUT_DEFAULT);
+  private boolean isPrefetch() {
+    String value = getAttributeString(GridStoreShell.NAME_PREFETCH, "true").toLowerCase();
+    return !(value.equals("false") || value.equals("off") || value.equals("no")
+        || value.equals("0"));
   }
 
   /**
-   * NULLのCSV出力用文字列を返します.
+   * Check whether the timing breakdown of queries is recorded.
    *
-   * <p>隠し変数GS_NULL_CSVの文字列を取得して返します。 値が無かった場合はデフォルト値を返します。
+   * <p>Get the value of hidden variable GS_QUERY_TIMING. If there is no value, return {@code
+   * false}.
    *
-   * @return 文字列
+   * @return {@code true} if the timing is enabled
    */
-  private String getNullCsv() {
-    return getAttributeString(GridStoreShell.NAME_NULL_CSV, GS_NULL_CSV_DEFAULT);
+  private boolean isQueryTiming() {
+    String value = getAttributeString(GridStoreShell.NAME_QUERY_TIMING, "false").toLowerCase();
+    return value.equals("true") || value.equals("on") || value.equals("yes")
+        || value.equals("1");
   }
 
   /**
-   * If the string contains "$variable_name", this method expands the variable's defined value into the string.
+   * Start recording the timing of the executed query if the timing is enabled, and add it to the
+   * history.
    *
-   * @param str The input string
-   * @return The string after variable replacement
+   * @param language "TQL" or "SQL"
+   * @param statement the executed statement
+   * @param startMillis the time when the query was started
+   * @param executeNanos the execution time of the query
    */
-  private String replaceVariable(String str) {
-    String replaced = str;
-    SortedMap<String, Object> others = new TreeMap<String, Object>();
-
-     Bindings bindings = getContext().getBindings(ScriptContext.ENGINE_SCOPE);
-     for (Map.Entry<String, Object> e : bindings.entrySet()) {
-       String key = e.getKey();
-       Object val = e.getValue();
-       if (!key.startsWith("__")) {   // Hidden variables are excluded from expansion.
-         if (val instanceof String){  // If the stored value is not a string, it is excluded from expansion.
-           if (val != null){
-             others.put(key, val);
-           }
-         }
-       }
-     }
-
-     for (Map.Entry<String, Object> e : others.entrySet()) {
-       String key = e.getKey();
-       if (!key.equals(GridStoreShell.USER)
-             && !key.equals(GridStoreShell.PASSWORD)
-             && !key.equals(GridStoreShell.OSPASSWORD)) { // Variables set using the setuser subcommand are excluded from expansion.
-         String var = "\\$" + key + "\\b";
-         String val = (String)e.getValue();
-         replaced = replaced.replaceAll(var, val);
-            }
+  private void startQueryTiming(
+      String language, String statement, long startMillis, long executeNanos) {
+    if (!isQueryTiming()) {
+      return;
     }
-    return replaced;
+    m_queryTiming = new QueryTiming(language, statement, startMillis, executeNanos);
+    if (m_queryTimings.size() >= QUERY_TIMING_HISTORY) {
+      m_queryTimings.removeFirst();
+    }
+    m_queryTimings.addLast(m_queryTiming);
   }
 
   /**
-   * The main method for sub-command {@code sql}.<br>
-   * Execute the SQL.
-   *
-   * @param sql SQL string
-   * @throws ShellException if it meets 1 of the below conditions:
-   *     <ul>
-   *       <li>SQL connection is closed
-   *       <li>Query is not set
-   *       <li>Error when executing the query
-   *     </ul>
+   * Display the timing breakdown of the query.
    *
-   * @since NoSQL 2.7/NewSQL 1.5
+   * @param timing the timing, or {@code null} if the timing is disabled
    */
-  @GSCommand(multiline = true)
-  public void sql(String sql) {
-    checkConnectedSQL();
-
-    queryObjClose();
-
-    // Expand variable values in SQL
-    if(sql.contains("$")){
-      sql = replaceVariable(sql);
+  private void printQueryTiming(QueryTiming timing) {
+    if (timing == null) {
+      return;
     }
+    println(
+        getMessage(
+            "message.queryTiming",
+            QueryTiming.toMillis(timing.getExecuteNanos()),
+            QueryTiming.toMillis(timing.getFirstRowNanos()),
+            QueryTiming.toMillis(timing.getFetchNanos()),
+            QueryTiming.toMillis(timing.getFormatNanos()),
+            QueryTiming.toMillis(timing.getOutputNanos())));
+  }
 
-    try {
-      sql = sql.trim();
-      if (sql.length() == 0) {
-        throw new ShellException(getMessage("error.sqlIsNull"));
-      }
-
-      m_jdbcStmt = m_jdbcCon.createStatement();
+  /**
+   * Check whether the results of queries are cached.
+   *
+   * <p>Get the value of hidden variable GS_RESULT_CACHE. If there is no value, return {@code
+   * false}.
+   *
+   * @return {@code true} if the result cache is enabled
+   */
+  private boolean isResultCache() {
+    String value = getAttributeString(GridStoreShell.NAME_RESULT_CACHE, "false").toLowerCase();
+    return value.equals("true") || value.equals("on") || value.equals("yes") || value.equals("1");
+  }
+
+  /**
+   * Get the value of a hidden variable as a positive integer.
+   *
+   * @param name the name of the hidden variable
+   * @param defaultValue the value returned if there is no valid value
+   * @return the value
+   */
+  private int getPositiveIntAttribute(String name, int defaultValue) {
+    try {
+      int value = Integer.parseInt((String) getContext().getAttribute(name));
+      if (value > 0) {
+        return value;
+      }
+    } catch (Exception e) {
+      // Do nothing
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Get the time to live of the cached results.
+   *
+   * <p>Get the value (sec) of hidden variable GS_RESULT_CACHE_TTL. If there is no valid value,
+   * return the default value 60 sec.
+   *
+   * @return time to live in milliseconds
+   */
+  private long getResultCacheTtlMillis() {
+    return getPositiveIntAttribute(GridStoreShell.NAME_RESULT_CACHE_TTL, RESULT_CACHE_TTL_DEFAULT)
+        * 1000L;
+  }
+
+  /**
+   * Add a query result to the result cache. The least recently used results over the value of
+   * hidden variable GS_RESULT_CACHE_SIZE (default 16) are evicted.
+   *
+   * @param key the key of the query
+   * @param containerName the container name, {@code null} for SQL
+   * @param result the result
+   */
+  private void putResultCache(String key, String containerName, QueryResultCache.Result result) {
+    m_resultCache.put(
+        key,
+        containerName,
+        result,
+        getPositiveIntAttribute(GridStoreShell.NAME_RESULT_CACHE_SIZE, RESULT_CACHE_SIZE_DEFAULT));
+  }
+
+  private int getResultCacheMaxRows() {
+    return getPositiveIntAttribute(
+        GridStoreShell.NAME_RESULT_CACHE_MAX_ROWS, RESULT_CACHE_MAX_ROWS_DEFAULT);
+  }
+
+  /**
+   * Invalidate the cached results which may be changed by writing to a container.
+   *
+   * @param containerName the container name, or {@code null} to invalidate all of the results
+   */
+  private void invalidateResultCache(String containerName) {
+    m_resultCache.invalidate(containerName);
+  }
+
+  /**
+   * Check whether the schemas of the containers are cached.
+   *
+   * <p>Get the value of hidden variable GS_SCHEMA_CACHE. If there is no value, return {@code
+   * true}. The cached schemas are discarded while the cache is disabled.
+   *
+   * @return {@code true} if the schema cache is enabled
+   */
+  private boolean isSchemaCache() {
+    String value = getAttributeString(GridStoreShell.NAME_SCHEMA_CACHE, "true").toLowerCase();
+    if (value.equals("false") || value.equals("off") || value.equals("no") || value.equals("0")) {
+      m_schemaCache.invalidate(null);
+      return false;
+    }
+    return true;
+  }
+
+  private long getSchemaCacheTtlMillis() {
+    return getPositiveIntAttribute(GridStoreShell.NAME_SCHEMA_CACHE_TTL, SCHEMA_CACHE_TTL_DEFAULT)
+        * 1000L;
+  }
+
+  private int getSchemaCacheSize() {
+    return getPositiveIntAttribute(GridStoreShell.NAME_SCHEMA_CACHE_SIZE, SCHEMA_CACHE_SIZE_DEFAULT);
+  }
+
+  /**
+   * Get the schema of a container through the schema cache.
+   *
+   * @param containerName the container name
+   * @return the schema, or {@code null} if the container does not exist
+   * @throws GSException if the schema cannot be acquired
+   * @see GridStore#getContainerInfo
+   */
+  private ContainerInfo getContainerInfo(String containerName) throws GSException {
+    if (!isSchemaCache()) {
+      return gridStore.getContainerInfo(containerName);
+    }
+    return m_schemaCache.getContainerInfo(
+        gridStore, containerName, getSchemaCacheTtlMillis(), getSchemaCacheSize());
+  }
+
+  /**
+   * Get the extended information of a container through the schema cache.
+   *
+   * @param containerName the container name
+   * @return the information, or {@code null} if the container does not exist
+   * @throws GSException if the information cannot be acquired
+   * @see ExperimentalTool#getExtendedContainerInfo
+   */
+  private ExtendedContainerInfo getExtendedContainerInfo(String containerName)
+      throws GSException {
+    if (!isSchemaCache()) {
+      return ExperimentalTool.getExtendedContainerInfo(gridStore, containerName);
+    }
+    return m_schemaCache.getExtendedContainerInfo(
+        gridStore, containerName, getSchemaCacheTtlMillis(), getSchemaCacheSize());
+  }
+
+  /**
+   * Invalidate the cached schema which may be changed by DDL, and release the pooled handle of
+   * the container.
+   *
+   * @param containerName the container name, or {@code null} to invalidate all of the schemas
+   */
+  private void invalidateSchemaCache(String containerName) {
+    m_schemaCache.invalidate(containerName);
+    m_containerPool.release(containerName);
+  }
+
+  /**
+   * Get the handle of a container from the container pool.
+   *
+   * <p>The handle is kept open for the following commands on the container, and must not be
+   * closed. The maximum number of the pooled handles is the value of hidden variable
+   * GS_CONTAINER_POOL_SIZE.
+   *
+   * @param containerName the container name
+   * @return the handle, or {@code null} if the container does not exist
+   * @throws GSException if the container cannot be opened
+   */
+  private Container<Object, Row> getPooledContainer(String containerName) throws GSException {
+    return m_containerPool.get(
+        gridStore,
+        containerName,
+        getPositiveIntAttribute(
+            GridStoreShell.NAME_CONTAINER_POOL_SIZE, CONTAINER_POOL_SIZE_DEFAULT));
+  }
+
+  /**
+   * NULLの標準出力用文字列を返します.
+   *
+   * <p>隠し変数GS_NULL_STDOUTの文字列を取得して返します。 値が無かった場合はデフォルト値を返します。
+   *
+   * @return 文字列
+   */
+  private String getNullStdOut() {
+    return getAttributeString(GridStoreShell.NAME_NULL_STDOUT, GS_NULL_STDOUT_DEFAULT);
+  }
+
+  /**
+   * NULLのCSV出力用文字列を返します.
+   *
+   * <p>隠し変数GS_NULL_CSVの文字列を取得して返します。 値が無かった場合はデフォルト値を返します。
+   *
+   * @return 文字列
+   */
+  private String getNullCsv() {
+    return getAttributeString(GridStoreShell.NAME_NULL_CSV, GS_NULL_CSV_DEFAULT);
+  }
+
+  /**
+   * If the string contains "$variable_name", this method expands the variable's defined value into the string.
+   *
+   * @param str The input string
+   * @return The string after variable replacement
+   */
+  private String replaceVariable(String str) {
+    return VariableTemplate.compile(str).expand(this::getVariableValue);
+  }
+
+  /**
+   * Get the value of a variable which is expanded in a query.
+   *
+   * @param name the variable name
+   * @return the value, or {@code null} if the variable is not defined or is not expanded
+   */
+  private String getVariableValue(String name) {
+    if (name.startsWith("__")) {   // Hidden variables are excluded from expansion.
+      return null;
+    }
+    if (name.equals(GridStoreShell.USER)
+        || name.equals(GridStoreShell.PASSWORD)
+        || name.equals(GridStoreShell.OSPASSWORD)) { // Variables set using the setuser subcommand are excluded from expansion.
+      return null;
+    }
+    Object val = getContext().getBindings(ScriptContext.ENGINE_SCOPE).get(name);
+    // If the stored value is not a string, it is excluded from expansion.
+    return (val instanceof String) ? (String) val : null;
+  }
+
+  /**
+   * Check whether {@code sql} executes the statements with the variables as parameters.
+   *
+   * <p>Get the value of hidden variable GS_SQL_PREPARE. If there is no value, return {@code
+   * false}.
+   *
+   * @return {@code true} if the variables are bound as parameters
+   */
+  private boolean isSqlPrepare() {
+    String value = getAttributeString(GridStoreShell.NAME_SQL_PREPARE, "false").toLowerCase();
+    return value.equals("true") || value.equals("on") || value.equals("yes")
+        || value.equals("1");
+  }
+
+  /**
+   * The main method for sub-command {@code sql}.<br>
+   * Execute the SQL.
+   *
+   * @param sql SQL string
+   * @throws ShellException if it meets 1 of the below conditions:
+   *     <ul>
+   *       <li>SQL connection is closed
+   *       <li>Query is not set
+   *       <li>Error when executing the query
+   *     </ul>
+   *
+   * @since NoSQL 2.7/NewSQL 1.5
+   */
+  @GSCommand(multiline = true)
+  public void sql(String sql) {
+    checkConnectedSQL();
+
+    queryObjClose();
+
+    // Turn the variables into parameters if the values are literals
+    PreparedSqlCache.Template template = null;
+    if (sql.contains("$") && isSqlPrepare()) {
+      template = PreparedSqlCache.Template.parse(sql.trim());
+      if (template != null && !template.isBindable(this::getVariableValue)) {
+        template = null;
+      }
+    }
+
+    // Expand variable values in SQL
+    if(sql.contains("$")){
+      sql = replaceVariable(sql);
+    }
+
+    try {
+      sql = sql.trim();
+      if (sql.length() == 0) {
+        throw new ShellException(getMessage("error.sqlIsNull"));
+      }
 
       String sqlCheckStr = sql.replaceAll("/\\*[^\\*]*\\*/", " ");
       sqlCheckStr = (sqlCheckStr.replaceAll("--.*(\r\n|\n)", " ")).trim();
@@ -2571,17 +3435,84 @@ public class DataCommandClass extends AbstractCommandClass {
         }
       }
 
+      // The prepared statement is kept in the cache, and is not closed with the result
+      PreparedStatement prepared = null;
+      if (template != null
+          && !isExplain
+          && (tmp[0].equalsIgnoreCase("select")
+              || tmp[0].equalsIgnoreCase("insert")
+              || tmp[0].equalsIgnoreCase("delete")
+              || tmp[0].equalsIgnoreCase("update"))) {
+        prepared =
+            m_preparedSql.prepare(
+                m_jdbcCon,
+                template.getSql(),
+                getPositiveIntAttribute(
+                    GridStoreShell.NAME_SQL_PREPARE_CACHE_SIZE, SQL_PREPARE_CACHE_SIZE_DEFAULT));
+        template.bind(prepared, this::getVariableValue);
+      } else {
+        template = null;
+        m_jdbcStmt = m_jdbcCon.createStatement();
+      }
+
       if (tmp[0].equalsIgnoreCase("select") || isExplain) {
         // SELECT
-        m_jdbcStmt.setFetchSize(getFetchSize());
+        String cacheKey = null;
+        boolean resultCache = isResultCache();
+        m_resultCache.setEnabled(resultCache);
+        if (!isExplain && resultCache) {
+          cacheKey = QueryResultCache.key("SQL", m_dbName, null, sql);
+          long start = System.currentTimeMillis();
+          QueryResultCache.Result cached = m_resultCache.get(cacheKey, getResultCacheTtlMillis());
+          if (cached != null) {
+            if (m_jdbcStmt != null) {
+              m_jdbcStmt.close();
+              m_jdbcStmt = null;
+            }
+            m_jdbcRS = ((QueryResultCache.SqlResult) cached).open();
+            m_jdbcSQL = sql;
+            startQueryTiming("SQL", sql, start, 0);
+            println(getMessage("message.cachedHitCount", cached.size()));
+            return;
+          }
+        }
+
         long start = System.currentTimeMillis();
-        m_jdbcRS = m_jdbcStmt.executeQuery(sql);
+        long startNanos = System.nanoTime();
+        if (prepared != null) {
+          prepared.setFetchSize(getFetchSize());
+          m_jdbcRS = SqlRows.of(prepared.executeQuery());
+        } else {
+          m_jdbcStmt.setFetchSize(getFetchSize());
+          m_jdbcRS = SqlRows.of(m_jdbcStmt.executeQuery(sql));
+        }
+        if (cacheKey != null) {
+          // The rows are recorded while get reads them, and cached when all of them are read
+          final String key = cacheKey;
+          final int cacheSize =
+              getPositiveIntAttribute(
+                  GridStoreShell.NAME_RESULT_CACHE_SIZE, RESULT_CACHE_SIZE_DEFAULT);
+          final long generation = m_resultCache.getGeneration();
+          m_jdbcRS =
+              QueryResultCache.SqlResult.recording(
+                  m_jdbcRS,
+                  getResultCacheMaxRows(),
+                  result -> m_resultCache.put(key, null, result, cacheSize, generation));
+        }
+        long executeNanos = System.nanoTime() - startNanos;
         long end = System.currentTimeMillis();
         m_jdbcSQL = sql; // サブコマンドsqlで最後に実行したクエリを退避（変数値は展開済）
+        startQueryTiming("SQL", sql, start, executeNanos);
 
         int count = -1;
-        if (isSqlCount()) {
+        GridStoreShell.SQL_COUNT_MODE countMode = getSqlCountMode();
+        if (countMode == GridStoreShell.SQL_COUNT_MODE.SYNC) {
           count = getSqlResultCount(sql);
+        } else if (countMode == GridStoreShell.SQL_COUNT_MODE.ASYNC && !isExplain) {
+          m_sqlCounter = new AsyncSqlCounter(m_sqlPool, sql);
+        } else if (countMode == GridStoreShell.SQL_COUNT_MODE.FETCH && !isExplain) {
+          m_sqlCountByFetch = true;
+          m_sqlFetchedCount = 0;
         }
         if (count != -1) {
           println(getMessage("message.hitCount", count, end - start));
@@ -2593,7 +3524,9 @@ public class DataCommandClass extends AbstractCommandClass {
           || tmp[0].equalsIgnoreCase("delete")
           || tmp[0].equalsIgnoreCase("update")) {
         // INSERT/DELETE/UPDATE
-        int result = m_jdbcStmt.executeUpdate(sql);
+        invalidateResultCache(null);
+        int result =
+            (prepared != null) ? prepared.executeUpdate() : m_jdbcStmt.executeUpdate(sql);
 
         if (tmp[0].equalsIgnoreCase("insert")) {
           println(getMessage("message.insertcount", result));
@@ -2603,11 +3536,15 @@ public class DataCommandClass extends AbstractCommandClass {
           println(getMessage("message.updatecount", result));
         }
 
-        m_jdbcStmt.close();
-        m_jdbcStmt = null;
+        if (m_jdbcStmt != null) {
+          m_jdbcStmt.close();
+          m_jdbcStmt = null;
+        }
 
       } else {
         // DDL
+        invalidateResultCache(null);
+        invalidateSchemaCache(null);
         m_jdbcStmt.executeUpdate(sql);
         m_jdbcStmt.close();
         m_jdbcStmt = null;
@@ -2616,6 +3553,10 @@ public class DataCommandClass extends AbstractCommandClass {
 
     } catch (Exception e) {
       queryObjClose();
+      if (template != null) {
+        m_preparedSql.remove(template.getSql());
+      }
+      reconnectSqlIfBroken();
       throw new ShellException(getMessage("error.sql") + " : msg=[" + e.getMessage() + "]", e);
     }
   }
@@ -2627,42 +3568,97 @@ public class DataCommandClass extends AbstractCommandClass {
    * @return ヒット件数 (-1の場合は失敗)
    */
   private int getSqlResultCount(String sql) {
-    int count = -1;
-    Statement stmt = null;
-    ResultSet rs = null;
+    String countSQL = "select count(*) from ( " + sql + " ) dummy";
     try {
-      String countSQL = "select count(*) from ( " + sql + " ) dummy";
-      stmt = m_jdbcCon.createStatement();
-      stmt.setFetchSize(1);
-      rs = stmt.executeQuery(countSQL);
-      if (rs.next()) {
-        count = rs.getInt(1);
-      }
+      return m_sqlPool.execute(
+          con -> {
+            try (Statement stmt = con.createStatement()) {
+              stmt.setFetchSize(1);
+              try (ResultSet rs = stmt.executeQuery(countSQL)) {
+                return rs.next() ? rs.getInt(1) : -1;
+              }
+            }
+          });
     } catch (Exception e) {
-    } finally {
+      return -1;
+    }
+  }
+
+  /**
+   * Replace the SQL connection with a new one if it is broken, so that the following {@code sql}
+   * sub-commands succeed without reconnecting the session. If a new connection cannot be opened,
+   * the broken connection is kept and replaced after the next error.
+   */
+  private void reconnectSqlIfBroken() {
+    if (m_jdbcCon == null || SqlConnectionPool.isValid(m_jdbcCon)) {
+      return;
+    }
+    try {
+      Connection con = DriverManager.getConnection(m_jdbcUrl, m_jdbcProp);
+      m_preparedSql.close();
       try {
-        if (rs != null) {
-          rs.close();
-        }
-        if (stmt != null) {
-          stmt.close();
-        }
-      } catch (Exception e) {
+        m_jdbcCon.close();
+      } catch (SQLException e) {
         // Do nothing
       }
+      m_jdbcCon = con;
+    } catch (SQLException e) {
+      Logger logger = LoggerFactory.getLogger(DataCommandClass.class);
+      logger.warn("Failed to reconnect the SQL connection", e);
     }
+  }
+
+  /** 補助用のSQL接続を全て切断します. */
+  private void closeSqlPool() {
+    if (m_sqlPool != null) {
+      m_sqlPool.close();
+      m_sqlPool = null;
+    }
+  }
 
-    return count;
+  /**
+   * SQLの検索結果を取得した後に、件数の取得方法(ASYNC/FETCH)に応じて件数を表示します.
+   *
+   * <ul>
+   *   <li>ASYNC: 件数取得が完了していれば、ヒット件数を表示します。
+   *       完了前に全件を取得した場合は、件数取得をキャンセルして取得件数の合計を表示します。
+   *   <li>FETCH: 全件を取得した時点で、取得件数の合計を表示します。
+   * </ul>
+   *
+   * @param gotCount 今回取得した件数
+   */
+  private void printSqlCount(int gotCount) {
+    boolean exhausted = (m_jdbcRS == null);
+    m_sqlFetchedCount += gotCount;
+    if (m_sqlCounter != null) {
+      if (m_sqlCounter.isDone()) {
+        if (m_sqlCounter.getCount() >= 0) {
+          println(getMessage("message.asyncHitCount",
+              m_sqlCounter.getCount(), m_sqlCounter.getElapsedMillis()));
+        }
+        m_sqlCounter = null;
+        return;
+      } else if (!exhausted) {
+        return;
+      }
+      // 全件取得済みのため、件数取得は不要
+      closeQuitely(m_sqlCounter);
+      m_sqlCounter = null;
+    } else if (!m_sqlCountByFetch || !exhausted) {
+      return;
+    }
+    m_sqlCountByFetch = false;
+    println(getMessage("message.fetchedCount", m_sqlFetchedCount));
   }
 
   /* improve query result: display pretty format as table instead of CSV */
   private class ResultTable {
     private final String                  CELL_PADDING;
-    private final Integer                 MAX_CELL_WIDTH;
-    private final Integer                 columnCount;
-    private final ArrayList<String>       columnHeader;
-    private final Integer[]               cellWidthList;
-    private ArrayList<ArrayList<String>>  resultRows;
+    protected final Integer               MAX_CELL_WIDTH;
+    protected final Integer               columnCount;
+    protected final ArrayList<String>     columnHeader;
+    protected final Integer[]             cellWidthList;
+    protected ArrayList<ArrayList<String>> resultRows;
 
     /**
      * Create a result table
@@ -2717,9 +3713,7 @@ public class DataCommandClass extends AbstractCommandClass {
      * @param row the row that represent by list of cell values
      */
     public void addRow(ArrayList<String> row) {
-      if (row.size() != columnCount) {
-        throw new ShellException(getMessage("error.getrow") + " : msg=[" + getMessage("message.getrow.mismatch", row.size(), columnCount) + "]");
-      }
+      checkRowSize(row);
       resultRows.add(row);
       /* update column width */
       for (int colNo = 0; colNo < columnCount; ++colNo) {
@@ -2735,6 +3729,17 @@ public class DataCommandClass extends AbstractCommandClass {
       }
     }
 
+    /**
+     * Check the number of cells in a row matches the number of columns
+     *
+     * @param row the row to check
+     */
+    protected void checkRowSize(ArrayList<String> row) {
+      if (row.size() != columnCount) {
+        throw new ShellException(getMessage("error.getrow") + " : msg=[" + getMessage("message.getrow.mismatch", row.size(), columnCount) + "]");
+      }
+    }
+
     /**
      * Get width of text when it display on command line console
      *
@@ -2750,7 +3755,7 @@ public class DataCommandClass extends AbstractCommandClass {
     /**
      * Print border of table
      */
-    private void printBorder() {
+    protected void printBorder() {
       System.out.println("+" + String.join("+",
           Stream.of(this.cellWidthList)
                 .map(width -> new String(new char[width+2])
@@ -2763,7 +3768,7 @@ public class DataCommandClass extends AbstractCommandClass {
      *
      * @param row the row to print
      */
-    private void printRow(ArrayList<String> row) {
+    protected void printRow(ArrayList<String> row) {
       String line = "|";
       for (int i = 0; i < columnCount; ++i) {
         String value = row.get(i);
@@ -2774,14 +3779,16 @@ public class DataCommandClass extends AbstractCommandClass {
           padding = CELL_PADDING.substring(0, cellWidthList[i] - width);
         }
         String cell = value;
-        if (width > MAX_CELL_WIDTH) {
+        /* cut the cell at the column width, which never exceeds MAX_CELL_WIDTH */
+        final int cellWidth = cellWidthList[i];
+        if (width > cellWidth) {
           String  cutInfo  = "...";
-          if (MAX_CELL_WIDTH < cutInfo.length()) {
-            cutInfo = cutInfo.substring(0, MAX_CELL_WIDTH);
+          if (cellWidth < cutInfo.length()) {
+            cutInfo = cutInfo.substring(0, cellWidth);
           }
           /* in case of display width of all charactes is 1  */
           if(value.length() == width) {
-            cell = cell.substring(0, MAX_CELL_WIDTH - cutInfo.length()) + cutInfo;
+            cell = cell.substring(0, cellWidth - cutInfo.length()) + cutInfo;
           } else {
             /* calculate the display width of mixed CJK and latin characters,
               display width of them are different */
@@ -2790,7 +3797,7 @@ public class DataCommandClass extends AbstractCommandClass {
             int k = 0;
             for(; k < charCodes.length; k++) {
               int charWidth = getCharacterDisplayWidth(charCodes[k]);
-              if (displayWidth + charWidth + cutInfo.length() > MAX_CELL_WIDTH) {
+              if (displayWidth + charWidth + cutInfo.length() > cellWidth) {
                 break;
               }
               displayWidth += charWidth;
@@ -2801,8 +3808,8 @@ public class DataCommandClass extends AbstractCommandClass {
             Assuming max-width=6, then 'aa米米a' has width = 7 (米=2),
             will display 'aa....' (6 chars: 2 displayed + 1 extraDots + 3 cutInfo's dots) */
             String extraDots = "";
-            if (displayWidth < MAX_CELL_WIDTH) {
-              extraDots = new String(new char[MAX_CELL_WIDTH - cutInfo.length() - displayWidth])
+            if (displayWidth < cellWidth) {
+              extraDots = new String(new char[cellWidth - cutInfo.length() - displayWidth])
                                 .replace("\0", ".");
             }
             cell = cell.substring(0, shownChars) + extraDots + cutInfo;
@@ -2826,63 +3833,309 @@ public class DataCommandClass extends AbstractCommandClass {
       printBorder();
     }
   }
-  
-  /** Acquire and display query result. */
-  private abstract class RowGetter {
+
+  /*
+   * Result table which prints rows as they are fetched. Column widths are decided from the
+   * first rows (sample window) and are fixed afterwards, so only the sample window is kept in
+   * memory. Longer cells after the sample window are cut with "...".
+   */
+  private class StreamingResultTable extends ResultTable {
+    private final int sampleRows;
+    private boolean   started;
 
     /**
-     * 表示処理.
+     * Create a streaming result table
      *
-     * @param rowNo 表示する行の番号（ヘッダ行の場合は0、データ行は1から連番）
-     * @param line 表示する行
+     * @param columnNames name of columns
+     * @param maxColumnWidth maximum width for all columns
+     * @param sampleRows number of rows used to decide the column widths, 0 means every column
+     *     has the maximum width
      */
-    protected abstract void printLine(int rowNo, String... line);
+    public StreamingResultTable(ArrayList<String> columnNames, Integer maxColumnWidth,
+        int sampleRows) {
+      super(columnNames, maxColumnWidth);
+      this.sampleRows = sampleRows;
+      this.started    = false;
+      if (sampleRows <= 0) {
+        /* fixed widths */
+        for (int colNo = 0; colNo < columnCount; ++colNo) {
+          setColumnWidth(colNo, MAX_CELL_WIDTH);
+        }
+      }
+    }
 
     /**
-     * 日付時刻のフォーマット処理.
+     * Add a new row. The row is buffered while the sample window is filled, then printed
+     * immediately.
      *
-     * @param date Dateオブジェクト
-     * @return 日付時刻を文字列化したもの
+     * @param row the row that represent by list of cell values
      */
-    protected abstract String formatDate(Date date);
-
-   /**
-    * Convert timestamp to string base on its precision
-    *
-    * @param timestamp the timestamp to convert
-    * @param precisionUnit unit of timestamp
-    * @return formatted string of timestamp
-    */
-    protected String formatTimestamp(Timestamp timestamp, TimeUnit precisionUnit) {
-      ZonedDateTime zdt = null;
-      if (m_connectTimeZoneVal == null) {
-        // UTC if there is no time zone settings
-        zdt = ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.of("UTC"));
-      } else if ("auto".equals(m_connectTimeZoneVal)) {
-        // If the time zone setting is Auto, the system default
-        zdt = ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
-      } else {
-        // If there is a time zone settings, reflect the setting value
-        zdt = ZonedDateTime.ofInstant(timestamp.toInstant(), ZoneOffset.of(m_connectTimeZoneVal));
+    @Override
+    public void addRow(ArrayList<String> row) {
+      if (started) {
+        checkRowSize(row);
+        printRow(row);
+        return;
+      }
+      if (sampleRows <= 0) {
+        checkRowSize(row);
+        start();
+        printRow(row);
+        return;
+      }
+      super.addRow(row);
+      if (resultRows.size() >= sampleRows) {
+        start();
       }
-      return zdt.format(MetaContainerFileIO.getDateTimeFormatter(precisionUnit));
     }
 
     /**
-     * オブジェクトの文字列化.
-     *
-     * @param data オブジェクト
-     * @param replaceNull NULL値を文字列に置換するか否か
-     * @return オブジェクトを文字列化したもの
+     * Print the header and the buffered rows, then release the sample window.
      */
-    private String stringify(Object data, boolean replaceNull) {
-      if (data == null) {
-        return replaceNull ? getNullStdOut() : null;
-      } else if (data instanceof Blob) {
-        return BLOB_SHOW_STRING;
-      } else if (data instanceof Date) {
-        return formatDate((Date) data);
-      } else if (data instanceof Date[]) {
+    private void start() {
+      printBorder();
+      printRow(columnHeader);
+      printBorder();
+      resultRows.forEach(row -> {
+        printRow(row);
+      });
+      resultRows = new ArrayList<ArrayList<String>>();
+      started = true;
+    }
+
+    /**
+     * Print the rest of the table
+     */
+    @Override
+    public void display() {
+      if (!started) {
+        start();
+      }
+      printBorder();
+    }
+  }
+  
+  /** Create the strings of a line of query result. */
+  private interface LineFormatter {
+    /**
+     * Create the strings of a line.
+     *
+     * @return strings of the line
+     * @throws GSException if a value cannot be acquired
+     */
+    String[] format() throws GSException;
+  }
+
+  /** Convert a non-NULL value of a column of query result to a string. */
+  private interface ColumnFormatter {
+    /**
+     * Convert a value to a string.
+     *
+     * @param data the value, not {@code null}
+     * @return the string
+     */
+    String format(Object data);
+  }
+
+  /** Read a cell of an SQL result as a string. */
+  private interface SqlCellReader {
+    /**
+     * Read a cell of the current row.
+     *
+     * @param rs the result
+     * @param column the column number (from 1)
+     * @return the string, or {@code null} if the value is NULL
+     * @throws SQLException if the value cannot be acquired
+     */
+    String read(SqlRows rs, int column) throws SQLException;
+  }
+
+  /** Formatters of the columns of a query result, compiled once from the schema. */
+  private static final class RowFormatter {
+    private final ColumnFormatter[] formatters;
+    private final String nullString;
+
+    RowFormatter(ColumnFormatter[] formatters, String nullString) {
+      this.formatters = formatters;
+      this.nullString = nullString;
+    }
+
+    /**
+     * Convert the values of a row to strings.
+     *
+     * @param row the row
+     * @param colCount number of columns to convert from the first column
+     * @return strings of the values
+     * @throws GSException if a value cannot be acquired
+     */
+    String[] format(Row row, int colCount) throws GSException {
+      String[] line = new String[colCount];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        Object data = row.getValue(colNo);
+        line[colNo] = (data == null) ? nullString : formatters[colNo].format(data);
+      }
+      return line;
+    }
+  }
+
+  /** Acquire and display query result. */
+  private abstract class RowGetter {
+
+    /** Formatters of TIMESTAMP values with the time zone of the connection, by precision. */
+    private final Map<TimeUnit, DateTimeFormatter> zonedFormatters =
+        new EnumMap<TimeUnit, DateTimeFormatter>(TimeUnit.class);
+
+    /** Buffer to build the strings of array values, for each formatting thread. */
+    private final ThreadLocal<StringBuilder> arrayBuilder =
+        ThreadLocal.withInitial(StringBuilder::new);
+
+    /** Timing of the query, {@code null} if the timing is disabled. */
+    protected final QueryTiming timing = m_queryTiming;
+
+    /**
+     * 表示処理.
+     *
+     * @param rowNo 表示する行の番号（ヘッダ行の場合は0、データ行は1から連番）
+     * @param line 表示する行
+     */
+    protected abstract void printLine(int rowNo, String... line);
+
+    /**
+     * 表示処理（カラム値の文字列化を表示処理側で行う）.
+     *
+     * <p>By default the line is formatted immediately. Subclasses may format it later, for example
+     * on a worker thread.
+     *
+     * @param rowNo 表示する行の番号（データ行は1から連番）
+     * @param formatter 表示する行を作成する処理
+     * @throws GSException if a value cannot be acquired
+     */
+    protected void printLine(int rowNo, LineFormatter formatter) throws GSException {
+      output(rowNo, format(formatter));
+    }
+
+    /**
+     * Format a line, and add the time to the format time of the query.
+     *
+     * @param formatter 表示する行を作成する処理
+     * @return 表示する行
+     * @throws GSException if a value cannot be acquired
+     */
+    protected String[] format(LineFormatter formatter) throws GSException {
+      if (timing == null) {
+        return formatter.format();
+      }
+      long start = System.nanoTime();
+      try {
+        return formatter.format();
+      } finally {
+        timing.addFormat(System.nanoTime() - start);
+      }
+    }
+
+    /**
+     * Display a line, and add the time to the output time of the query.
+     *
+     * @param rowNo 表示する行の番号（ヘッダ行の場合は0、データ行は1から連番）
+     * @param line 表示する行
+     */
+    protected void output(int rowNo, String... line) {
+      long start = System.nanoTime();
+      printLine(rowNo, line);
+      addOutputTime(start);
+    }
+
+    /**
+     * Add the time since {@code startNanos} to the output time of the query.
+     *
+     * @param startNanos the value of {@link System#nanoTime()} when the output was started
+     */
+    protected void addOutputTime(long startNanos) {
+      if (timing != null) {
+        timing.addOutput(System.nanoTime() - startNanos);
+      }
+    }
+
+    private <T, E extends Exception> RowPrefetcher.Source<T, E> timed(
+        RowPrefetcher.Source<T, E> source) {
+      return (timing == null) ? source : timing.timed(source);
+    }
+
+    private void firstRow(long getStartNanos) {
+      if (timing != null) {
+        timing.firstRow(getStartNanos);
+      }
+    }
+
+    private void outputTable() {
+      long start = System.nanoTime();
+      displayAsTable();
+      addOutputTime(start);
+    }
+
+    /**
+     * 日付時刻のフォーマット処理.
+     *
+     * @param date Dateオブジェクト
+     * @return 日付時刻を文字列化したもの
+     */
+    protected String formatDate(Date date) {
+      return zonedFormatter(TimeUnit.MILLISECOND).format(date.toInstant());
+    }
+
+    /**
+     * Get the formatter of TIMESTAMP values with the time zone of the connection. The formatter is
+     * created once for each precision.
+     *
+     * @param precisionUnit the precision of timestamp
+     * @return the formatter
+     */
+    private synchronized DateTimeFormatter zonedFormatter(TimeUnit precisionUnit) {
+      DateTimeFormatter formatter = zonedFormatters.get(precisionUnit);
+      if (formatter == null) {
+        ZoneId zoneId;
+        if (m_connectTimeZoneVal == null) {
+          // UTC if there is no time zone settings
+          zoneId = ZoneId.of("UTC");
+        } else if ("auto".equals(m_connectTimeZoneVal)) {
+          // If the time zone setting is Auto, the system default
+          zoneId = ZoneId.systemDefault();
+        } else {
+          // If there is a time zone settings, reflect the setting value
+          zoneId = ZoneOffset.of(m_connectTimeZoneVal);
+        }
+        formatter = MetaContainerFileIO.getDateTimeFormatter(precisionUnit).withZone(zoneId);
+        zonedFormatters.put(precisionUnit, formatter);
+      }
+      return formatter;
+    }
+
+   /**
+    * Convert timestamp to string base on its precision
+    *
+    * @param timestamp the timestamp to convert
+    * @param precisionUnit unit of timestamp
+    * @return formatted string of timestamp
+    */
+    protected String formatTimestamp(Timestamp timestamp, TimeUnit precisionUnit) {
+      return zonedFormatter(precisionUnit).format(timestamp.toInstant());
+    }
+
+    /**
+     * オブジェクトの文字列化.
+     *
+     * @param data オブジェクト
+     * @param replaceNull NULL値を文字列に置換するか否か
+     * @return オブジェクトを文字列化したもの
+     */
+    private String stringify(Object data, boolean replaceNull) {
+      if (data == null) {
+        return replaceNull ? getNullStdOut() : null;
+      } else if (data instanceof Blob) {
+        return BLOB_SHOW_STRING;
+      } else if (data instanceof Date) {
+        return formatDate((Date) data);
+      } else if (data instanceof Date[]) {
         Date[] dateArray = (Date[]) data;
         String[] tmp = new String[dateArray.length];
         for (int k = 0; k < dateArray.length; ++k) {
@@ -2910,6 +4163,187 @@ public class DataCommandClass extends AbstractCommandClass {
       }
     }
 
+    /**
+     * Compile the formatters of the columns of a TQL result.
+     *
+     * @param schema the schema of the result
+     * @param replaceNull whether to replace NULL values with strings
+     * @return the formatters
+     */
+    protected RowFormatter compileFormatter(ContainerInfo schema, boolean replaceNull) {
+      int colCount = schema.getColumnCount();
+      ColumnFormatter[] formatters = new ColumnFormatter[colCount];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        formatters[colNo] = compileColumnFormatter(schema.getColumnInfo(colNo));
+      }
+      return new RowFormatter(formatters, replaceNull ? getNullStdOut() : null);
+    }
+
+    private ColumnFormatter compileColumnFormatter(ColumnInfo columnInfo) {
+      switch (columnInfo.getType()) {
+        case STRING:
+        case BOOL:
+        case BYTE:
+        case SHORT:
+        case INTEGER:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case GEOMETRY:
+          return Object::toString;
+        case TIMESTAMP:
+          {
+            TimeUnit precision = columnInfo.getTimePrecision();
+            final DateTimeFormatter formatter =
+                zonedFormatter(precision == null ? TimeUnit.MILLISECOND : precision);
+            return data -> formatter.format(((Date) data).toInstant());
+          }
+        case BLOB:
+          return data -> BLOB_SHOW_STRING;
+        case STRING_ARRAY:
+          return data -> {
+            Object[] array = (Object[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case BOOL_ARRAY:
+          return data -> {
+            boolean[] array = (boolean[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case BYTE_ARRAY:
+          return data -> {
+            byte[] array = (byte[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case SHORT_ARRAY:
+          return data -> {
+            short[] array = (short[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case INTEGER_ARRAY:
+          return data -> {
+            int[] array = (int[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case LONG_ARRAY:
+          return data -> {
+            long[] array = (long[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case FLOAT_ARRAY:
+          return data -> {
+            float[] array = (float[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case DOUBLE_ARRAY:
+          return data -> {
+            double[] array = (double[]) data;
+            StringBuilder sb = beginArray();
+            for (int k = 0; k < array.length; ++k) {
+              (k == 0 ? sb : sb.append(", ")).append(array[k]);
+            }
+            return sb.append(']').toString();
+          };
+        case TIMESTAMP_ARRAY:
+          {
+            final DateTimeFormatter formatter = zonedFormatter(TimeUnit.MILLISECOND);
+            return data -> {
+              Date[] array = (Date[]) data;
+              StringBuilder sb = beginArray();
+              for (int k = 0; k < array.length; ++k) {
+                formatter.formatTo(array[k].toInstant(), k == 0 ? sb : sb.append(", "));
+              }
+              return sb.append(']').toString();
+            };
+          }
+        default:
+          return data -> stringify(data, false);
+      }
+    }
+
+    private StringBuilder beginArray() {
+      StringBuilder sb = arrayBuilder.get();
+      sb.setLength(0);
+      return sb.append('[');
+    }
+
+    /**
+     * Compile the readers of the columns of an SQL result.
+     *
+     * @param rsMeta the result, of which only the metadata is read
+     * @param colCount number of columns to read from the first column
+     * @return the readers
+     * @throws SQLException if the metadata cannot be acquired
+     */
+    protected SqlCellReader[] compileSqlReaders(SqlRows rsMeta, int colCount)
+        throws SQLException {
+      SqlCellReader[] readers = new SqlCellReader[colCount];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        switch (rsMeta.getColumnType(colNo + 1)) {
+          case Types.BLOB:
+            // blobはダミー文字列"(BLOB)"で代用
+            readers[colNo] = (rs, column) -> {
+              Object obj = rs.getObject(column);
+              return (obj == null || rs.wasNull()) ? null : BLOB_SHOW_STRING;
+            };
+            break;
+          case Types.OTHER:
+          case Types.JAVA_OBJECT:
+          case Types.ARRAY:
+          case Types.STRUCT:
+          case Types.BINARY:
+          case Types.VARBINARY:
+          case Types.LONGVARBINARY:
+            readers[colNo] = (rs, column) -> {
+              Object obj = rs.getObject(column);
+              if (obj == null || rs.wasNull()) {
+                return null;
+              } else if (obj instanceof Blob) {
+                return BLOB_SHOW_STRING;
+              } else {
+                return rs.getString(column);
+              }
+            };
+            break;
+          default:
+            readers[colNo] = (rs, column) -> {
+              String value = rs.getString(column);
+              return (value == null || rs.wasNull()) ? null : value;
+            };
+            break;
+        }
+      }
+      return readers;
+    }
+
     /**
      * Convert timestamp to string
      * 
@@ -2962,126 +4396,117 @@ public class DataCommandClass extends AbstractCommandClass {
           }
         }
 
+        final RowFormatter formatter = compileFormatter(schema, replaceNull);
+        final RowSet<?> rowSet = queryRowSet;
+        final long getStartNanos = System.nanoTime();
         int rowNo;
-        for (rowNo = 0; rowNo < countVal; ++rowNo) {
-          if (!queryRowSet.hasNext()) {
-            queryRowSet.close();
-            queryRowSet = null;
-            break;
-          }
-          Object obj = queryRowSet.next();
-
-          if (obj instanceof Row) {
-            Row row = (Row) obj;
-            String[] line = null;
-
-            if(vals == null){
-              // get
-              line = new String[colCount];
-              // 1行目はカラム名を出力
-              if (rowNo == 0) {
-                for (int colNo = 0; colNo < colCount; ++colNo) {
-                  line[colNo] = schema.getColumnInfo(colNo).getName();
-                }
-                printLine(0, line);
-              }
+        boolean exhausted = false;
+        try (RowPrefetcher<Object, GSException> rows = new RowPrefetcher<Object, GSException>(
+            timed(() -> rowSet.hasNext() ? rowSet.next() : null), countVal, getFetchSize(),
+            isPrefetch(), DataCommandClass.this::queryObjClose)) {
+          for (rowNo = 0; rowNo < countVal; ++rowNo) {
+            Object obj = rows.next();
+            if (obj == null) {
+              exhausted = true;
+              break;
             }
+            firstRow(getStartNanos);
+
+            if (obj instanceof Row) {
+              final Row row = (Row) obj;
 
-            for (int colNo = 0; colNo < colCount; ++colNo) {
-              if(vals != null){
-                // getval：格納配列数を超過した場合、取得中断
-                if(colNo >= vals.length){
-                  break;
-                }
-              }
-              ColumnInfo ci = schema.getColumnInfo(colNo);
-              Object data   = row.getValue(colNo);
-              String line_wk;
-              if(data instanceof Timestamp) {
-                line_wk = stringify((Timestamp)   data, ci.getTimePrecision());
-              } else {
-                line_wk = stringify(data, replaceNull);
-              }
               if(vals == null){
                 // get
-                line[colNo] = line_wk;
+                // 1行目はカラム名を出力
+                if (rowNo == 0) {
+                  String[] line = new String[colCount];
+                  for (int colNo = 0; colNo < colCount; ++colNo) {
+                    line[colNo] = schema.getColumnInfo(colNo).getName();
+                  }
+                  output(0, line);
+                }
+                printLine(1 + rowNo, () -> formatter.format(row, colCount));
               } else {
-                // getval
-                vals[colNo] = line_wk;
+                // getval：格納配列数を超過した場合、取得中断
+                String[] line = formatter.format(row, Math.min(colCount, vals.length));
+                System.arraycopy(line, 0, vals, 0, line.length);
               }
-            }
-            if(vals == null){
-              // get
-              printLine(1 + rowNo, line);
-            }
 
-          } else if (obj instanceof AggregationResult) {
-            AggregationResult agg = (AggregationResult) obj;
+            } else if (obj instanceof AggregationResult) {
+              AggregationResult agg = (AggregationResult) obj;
 
-            if(vals == null){
-              // get：1行目はカラム名を出力
-              if (rowNo == 0) {
-                printLine(0, "Result");
-              }
-            }
-
-            Double number = agg.getDouble();
-            if (number != null) {
               if(vals == null){
-                // get
-                printLine(1 + rowNo, stringify(number, replaceNull));
-              } else {
-                // getval
-                vals[0] = stringify(number, replaceNull);
+                // get：1行目はカラム名を出力
+                if (rowNo == 0) {
+                  output(0, "Result");
+                }
               }
-            } else {
-              TimeUnit precision = schema.getColumnInfo(0).getTimePrecision();
-              String line;
-              if (precision == TimeUnit.MICROSECOND || precision == TimeUnit.NANOSECOND) {
-                line = stringify(agg.getPreciseTimestamp(), precision);
+
+              Double number = agg.getDouble();
+              if (number != null) {
+                if(vals == null){
+                  // get
+                  output(1 + rowNo, stringify(number, replaceNull));
+                } else {
+                  // getval
+                  vals[0] = stringify(number, replaceNull);
+                }
               } else {
-                line = stringify(agg.getTimestamp(), replaceNull);
+                TimeUnit precision = schema.getColumnInfo(0).getTimePrecision();
+                String line;
+                if (precision == TimeUnit.MICROSECOND || precision == TimeUnit.NANOSECOND) {
+                  line = stringify(agg.getPreciseTimestamp(), precision);
+                } else {
+                  line = stringify(agg.getTimestamp(), replaceNull);
+                }
+                if(vals == null){
+                  // get
+                  output(1 + rowNo, line);
+                } else {
+                  // getval
+                  vals[0] = line;
+                }
               }
+
+            } else if (obj instanceof QueryAnalysisEntry) {
+              /* EXPLAIN結果 */
               if(vals == null){
                 // get
-                printLine(1 + rowNo, line);
-              } else {
-                // getval
-                vals[0] = line;
-              }
-            }
+                QueryAnalysisEntry entry = (QueryAnalysisEntry) obj;
 
-          } else if (obj instanceof QueryAnalysisEntry) {
-            /* EXPLAIN結果 */
-            if(vals == null){
-              // get
-              QueryAnalysisEntry entry = (QueryAnalysisEntry) obj;
+                // 最初ならカラム名の表示
+                if (rowNo == 0) {
+                  output(0, "Id", "Depth", "Type", "ValueType", "Value", "Statement");
+                }
 
-              // 最初ならカラム名の表示
-              if (rowNo == 0) {
-                printLine(0, "Id", "Depth", "Type", "ValueType", "Value", "Statement");
+                // データの表示
+                output(
+                    1 + rowNo,
+                    stringify(entry.getId(), replaceNull),
+                    stringify(entry.getDepth(), replaceNull),
+                    entry.getType(),
+                    entry.getValueType(),
+                    entry.getValue(),
+                    entry.getStatement());
               }
-
-              // データの表示
-              printLine(
-                  1 + rowNo,
-                  stringify(entry.getId(), replaceNull),
-                  stringify(entry.getDepth(), replaceNull),
-                  entry.getType(),
-                  entry.getValueType(),
-                  entry.getValue(),
-                  entry.getStatement());
             }
           }
         }
+        if (exhausted) {
+          queryRowSet.close();
+          queryRowSet = null;
+        }
 
         if(vals == null){
           // get
-          if (getResultFormat() == ResultFormat.TABLE) {
-            displayAsTable();
+          if (getResultFormat() != ResultFormat.CSV) {
+            outputTable();
           }
         }
 
+        if (timing != null) {
+          timing.addRows(rowNo);
+        }
         return rowNo;
 
       } catch (ShellException e) {
@@ -3140,7 +4565,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
       try {
         int rowNo;
-        ResultSetMetaData rsMeta = m_jdbcRS.getMetaData();
+        SqlRows rsMeta = m_jdbcRS;
         int colCount = rsMeta.getColumnCount();
         if(vals != null){
           // getval
@@ -3158,50 +4583,62 @@ public class DataCommandClass extends AbstractCommandClass {
           for (int colNo = 0; colNo < colCount; ++colNo) {
             line[colNo] = rsMeta.getColumnName(colNo + 1);
           }
-          printLine(0, line);
+          output(0, line);
         }
 
-        for (rowNo = 0; rowNo < countVal; ++rowNo) {
-          if (!m_jdbcRS.next()) {
-            m_jdbcRS.close();
-            m_jdbcRS = null;
-            break;
-          }
-
-          for (int colNo = 0; colNo < colCount; ++colNo) {
-            if(vals != null){
-              // getval：格納配列数を超過した場合、取得中断
-              if(colNo >= vals.length){
-                break;
+        // The fetch stage reads the cells of a row while the cursor is on it.
+        // NULL is kept as null so that it is replaced on the formatting side.
+        final SqlRows rs = m_jdbcRS;
+        final int readCount = (vals == null) ? colCount : vals.length;
+        final String nullStr = replaceNull ? getNullStdOut() : null;
+        final SqlCellReader[] readers = compileSqlReaders(rsMeta, readCount);
+        final long getStartNanos = System.nanoTime();
+        boolean exhausted = false;
+        try (RowPrefetcher<String[], SQLException> rows = new RowPrefetcher<String[], SQLException>(
+            timed(() -> {
+              if (!rs.next()) {
+                return null;
               }
+              String[] cells = new String[readCount];
+              for (int colNo = 0; colNo < readCount; ++colNo) {
+                cells[colNo] = readers[colNo].read(rs, colNo + 1);
+              }
+              return cells;
+            }), countVal, getFetchSize(), isPrefetch(),
+            DataCommandClass.this::queryObjClose)) {
+          for (rowNo = 0; rowNo < countVal; ++rowNo) {
+            String[] cells = rows.next();
+            if (cells == null) {
+              exhausted = true;
+              break;
             }
-            Object obj = m_jdbcRS.getObject(colNo + 1);
-            String line_wk;
-            if (obj == null || m_jdbcRS.wasNull()) {
-              line_wk = replaceNull ? getNullStdOut() : null;
-            } else if (obj instanceof Blob) {
-              line_wk = BLOB_SHOW_STRING; // blobはダミー文字列"(BLOB)"で代用
-            } else {
-              line_wk = m_jdbcRS.getString(colNo + 1);
+            firstRow(getStartNanos);
+
+            for (int colNo = 0; colNo < readCount; ++colNo) {
+              String line_wk = (cells[colNo] == null) ? nullStr : cells[colNo];
+              if(vals == null){
+                // get
+                line[colNo] = line_wk;
+              } else {
+                // getval
+                vals[colNo] = line_wk;
+              }
             }
             if(vals == null){
               // get
-              line[colNo] = line_wk;
-            } else {
-              // getval
-              vals[colNo] = line_wk;
+              output(1 + rowNo, line);
             }
           }
-          if(vals == null){
-            // get
-            printLine(1 + rowNo, line);
-          }
+        }
+        if (exhausted) {
+          m_jdbcRS.close();
+          m_jdbcRS = null;
         }
         
         if(vals == null){
           // get
-          if (getResultFormat() == ResultFormat.TABLE) {
-            displayAsTable();
+          if (getResultFormat() != ResultFormat.CSV) {
+            outputTable();
           }
 
           /* Restore orginal display mode after display SQL explain result */
@@ -3210,6 +4647,9 @@ public class DataCommandClass extends AbstractCommandClass {
           }
         }
 
+        if (timing != null) {
+          timing.addRows(rowNo);
+        }
         return rowNo;
 
       } catch (OutOfMemoryError oome) {
@@ -3262,9 +4702,6 @@ public class DataCommandClass extends AbstractCommandClass {
    */
   @GSCommand(name = "get")
   public void getRow(@GSNullable Integer count) {
-    final DateTimeFormatter dateTimeFormatter =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
-
     RowGetter rowgetter =
         new RowGetter() {
           private ResultTable resultTable = null;
@@ -3282,7 +4719,12 @@ public class DataCommandClass extends AbstractCommandClass {
             } else {
               if (this.resultTable == null) {
                 ArrayList<String> columnNames = new ArrayList<String>(Arrays.asList(line));
-                this.resultTable = new ResultTable(columnNames, getResultMaxColumnWidth());
+                if (getResultFormat() == ResultFormat.STREAM) {
+                  this.resultTable = new StreamingResultTable(
+                      columnNames, getResultMaxColumnWidth(), getResultSampleRows());
+                } else {
+                  this.resultTable = new ResultTable(columnNames, getResultMaxColumnWidth());
+                }
               }
               else {
                 this.resultTable.addRow(new ArrayList<String>(Arrays.asList(line)));
@@ -3290,18 +4732,6 @@ public class DataCommandClass extends AbstractCommandClass {
             }
           }
 
-          @Override
-          protected String formatDate(Date date) {
-            ZonedDateTime zdt = null;
-            if (m_connectTimeZoneVal == null) {
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.of("UTC"));
-            } else if ("auto".equals(m_connectTimeZoneVal)) {
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-            } else {
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.of(m_connectTimeZoneVal));
-            }
-            return zdt.format(dateTimeFormatter);
-          }
 
           @Override
           protected void displayAsTable() {
@@ -3317,13 +4747,15 @@ public class DataCommandClass extends AbstractCommandClass {
     int gotCount = 0;
     if (queryRowSet != null) {
       gotCount = rowgetter.getRow(count, true);
+      println(getMessage("message.getCount", gotCount));
     } else if (m_jdbcRS != null) {
       gotCount = rowgetter.getRowSQL(count, true);
+      println(getMessage("message.getCount", gotCount));
+      printSqlCount(gotCount);
     } else {
       throw new ShellException(getMessage("error.noResultSet"));
     }
-
-    println(getMessage("message.getCount", gotCount));
+    printQueryTiming(rowgetter.timing);
   }
 
   /**
@@ -3341,71 +4773,484 @@ public class DataCommandClass extends AbstractCommandClass {
    */
   @GSCommand(name = "getcsv")
   public void getRowToCsv(String filename, @GSNullable Integer count) {
-    final DateTimeFormatter dateTimeFormatter =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    if (queryRowSet != null) {
+      checkConnected();
+    } else if (m_jdbcRS != null) {
+      checkConnectedSQL();
+    } else {
+      throw new ShellException(getMessage("error.noResultSet"));
+    }
 
-    CSVWriter writer = null;
+    final Path path = Paths.get(filename);
+    final OutputCodec codec = getOutputCodec(filename);
+    CsvExporter exporter = null;
     try {
-      if (queryRowSet != null) {
-        checkConnected();
-      } else if (m_jdbcRS != null) {
-        checkConnectedSQL();
-      } else {
-        throw new ShellException(getMessage("error.noResultSet"));
-      }
-
-      writer =
-          new CSVWriter(
-              new BufferedWriter(
-                  new OutputStreamWriter(new FileOutputStream(filename), CSV_ENCODING)));
-
-      final CSVWriter csvWriter = writer;
+      exporter =
+          new CsvExporter(
+              OutputCodecs.newChannel(
+                  path, codec, getOutputBufferSize(), getCompressionLevel()),
+              CSV_ENCODING,
+              getExportThreads(),
+              getFetchSize());
+
+      final CsvExporter csvExporter = exporter;
       RowGetter rowgetter =
           new RowGetter() {
             @Override
             protected void printLine(int rowNo, String... line) {
-              if (rowNo == 0) {
-                line[0] = "#" + line[0];
-                csvWriter.writeNext(line);
-                csvWriter.writeNext(new String[] {"$", queryContainerName});
-              } else {
-                csvWriter.writeNext(line);
-                if (rowNo % 1000 == 0) {
-                  println(getMessage("message.gotCountProgress", rowNo));
+              try {
+                if (rowNo == 0) {
+                  line[0] = "#" + line[0];
+                  csvExporter.writeLine(line);
+                  csvExporter.writeLine("$", queryContainerName);
+                } else {
+                  csvExporter.writeLine(line);
+                  printProgress(rowNo);
                 }
+              } catch (IOException e) {
+                throw new ShellException(getMessage("error.cannotSave", filename), e);
               }
             }
 
             @Override
-            protected String formatDate(Date date) {
-              ZonedDateTime zdt = null;
-              if (m_connectTimeZoneVal == null) {
-                zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.of("UTC"));
-              } else if ("auto".equals(m_connectTimeZoneVal)) {
-                zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-              } else {
-                zdt =
-                    ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.of(m_connectTimeZoneVal));
+            protected void printLine(int rowNo, LineFormatter formatter) {
+              long start = System.nanoTime();
+              try {
+                csvExporter.writeLine(
+                    () -> {
+                      try {
+                        return format(formatter);
+                      } catch (GSException e) {
+                        throw new ShellException(
+                            getMessage("error.getrow") + " : msg=[" + e.getMessage() + "]", e);
+                      }
+                    });
+                addOutputTime(start);
+                printProgress(rowNo);
+              } catch (IOException e) {
+                throw new ShellException(getMessage("error.cannotSave", filename), e);
               }
-              return zdt.format(dateTimeFormatter);
             }
+
+            private void printProgress(int rowNo) {
+              if (rowNo % 1000 == 0) {
+                println(getMessage("message.gotCountProgress", rowNo));
+              }
+            }
+
           };
 
       int gotCount = 0;
+      boolean isSql = false;
       if (queryRowSet != null) {
         gotCount = rowgetter.getRow(count, false);
       } else if (m_jdbcRS != null) {
         gotCount = rowgetter.getRowSQL(count, false);
+        isSql = true;
       }
+      long closeStart = System.nanoTime();
+      exporter.close();
+      rowgetter.addOutputTime(closeStart);
 
       println(getMessage("message.getCount", gotCount));
-
-    } catch (FileNotFoundException e) {
+      printExportThroughput(gotCount, exporter.getByteCount(), exporter.getElapsedNanos());
+      if (codec != OutputCodecs.NONE) {
+        long fileSize = Files.size(path);
+        println(
+            getMessage(
+                "message.exportCompressed",
+                codec.getName(),
+                String.format("%.2f", fileSize / (1024.0 * 1024.0)),
+                String.format(
+                    "%.1f", 100.0 * fileSize / Math.max(exporter.getByteCount(), 1))));
+      }
+      if (isSql) {
+        printSqlCount(gotCount);
+      }
+      printQueryTiming(rowgetter.timing);
+
+    } catch (IOException e) {
       throw new ShellException(getMessage("error.cannotSave", filename), e);
 
     } finally {
-      closeQuitely(writer);
+      if (exporter != null) {
+        exporter.abort();
+      }
+    }
+  }
+
+  /**
+   * Print the throughput of an export.
+   *
+   * @param rowCount number of rows written
+   * @param byteCount number of bytes written
+   * @param elapsedNanos elapsed time in nanoseconds
+   */
+  private void printExportThroughput(long rowCount, long byteCount, long elapsedNanos) {
+    double sec = Math.max(elapsedNanos, 1) / 1e9;
+    double mb = byteCount / (1024.0 * 1024.0);
+    println(
+        getMessage(
+            "message.exportThroughput",
+            rowCount,
+            String.format("%.2f", mb),
+            elapsedNanos / 1000000,
+            String.format("%.0f", rowCount / sec),
+            String.format("%.2f", mb / sec)));
+  }
+
+  /**
+   * Get the codec of a file written by a sub-command.
+   *
+   * <p>Get the value of hidden variable GS_COMPRESSION. If there is no value or the value is
+   * "auto", the codec is selected by the extension of the file name (".gz" for gzip).
+   *
+   * @param fileName the file name
+   * @return the codec
+   * @throws ShellException if there is no codec of the name
+   */
+  private OutputCodec getOutputCodec(String fileName) {
+    String name = getAttributeString(GridStoreShell.NAME_COMPRESSION, "auto").trim();
+    if (name.isEmpty() || name.equalsIgnoreCase("auto")) {
+      return OutputCodecs.forFileName(fileName);
+    }
+    OutputCodec codec = OutputCodecs.forName(name);
+    if (codec == null) {
+      throw new ShellException(getMessage("error.unknownCompression", name));
+    }
+    return codec;
+  }
+
+  /**
+   * Get the compression level of the files written by sub-commands.
+   *
+   * <p>Get the value of hidden variable GS_COMPRESSION_LEVEL. If there is no valid value (0 to 9),
+   * return -1, which means the default level of the codec.
+   *
+   * @return compression level
+   */
+  private int getCompressionLevel() {
+    int level = -1;
+    try {
+      String levelStr = (String) getContext().getAttribute(GridStoreShell.NAME_COMPRESSION_LEVEL);
+      int tmp = Integer.parseInt(levelStr);
+      if (0 <= tmp && tmp <= 9) {
+        level = tmp;
+      }
+    } catch (Exception e) {
+      // Do nothing
     }
+    return level;
+  }
+
+  /**
+   * Get the buffer size of the files written by sub-commands.
+   *
+   * <p>Get the value of hidden variable GS_OUTPUT_BUFFER_SIZE. If there is no valid value, return
+   * the default value.
+   *
+   * @return buffer size in bytes
+   */
+  private int getOutputBufferSize() {
+    int bufferSize = OUTPUT_BUFFER_SIZE_DEFAULT;
+    try {
+      String sizeStr = (String) getContext().getAttribute(GridStoreShell.NAME_OUTPUT_BUFFER_SIZE);
+      int tmp = Integer.parseInt(sizeStr);
+      if (tmp > 0) {
+        bufferSize = tmp;
+      }
+    } catch (Exception e) {
+      // Do nothing
+    }
+    return bufferSize;
+  }
+
+  /**
+   * Open a text file written by a sub-command with the codec selected by {@link
+   * #getOutputCodec(String)}.
+   *
+   * @param fileName the file name
+   * @return the writer of the file, which uses the default charset
+   * @throws IOException if the file cannot be opened
+   */
+  private BufferedWriter newOutputWriter(String fileName) throws IOException {
+    OutputCodec codec = getOutputCodec(fileName);
+    return new BufferedWriter(
+        new OutputStreamWriter(
+            OutputCodecs.newOutputStream(
+                Paths.get(fileName), codec, getOutputBufferSize(), getCompressionLevel()),
+            Charset.defaultCharset()));
+  }
+
+  /**
+   * Get the number of worker threads which format the lines of an export.
+   *
+   * <p>Get the value of hidden variable GS_EXPORT_THREADS. If there is no valid value, return the
+   * smaller of 4 and the number of available processors.
+   *
+   * @return number of worker threads
+   */
+  private int getExportThreads() {
+    int threads = Math.min(EXPORT_THREADS_DEFAULT, Runtime.getRuntime().availableProcessors());
+    try {
+      String threadsStr = (String) getContext().getAttribute(GridStoreShell.NAME_EXPORT_THREADS);
+      int tmp = Integer.parseInt(threadsStr);
+      if (tmp > 0) {
+        threads = tmp;
+      }
+    } catch (Exception e) {
+      // Do nothing
+    }
+    return threads;
+  }
+
+  /**
+   * The main method for sub-command {@code getbin}.<br>
+   * Save the results obtained in a file in the binary row file format, which keeps the types of
+   * the columns. The file can be read by {@link BinaryRowReader}.
+   *
+   * @param filename binary file name
+   * @param count number of search results to be acquired
+   * @throws ShellException if it meets 1 of the below conditions:
+   *     <ul>
+   *       <li>The query has not been executed yet
+   *       <li>The results are not rows (aggregation or EXPLAIN)
+   *       <li>error when saving to the file
+   *       <li>The connection is closed (NewSQL or NoSQL)
+   *     </ul>
+   */
+  @GSCommand(name = "getbin")
+  public void getRowToBinary(String filename, @GSNullable Integer count) {
+    if (queryRowSet != null) {
+      checkConnected();
+      checkQueried();
+    } else if (m_jdbcRS != null) {
+      checkConnectedSQL();
+      checkQueriedSQL();
+    } else {
+      throw new ShellException(getMessage("error.noResultSet"));
+    }
+
+    final int countVal = (count == null) ? Integer.MAX_VALUE : count;
+    final Path path = Paths.get(filename);
+    final OutputCodec codec = getOutputCodec(filename);
+    final long startNanos = System.nanoTime();
+    final QueryTiming timing = m_queryTiming;
+    BinaryRowWriter writer = null;
+    try {
+      int rowNo;
+      boolean isSql = false;
+      if (queryRowSet != null) {
+        if (lastTql != null && lastTql.matches("(?i)^explain .*")) {
+          throw new ShellException(getMessage("error.getbinNotRow"));
+        }
+        ContainerInfo schema = queryRowSet.getSchema();
+        final int colCount = schema.getColumnCount();
+        List<ColumnInfo> columns = new ArrayList<ColumnInfo>(colCount);
+        for (int colNo = 0; colNo < colCount; ++colNo) {
+          columns.add(schema.getColumnInfo(colNo));
+        }
+        writer = new BinaryRowWriter(
+            OutputCodecs.newChannel(path, codec, getOutputBufferSize(), getCompressionLevel()),
+            columns, getOutputBufferSize());
+
+        final RowSet<?> rowSet = queryRowSet;
+        RowPrefetcher.Source<Object, GSException> source =
+            () -> rowSet.hasNext() ? rowSet.next() : null;
+        boolean exhausted = false;
+        try (RowPrefetcher<Object, GSException> rows = new RowPrefetcher<Object, GSException>(
+            (timing == null) ? source : timing.timed(source), countVal, getFetchSize(),
+            isPrefetch(), this::queryObjClose)) {
+          Object[] values = new Object[colCount];
+          for (rowNo = 0; rowNo < countVal; ++rowNo) {
+            Object obj = rows.next();
+            if (obj == null) {
+              exhausted = true;
+              break;
+            }
+            if (!(obj instanceof Row)) {
+              throw new ShellException(getMessage("error.getbinNotRow"));
+            }
+            if (timing != null) {
+              timing.firstRow(startNanos);
+            }
+            Row row = (Row) obj;
+            for (int colNo = 0; colNo < colCount; ++colNo) {
+              values[colNo] = row.getValue(colNo);
+            }
+            writeBinaryRow(writer, values, timing);
+            printBinaryProgress(rowNo + 1);
+          }
+        }
+        if (exhausted) {
+          queryRowSet.close();
+          queryRowSet = null;
+        }
+
+      } else {
+        isSql = true;
+        final SqlRows rs = m_jdbcRS;
+        final int colCount = rs.getColumnCount();
+        final List<ColumnInfo> columns = new ArrayList<ColumnInfo>(colCount);
+        for (int colNo = 0; colNo < colCount; ++colNo) {
+          columns.add(toColumnInfo(rs, colNo + 1));
+        }
+        writer = new BinaryRowWriter(
+            OutputCodecs.newChannel(path, codec, getOutputBufferSize(), getCompressionLevel()),
+            columns, getOutputBufferSize());
+
+        // The fetch stage reads the values of a row while the cursor is on it.
+        RowPrefetcher.Source<Object[], SQLException> source =
+            () -> {
+              if (!rs.next()) {
+                return null;
+              }
+              Object[] values = new Object[colCount];
+              for (int colNo = 0; colNo < colCount; ++colNo) {
+                values[colNo] = getSqlValue(rs, colNo + 1, columns.get(colNo).getType());
+              }
+              return values;
+            };
+        boolean exhausted = false;
+        try (RowPrefetcher<Object[], SQLException> rows = new RowPrefetcher<Object[], SQLException>(
+            (timing == null) ? source : timing.timed(source), countVal, getFetchSize(),
+            isPrefetch(), this::queryObjClose)) {
+          for (rowNo = 0; rowNo < countVal; ++rowNo) {
+            Object[] values = rows.next();
+            if (values == null) {
+              exhausted = true;
+              break;
+            }
+            if (timing != null) {
+              timing.firstRow(startNanos);
+            }
+            writeBinaryRow(writer, values, timing);
+            printBinaryProgress(rowNo + 1);
+          }
+        }
+        if (exhausted) {
+          m_jdbcRS.close();
+          m_jdbcRS = null;
+        }
+      }
+      long closeStart = System.nanoTime();
+      writer.close();
+      if (timing != null) {
+        timing.addOutput(System.nanoTime() - closeStart);
+        timing.addRows(rowNo);
+      }
+
+      println(getMessage("message.getCount", rowNo));
+      printExportThroughput(rowNo, writer.getByteCount(), System.nanoTime() - startNanos);
+      if (isSql) {
+        printSqlCount(rowNo);
+      }
+      printQueryTiming(timing);
+
+    } catch (ShellException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new ShellException(getMessage("error.cannotSave", filename), e);
+    } catch (Exception e) {
+      throw new ShellException(getMessage("error.getrow") + " : msg=[" + e.getMessage() + "]", e);
+    } finally {
+      if (writer != null) {
+        writer.abort();
+      }
+    }
+  }
+
+  private static void writeBinaryRow(BinaryRowWriter writer, Object[] values, QueryTiming timing)
+      throws IOException {
+    if (timing == null) {
+      writer.writeRow(values);
+      return;
+    }
+    long start = System.nanoTime();
+    writer.writeRow(values);
+    timing.addOutput(System.nanoTime() - start);
+  }
+
+  private void printBinaryProgress(int rowNo) {
+    if (rowNo % 1000 == 0) {
+      println(getMessage("message.gotCountProgress", rowNo));
+    }
+  }
+
+  /**
+   * Get the column of the binary row file format from the metadata of an SQL result.
+   *
+   * @param rs the result
+   * @param column the column number (from 1)
+   * @return the column
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  private static ColumnInfo toColumnInfo(SqlRows rs, int column) throws SQLException {
+    ColumnInfo.Builder builder = new ColumnInfo.Builder().setName(rs.getColumnName(column));
+    switch (rs.getColumnType(column)) {
+      case Types.BOOLEAN:
+      case Types.BIT:
+        return builder.setType(GSType.BOOL).toInfo();
+      case Types.TINYINT:
+        return builder.setType(GSType.BYTE).toInfo();
+      case Types.SMALLINT:
+        return builder.setType(GSType.SHORT).toInfo();
+      case Types.INTEGER:
+        return builder.setType(GSType.INTEGER).toInfo();
+      case Types.BIGINT:
+        return builder.setType(GSType.LONG).toInfo();
+      case Types.FLOAT:
+      case Types.REAL:
+        return builder.setType(GSType.FLOAT).toInfo();
+      case Types.DOUBLE:
+        return builder.setType(GSType.DOUBLE).toInfo();
+      case Types.TIMESTAMP:
+        {
+          String typeName = String.valueOf(rs.getColumnTypeName(column));
+          TimeUnit precision = TimeUnit.MILLISECOND;
+          if (typeName.contains("(6)")) {
+            precision = TimeUnit.MICROSECOND;
+          } else if (typeName.contains("(9)")) {
+            precision = TimeUnit.NANOSECOND;
+          }
+          return builder.setType(GSType.TIMESTAMP).setTimePrecision(precision).toInfo();
+        }
+      case Types.BLOB:
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+        return builder.setType(GSType.BLOB).toInfo();
+      default:
+        return builder.setType(GSType.STRING).toInfo();
+    }
+  }
+
+  /**
+   * Get a value of an SQL result as the object written by {@link BinaryRowWriter}.
+   *
+   * @param rs the result
+   * @param column the column number (from 1)
+   * @param type the type of the column
+   * @return the value, or {@code null} if it is NULL
+   * @throws SQLException if the value cannot be acquired
+   */
+  private static Object getSqlValue(SqlRows rs, int column, GSType type) throws SQLException {
+    Object value;
+    switch (type) {
+      case TIMESTAMP:
+        value = rs.getTimestamp(column);
+        break;
+      case BLOB:
+        value = rs.getBytes(column);
+        break;
+      case STRING:
+        value = rs.getString(column);
+        break;
+      default:
+        value = rs.getObject(column);
+        break;
+    }
+    return (value == null || rs.wasNull()) ? null : value;
   }
 
   /**
@@ -3443,6 +5288,7 @@ public class DataCommandClass extends AbstractCommandClass {
           }
         }
         println(getMessage("message.getCount", rowNo));
+        printSqlCount(rowNo);
       } else {
         throw new ShellException(getMessage("error.noResultSet"));
       }
@@ -3473,31 +5319,12 @@ public class DataCommandClass extends AbstractCommandClass {
       throw new ShellException(getMessage("error.missingArgument"));
     }
 
-    final DateTimeFormatter dateTimeFormatter =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
-
     RowGetter rowgetter =
         new RowGetter() {
           @Override
           protected void printLine(int rowNumber, String... line) {
           }
 
-          @Override
-          protected String formatDate(Date date) {
-            // V4.3 タイムゾーン付きのStringに変換
-            ZonedDateTime zdt = null;
-            if (m_connectTimeZoneVal == null) {
-              // タイムゾーン設定がない場合はUTC
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.of("UTC"));
-            } else if ("auto".equals(m_connectTimeZoneVal)) {
-              // タイムゾーン設定がautoの場合はシステムデフォルト
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-            } else {
-              // タイムゾーン設定がある場合は設定値を反映
-              zdt = ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.of(m_connectTimeZoneVal));
-            }
-            return zdt.format(dateTimeFormatter);
-          }
         };
 
     List<String> listVarNames = getListColumnValuesSplit(varNames[0]);
@@ -3568,8 +5395,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
     try {
       // パーティションコンテナ(LARGE)には実行不可
-      ExtendedContainerInfo info =
-          ExperimentalTool.getExtendedContainerInfo(gridStore, containerName);
+      ExtendedContainerInfo info = getExtendedContainerInfo(containerName);
 
       if (info == null || info.getAttribute() == ContainerAttribute.VIEW) {
         throw new ShellException(getMessage("error.containerNotFound", containerName));
@@ -3737,8 +5563,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
     try {
       int rowNo;
-      ResultSetMetaData rsMeta = m_jdbcRS.getMetaData();
-      int colCount = rsMeta.getColumnCount();
+      int colCount = m_jdbcRS.getColumnCount();
       String[] line = new String[colCount];
 
       int countVal = Integer.MAX_VALUE;
@@ -3804,14 +5629,11 @@ public class DataCommandClass extends AbstractCommandClass {
         println(str);
       }
     } else {
-      try {
-        File file = new File(fileName);
-        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+      try (BufferedWriter bw = newOutputWriter(fileName)) {
         for (String str : outputStrList) {
           bw.write(str);
           bw.newLine();
         }
-        bw.close();
       } catch (IOException e) {
         throw new ShellException(
             getMessage("error.getplantxtFileErr") + " : msg=[" + e.getMessage() + "]", e);
@@ -5364,19 +7186,93 @@ public class DataCommandClass extends AbstractCommandClass {
       throw new ShellException(getMessage("error.getplanjson"));
     }
 
-    if (fileName == null) {
-      println(outputStr);
-    } else {
-      try {
-        File file = new File(fileName);
-        BufferedWriter bw = new BufferedWriter(new FileWriter(file));
-        bw.write(outputStr);
-        bw.newLine();
-        bw.close();
-      } catch (IOException e) {
-        throw new ShellException(
-            getMessage("error.getplanjsonFileErr") + " : msg=[" + e.getMessage() + "]", e);
+    if (fileName == null) {
+      println(outputStr);
+    } else {
+      try (BufferedWriter bw = newOutputWriter(fileName)) {
+        bw.write(outputStr);
+        bw.newLine();
+      } catch (IOException e) {
+        throw new ShellException(
+            getMessage("error.getplanjsonFileErr") + " : msg=[" + e.getMessage() + "]", e);
+      }
+    }
+  }
+
+  /**
+   * The main method for sub-command {@code showresultcache}.<br>
+   * Display the statistics of the result cache, which is enabled by the hidden variable
+   * GS_RESULT_CACHE.
+   */
+  @GSCommand
+  public void showresultcache() {
+    println(getMessage("message.resultCacheStats", m_resultCache.getStatistics()));
+  }
+
+  /**
+   * The main method for sub-command {@code showschemacache}.<br>
+   * Display the statistics of the schema cache and the names of the cached containers.
+   */
+  @GSCommand
+  public void showschemacache() {
+    println(getMessage("message.schemaCacheStats", m_schemaCache.getStatistics()));
+    for (String name : m_schemaCache.getNames()) {
+      println("  " + name);
+    }
+  }
+
+  /**
+   * The main method for sub-command {@code flushschemacache}.<br>
+   * Discard the cached schemas of the containers.
+   *
+   * @param containerName container name, all of the containers if omitted
+   */
+  @GSCommand
+  public void flushschemacache(@GSNullable String containerName) {
+    invalidateSchemaCache(containerName);
+  }
+
+  /**
+   * The main method for sub-command {@code showtiming}.<br>
+   * Display the timing breakdown of the last queries executed by {@code tql} and {@code sql}
+   * while the hidden variable GS_QUERY_TIMING is TRUE.
+   *
+   * @param count number of the last queries to display, all of the kept queries if omitted
+   * @throws ShellException if no timing has been recorded
+   */
+  @GSCommand
+  public void showtiming(@GSNullable Integer count) {
+    if (m_queryTimings.isEmpty()) {
+      throw new ShellException(getMessage("error.noQueryTiming"));
+    }
+    int skip = (count == null) ? 0 : Math.max(0, m_queryTimings.size() - count);
+    DateTimeFormatter dateTimeFormatter =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+    ZoneId zoneId =
+        (m_connectTimeZoneVal == null || "auto".equals(m_connectTimeZoneVal))
+            ? ZoneId.systemDefault()
+            : ZoneOffset.of(m_connectTimeZoneVal);
+
+    println("=======================================================================");
+    for (QueryTiming timing : m_queryTimings) {
+      if (skip-- > 0) {
+        continue;
       }
+      String statement = timing.getStatement();
+      if (statement.length() > 75) {
+        statement = statement.substring(0, 75);
+      }
+      printfln("%s: %s", timing.getLanguage(), statement);
+      printfln("start time: %s",
+          ZonedDateTime.ofInstant(new Date(timing.getStartMillis()).toInstant(), zoneId)
+              .format(dateTimeFormatter));
+      printfln("execute (ms): %s", QueryTiming.toMillis(timing.getExecuteNanos()));
+      printfln("first row (ms): %s", QueryTiming.toMillis(timing.getFirstRowNanos()));
+      printfln("fetch (ms): %s", QueryTiming.toMillis(timing.getFetchNanos()));
+      printfln("format (ms): %s", QueryTiming.toMillis(timing.getFormatNanos()));
+      printfln("output (ms): %s", QueryTiming.toMillis(timing.getOutputNanos()));
+      printfln("rows: %d", timing.getRows());
+      println("=======================================================================");
     }
   }
 
@@ -5399,7 +7295,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
     List<SqlInfo> sqlInfos = null;
     try {
-      sqlInfos = GridDBJdbcUtils.getSqlInfo(m_jdbcCon, queryId, false);
+      sqlInfos = m_sqlPool.execute(con -> GridDBJdbcUtils.getSqlInfo(con, queryId, false));
 
     } catch (Exception e) {
       throw new ShellException(getMessage("error.showsql") + " : msg=[" + e.getMessage() + "]", e);
@@ -5933,7 +7829,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
     List<SqlInfo> sqlInfos = null;
     try {
-      sqlInfos = GridDBJdbcUtils.getSqlInfo(m_jdbcCon, queryId, true);
+      sqlInfos = m_sqlPool.execute(con -> GridDBJdbcUtils.getSqlInfo(con, queryId, true));
     } catch (Exception e) {
       throw new ShellException(getMessage("error.killsql") + " : msg=[" + e.getMessage() + "]", e);
     }
@@ -5981,7 +7877,7 @@ public class DataCommandClass extends AbstractCommandClass {
 
     List<SqlInfo> sqlInfos = null;
     try {
-      sqlInfos = GridDBJdbcUtils.getSqlInfoJob(m_jdbcCon, jobId);
+      sqlInfos = m_sqlPool.execute(con -> GridDBJdbcUtils.getSqlInfoJob(con, jobId));
     } catch (Exception e) {
       throw new ShellException(getMessage("error.killjob") + " : msg=[" + e.getMessage() + "]", e);
     }
@@ -6208,6 +8104,122 @@ public class DataCommandClass extends AbstractCommandClass {
     sql("explain " + sql);
   }
 
+  /**
+   * The main method for sub-command {@code sqlbatch}.<br>
+   * Execute independent SQL statements concurrently on auxiliary connections.
+   *
+   * <p>The statements are executed by up to {@code GS_SQL_BATCH_THREADS} threads, each with its
+   * own connection, and the result of each statement is displayed in the order of the statements
+   * as soon as it finishes. The rows of a query are counted, but not kept for {@code get}.
+   *
+   * @param statements the statements, one per line, or {@code <} followed by the name of the file
+   *     which has the statements separated by semicolons ({@code -} for the standard input). The
+   *     keyword {@code STOP} before the statements skips the statements which are not started
+   *     after a statement fails.
+   * @throws ShellException if it meets 1 of the below conditions:
+   *     <ul>
+   *       <li>SQL connection is closed
+   *       <li>No statement is specified
+   *       <li>The file cannot be read
+   *       <li>A statement failed
+   *     </ul>
+   */
+  @GSCommand(multiline = true)
+  public void sqlbatch(@GSNullable String statements) {
+    checkConnectedSQL();
+    queryObjClose();
+
+    String text = (statements == null) ? "" : statements.trim();
+    boolean stopOnError = false;
+    Matcher stop = Pattern.compile("(?i)^STOP(\\s+|$)").matcher(text);
+    if (stop.find()) {
+      stopOnError = true;
+      text = text.substring(stop.end());
+    }
+
+    List<String> sqls;
+    boolean fromFile = text.startsWith("<");
+    try (BufferedReader reader = openRowsReader(text)) {
+      StringBuilder builder = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        builder.append(line).append('\n');
+      }
+      sqls = SqlBatchExecutor.split(builder.toString(), !fromFile);
+    } catch (IOException e) {
+      throw new ShellException(
+          getMessage("error.sqlbatchFileErr") + " : msg=[" + e.getMessage() + "]", e);
+    }
+    if (sqls.isEmpty()) {
+      throw new ShellException(getMessage("error.sqlIsNull"));
+    }
+    for (int i = 0; i < sqls.size(); i++) {
+      if (sqls.get(i).contains("$")) {
+        sqls.set(i, replaceVariable(sqls.get(i)));
+      }
+    }
+
+    // The statements may write to any container or change any schema
+    invalidateResultCache(null);
+    invalidateSchemaCache(null);
+
+    println("No    Status  Count        Time(ms)  Statement");
+    println("--------------------------------------------------------------------------------");
+    int[] statusCounts = new int[SqlBatchExecutor.Status.values().length];
+    long start = System.currentTimeMillis();
+    try (SqlBatchExecutor executor =
+        new SqlBatchExecutor(
+            m_sqlPool,
+            getPositiveIntAttribute(GridStoreShell.NAME_SQL_BATCH_THREADS, SQL_BATCH_THREADS_DEFAULT),
+            stopOnError)) {
+      List<CompletableFuture<SqlBatchExecutor.Result>> futures = executor.start(sqls);
+      for (int i = 0; i < futures.size(); i++) {
+        SqlBatchExecutor.Result result = futures.get(i).get();
+        statusCounts[result.getStatus().ordinal()]++;
+        String summary = result.getSql().replaceAll("\\s+", " ");
+        if (summary.length() > SQL_BATCH_DISPLAY_LENGTH) {
+          summary = summary.substring(0, SQL_BATCH_DISPLAY_LENGTH - 3) + "...";
+        }
+        String count = "";
+        if (result.getStatus() == SqlBatchExecutor.Status.OK) {
+          count = result.getCount() + (result.isQuery() ? " rows" : "");
+        }
+        printfln(
+            "%-5d %-7s %-12s %8s  %s",
+            i + 1,
+            result.getStatus(),
+            count,
+            (result.getStatus() == SqlBatchExecutor.Status.SKIPPED)
+                ? ""
+                : String.valueOf(result.getElapsedMillis()),
+            summary);
+        if (result.getError() != null) {
+          println("      " + result.getError());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.sql") + " : msg=[interrupted]", e);
+    } catch (ExecutionException e) {
+      throw new ShellException(
+          getMessage("error.sql") + " : msg=[" + e.getCause().getMessage() + "]", e.getCause());
+    }
+    println("");
+    println(
+        getMessage(
+            "message.sqlBatch",
+            sqls.size(),
+            statusCounts[SqlBatchExecutor.Status.OK.ordinal()],
+            statusCounts[SqlBatchExecutor.Status.ERROR.ordinal()],
+            statusCounts[SqlBatchExecutor.Status.SKIPPED.ordinal()],
+            System.currentTimeMillis() - start));
+
+    int errors = statusCounts[SqlBatchExecutor.Status.ERROR.ordinal()];
+    if (errors > 0) {
+      throw new ShellException(getMessage("error.sqlbatchFailed", errors));
+    }
+  }
+
   /**
    * The main method for sub-command {@code searchcontainer}.<br>
    * Search container information.
@@ -6222,112 +8234,532 @@ public class DataCommandClass extends AbstractCommandClass {
 
     // Get container information from metadata.
     // Conditions other than container name pattern are ignored.
-    DatabaseMetaData meta;
     try {
-      meta = m_jdbcCon.getMetaData();
-      String[] typeArr = {"TABLE"};
-      try (ResultSet rs = meta.getTables(null, null, containerNamePattern, typeArr)) {
-        // Display container information.
-        while (rs.next()) {
-          System.out.println(rs.getString("TABLE_NAME"));
+      // Display container information.
+      for (String name : getTableNames(containerNamePattern, "TABLE")) {
+        System.out.println(name);
+      }
+    } catch (SQLException e) {
+      throw new ShellException(
+          getMessage("error.searchingContainer") + " : msg=[" + e.getMessage() + "]", e);
+    }
+  }
+
+  /**
+   * The main method for sub-command {@code searchview}.<br>
+   * Search view information.
+   *
+   * @param viewNamePattern view name pattern
+   * @throws SQLException if An unexpected error occurred while search view.
+   * @see DataCommandClass#getTables
+   */
+  @GSCommand
+  public void searchView(@GSNullable String viewNamePattern) {
+    checkConnectedSQL();
+    // Get view information from metadata.
+    // Conditions other than view name pattern are ignored.
+    try {
+      // Display view information.
+      for (String name : getTableNames(viewNamePattern, "VIEW")) {
+        System.out.println(name);
+      }
+    } catch (SQLException e) {
+      throw new ShellException(
+          getMessage("error.searchingView") + " : msg=[" + e.getMessage() + "]", e);
+    }
+  }
+
+  /**
+   * Get the names of the tables or the views from the metadata on an auxiliary connection.
+   *
+   * @param namePattern the name pattern, or {@code null} for all
+   * @param type "TABLE" or "VIEW"
+   * @return the names
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  private List<String> getTableNames(String namePattern, String type) throws SQLException {
+    return m_sqlPool.execute(
+        con -> {
+          List<String> names = new ArrayList<String>();
+          try (ResultSet rs =
+              con.getMetaData().getTables(null, null, namePattern, new String[] {type})) {
+            while (rs.next()) {
+              names.add(rs.getString("TABLE_NAME"));
+            }
+          }
+          return names;
+        });
+  }
+
+  /**
+   * The main method for sub-command {@code putrow}.<br>
+   * Put a row to specified container.
+   *
+   * @param containerName container name
+   * @param columnValues column values
+   * @throws ShellException if it meets 1 of below conditions:
+   *     <ul>
+   *       <li>This connection has already been closed(NoSQL).
+   *       <li>This container does not exists.
+   *       <li>Missing argument when using command.
+   *       <li>Put row with invalid column type value.
+   *       <li>Put row with redundant column.
+   *       <li>Put row with key value is null.
+   *       <li>For composite key, if the number of values is less than number of row key columns.
+   *     </ul>
+   *
+   * @see ExperimentalTool#getExtendedContainerInfo
+   */
+  @GSCommand(assignall = true)
+  public void putRow(String containerName, String... columnValues) {
+    checkConnected();
+    invalidateResultCache(containerName);
+    // Check missing argument
+    if (columnValues.length == 0) {
+      throw new ShellException(getMessage("error.missingArgument"));
+    }
+    List<String> listColumnValuesSplit = getListColumnValuesSplit(columnValues[0]);
+
+    ContainerInfo contInfo = null;
+    try {
+      contInfo = getContainerInfo(containerName);
+      checkContainerExists(containerName, contInfo);
+    } catch (GSException e) {
+      throw new ShellException(
+          getMessage("error.puttingRow") + " : msg=[" + e.getMessage() + "]", e);
+    }
+
+    try {
+      Container<Object, Row> container = getPooledContainer(containerName);
+      checkContainerExists(containerName, container);
+      // Put row with redundant column
+      if (listColumnValuesSplit.size() > contInfo.getColumnCount()) {
+        throw new ShellException(getMessage("error.puttingRowRedundantColumn"));
+      }
+      List<Integer> listKeyColumns = contInfo.getRowKeyColumnList();
+      // Check the number of values is less than number of row key columns
+      if (listColumnValuesSplit.size() < listKeyColumns.size()) {
+        throw new ShellException(getMessage("error.putRowLessThanRowKey"));
+      }
+      Row row = container.createRow();
+      setValueColumn(listColumnValuesSplit, contInfo, row);
+      // The column has no value will be NULL
+      if (listColumnValuesSplit.size() < contInfo.getColumnCount()) {
+        for (int i = listColumnValuesSplit.size(); i < contInfo.getColumnCount(); i++) {
+          row.setNull(i);
+        }
+      }
+      container.put(row);
+    } catch (GSException e) {
+      // The schema may have been changed by another client, or the handle may be broken
+      invalidateSchemaCache(containerName);
+      throw new ShellException(
+          getMessage("error.puttingRow") + " : msg=[" + e.getMessage() + "]", e);
+    }
+  }
+
+  /**
+   * The main method for sub-command {@code putrows}.<br>
+   * Put rows to containers in batches.
+   *
+   * <p>Each line of the rows has the values of a row in the same syntax as {@code putrow}. A line
+   * {@code @<container name>} changes the container to which the following rows are put. The rows
+   * are sent by {@link GridStore#multiPut(Map)} for every {@code GS_PUTROWS_BATCH_SIZE} rows,
+   * grouped by container.
+   *
+   * @param containerName container name
+   * @param rows the lines of the rows, or {@code <} followed by the name of the file which has the
+   *     lines ({@code -} for the standard input)
+   * @throws ShellException if it meets 1 of below conditions:
+   *     <ul>
+   *       <li>This connection has already been closed(NoSQL).
+   *       <li>This container does not exists.
+   *       <li>Missing argument when using command.
+   *       <li>Put row with invalid column type value.
+   *       <li>Put row with redundant column.
+   *       <li>For composite key, if the number of values is less than number of row key columns.
+   *       <li>The file cannot be read.
+   *     </ul>
+   */
+  @GSCommand(multiline = true)
+  public void putrows(String containerName, @GSNullable String rows) {
+    checkConnected();
+    if (rows == null || rows.trim().isEmpty()) {
+      throw new ShellException(getMessage("error.missingArgument"));
+    }
+
+    int batchSize =
+        getPositiveIntAttribute(
+            GridStoreShell.NAME_PUTROWS_BATCH_SIZE, PUTROWS_BATCH_SIZE_DEFAULT);
+    Map<String, ContainerInfo> schemas = new HashMap<String, ContainerInfo>();
+    Map<String, List<Row>> batch = new HashMap<String, List<Row>>();
+    int pending = 0;
+    long putCount = 0;
+    int lineNo = 0;
+    long start = System.currentTimeMillis();
+
+    String trimmed = rows.trim();
+    try (BufferedReader reader = openRowsReader(trimmed)) {
+      String name = containerName;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        ++lineNo;
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        if (line.startsWith("@")) {
+          name = line.substring(1).trim();
+          continue;
+        }
+        ContainerInfo contInfo = schemas.get(name);
+        if (contInfo == null) {
+          contInfo = getContainerInfo(name);
+          checkContainerExists(name, contInfo);
+          schemas.put(name, contInfo);
+          invalidateResultCache(name);
+        }
+        List<Row> containerRows = batch.get(name);
+        if (containerRows == null) {
+          containerRows = new ArrayList<Row>();
+          batch.put(name, containerRows);
+        }
+        containerRows.add(createPutRow(contInfo, getListColumnValuesSplit(line)));
+        if (++pending >= batchSize) {
+          gridStore.multiPut(batch);
+          putCount += pending;
+          pending = 0;
+          batch.clear();
+        }
+      }
+      if (pending > 0) {
+        gridStore.multiPut(batch);
+        putCount += pending;
+      }
+    } catch (ShellException e) {
+      throw new ShellException(
+          e.getMessage() + " : line=[" + lineNo + "] put=[" + putCount + "]", e);
+    } catch (GSException e) {
+      throw new ShellException(
+          getMessage("error.puttingRow")
+              + " : line=["
+              + lineNo
+              + "] put=["
+              + putCount
+              + "] msg=["
+              + e.getMessage()
+              + "]",
+          e);
+    } catch (IOException e) {
+      throw new ShellException(
+          getMessage("error.putrowsFileErr") + " : msg=[" + e.getMessage() + "]", e);
+    }
+
+    long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+    println(getMessage("message.putRows", putCount, elapsed, putCount * 1000 / elapsed));
+  }
+
+  /**
+   * The main method for sub-command {@code loadcsv}.<br>
+   * Put the rows of CSV files in the format written by {@code getcsv}.
+   *
+   * <p>The first line {@code #<column name>,...} maps the values to the columns by name, and the
+   * second line {@code $,<container name>} specifies the container. The rows are grouped by
+   * partition and put by {@code GS_LOAD_THREADS} worker threads through {@link CsvLoader}.
+   *
+   * @param filename CSV file name, which can contain the wildcards {@code *} and {@code ?} in the
+   *     file name part. A file whose name ends with {@code .gz} is decompressed.
+   * @param containerName the container name, which overrides the container names in the files
+   * @throws ShellException if it meets 1 of below conditions:
+   *     <ul>
+   *       <li>This connection has already been closed(NoSQL).
+   *       <li>No files match the file name.
+   *       <li>The container is not specified, or does not exist.
+   *       <li>A column name is not found in the container.
+   *       <li>A column of the file is a BLOB or array column.
+   *       <li>Put row with invalid column type value.
+   *       <li>The file cannot be read.
+   *     </ul>
+   */
+  @GSCommand
+  public void loadcsv(String filename, @GSNullable String containerName) {
+    checkConnected();
+
+    List<Path> files = findLoadFiles(filename);
+    final Properties prop = m_gsProp;
+    final String nullCsv = getNullCsv();
+    Map<String, ContainerInfo> schemas = new HashMap<String, ContainerInfo>();
+    Map<String, Integer> partitions = new HashMap<String, Integer>();
+    String location = filename;
+    long start = System.currentTimeMillis();
+    long putCount = 0;
+
+    PartitionController partCont = null;
+    try (CsvLoader loader =
+        new CsvLoader(
+            () -> GridStoreFactory.getInstance().getGridStore(prop),
+            this::createLoadRow,
+            getLoadThreads(),
+            getPositiveIntAttribute(
+                GridStoreShell.NAME_PUTROWS_BATCH_SIZE, PUTROWS_BATCH_SIZE_DEFAULT))) {
+      partCont = gridStore.getPartitionController();
+      for (Path file : files) {
+        location = file.toString();
+        try (BufferedReader reader = openCsvReader(file)) {
+          CsvLoader.RecordReader records = new CsvLoader.RecordReader(reader);
+          String[] header = null;
+          String name = containerName;
+          ContainerInfo contInfo = null;
+          int[] columnMap = null;
+          int partition = 0;
+          String[] record;
+          for (int recordNo = 0; (record = records.read()) != null; recordNo++) {
+            location = file + ":" + records.getLineNumber();
+            if (recordNo == 0 && record[0] != null && record[0].startsWith("#")) {
+              header = record;
+              header[0] = header[0].substring(1);
+              continue;
+            }
+            if (recordNo <= 1 && record.length == 2 && "$".equals(record[0])) {
+              if (containerName == null) {
+                name = record[1];
+              }
+              continue;
+            }
+            if (contInfo == null) {
+              if (name == null || name.isEmpty()) {
+                throw new ShellException(getMessage("error.loadcsvNoContainer", file));
+              }
+              contInfo = schemas.get(name);
+              if (contInfo == null) {
+                contInfo = getContainerInfo(name);
+                checkContainerExists(name, contInfo);
+                schemas.put(name, contInfo);
+                partitions.put(name, partCont.getPartitionIndexOfContainer(name));
+                invalidateResultCache(name);
+              }
+              partition = partitions.get(name);
+              columnMap = mapLoadColumns(header, contInfo);
+            }
+            if (record.length > columnMap.length) {
+              throw new ShellException(
+                  getMessage("error.puttingRowRedundantColumn") + " : location=[" + location + "]");
+            }
+            String[] values = new String[contInfo.getColumnCount()];
+            for (int i = 0; i < record.length; i++) {
+              String value = record[i];
+              values[columnMap[i]] = (value != null && value.equals(nullCsv)) ? null : value;
+            }
+            loader.add(name, contInfo, partition, values, location);
+          }
+        }
+      }
+      loader.finish();
+      putCount = loader.getPutCount();
+
+    } catch (GSException e) {
+      throw new ShellException(
+          getMessage("error.puttingRow") + " : msg=[" + e.getMessage() + "]", e);
+    } catch (IOException e) {
+      throw new ShellException(
+          getMessage("error.putrowsFileErr")
+              + " : location=["
+              + location
+              + "] msg=["
+              + e.getMessage()
+              + "]",
+          e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ShellException(getMessage("error.puttingRow") + " : msg=[interrupted]", e);
+    } finally {
+      closeQuitely(partCont);
+    }
+
+    long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+    println(getMessage("message.putRows", putCount, elapsed, putCount * 1000 / elapsed));
+  }
+
+  /**
+   * Get the number of worker threads which put the rows of {@code loadcsv}.
+   *
+   * <p>Get the value of hidden variable GS_LOAD_THREADS. If there is no valid value, return the
+   * smaller of {@link #LOAD_THREADS_DEFAULT} and the number of processors.
+   *
+   * @return number of threads
+   */
+  private int getLoadThreads() {
+    return getPositiveIntAttribute(
+        GridStoreShell.NAME_LOAD_THREADS,
+        Math.min(LOAD_THREADS_DEFAULT, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Get the files loaded by {@code loadcsv}.
+   *
+   * @param filename the file name, which can contain the wildcards in the file name part
+   * @return the files sorted by name
+   */
+  private List<Path> findLoadFiles(String filename) {
+    Path path = Paths.get(filename);
+    String name = path.getFileName().toString();
+    List<Path> files = new ArrayList<Path>();
+    if (name.indexOf('*') < 0 && name.indexOf('?') < 0) {
+      files.add(path);
+      return files;
+    }
+    Path dir = (path.getParent() != null) ? path.getParent() : Paths.get(".");
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, name)) {
+      for (Path file : stream) {
+        if (Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new ShellException(
+          getMessage("error.putrowsFileErr") + " : msg=[" + e.getMessage() + "]", e);
+    }
+    if (files.isEmpty()) {
+      throw new ShellException(getMessage("error.loadcsvNoFile", filename));
+    }
+    Collections.sort(files);
+    return files;
+  }
+
+  private static BufferedReader openCsvReader(Path file) throws IOException {
+    InputStream in = Files.newInputStream(file);
+    try {
+      if (file.getFileName().toString().toLowerCase().endsWith(".gz")) {
+        in = new GZIPInputStream(in, OUTPUT_BUFFER_SIZE_DEFAULT);
+      }
+      return new BufferedReader(
+          new InputStreamReader(in, CSV_ENCODING), OUTPUT_BUFFER_SIZE_DEFAULT);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Map the values of the CSV lines to the columns of a container.
+   *
+   * @param header the column names of the header line, or {@code null} to map by position
+   * @param contInfo the container information
+   * @return the column indexes by the position of the values
+   * @throws ShellException if a column is not found, or is a BLOB or array column
+   */
+  private int[] mapLoadColumns(String[] header, ContainerInfo contInfo) {
+    int[] columnMap;
+    if (header == null) {
+      columnMap = new int[contInfo.getColumnCount()];
+      for (int i = 0; i < columnMap.length; i++) {
+        columnMap[i] = i;
+      }
+    } else {
+      columnMap = new int[header.length];
+      for (int i = 0; i < header.length; i++) {
+        columnMap[i] = -1;
+        for (int k = 0; k < contInfo.getColumnCount(); k++) {
+          if (contInfo.getColumnInfo(k).getName().equalsIgnoreCase(header[i])) {
+            columnMap[i] = k;
+            break;
+          }
         }
+        if (columnMap[i] < 0) {
+          throw new ShellException(getMessage("error.loadcsvColumnNotFound", header[i]));
+        }
+      }
+    }
+    // getcsv writes BLOB as "(BLOB)" and arrays in the display form, which cannot be read back
+    for (int k : columnMap) {
+      ColumnInfo columnInfo = contInfo.getColumnInfo(k);
+      if (columnInfo.getType() == GSType.BLOB || columnInfo.getType().name().endsWith("_ARRAY")) {
+        throw new ShellException(
+            getMessage(
+                "error.loadcsvColumnTypeNotSupport", columnInfo.getName(), columnInfo.getType()));
       }
-    } catch (SQLException e) {
-      throw new ShellException(
-          getMessage("error.searchingContainer") + " : msg=[" + e.getMessage() + "]", e);
     }
+    return columnMap;
   }
 
   /**
-   * The main method for sub-command {@code searchview}.<br>
-   * Search view information.
+   * Create a row of {@code loadcsv}, called by the worker threads.
    *
-   * @param viewNamePattern view name pattern
-   * @throws SQLException if An unexpected error occurred while search view.
-   * @see DataCommandClass#getTables
+   * @param store the store of the worker
+   * @param contInfo the container information
+   * @param values the values of the columns, {@code null} for NULL
+   * @param location the file name and the line number
+   * @return the row
+   * @throws GSException if the row cannot be created
    */
-  @GSCommand
-  public void searchView(@GSNullable String viewNamePattern) {
-    checkConnectedSQL();
-    // Get view information from metadata.
-    // Conditions other than view name pattern are ignored.
-    DatabaseMetaData meta;
+  private Row createLoadRow(GridStore store, ContainerInfo contInfo, String[] values,
+      String location) throws GSException {
+    Row row = store.createRow(contInfo);
     try {
-      meta = m_jdbcCon.getMetaData();
-      String[] typeArr = {"VIEW"};
-
-      try (ResultSet rs = meta.getTables(null, null, viewNamePattern, typeArr)) {
-        // Display view information.
-        while (rs.next()) {
-          System.out.println(rs.getString("TABLE_NAME"));
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null) {
+          row.setNull(i);
+        } else {
+          setValueColumn(values[i], i, contInfo.getColumnInfo(i), row);
         }
       }
-    } catch (SQLException e) {
-      throw new ShellException(
-          getMessage("error.searchingView") + " : msg=[" + e.getMessage() + "]", e);
+    } catch (ShellException e) {
+      throw new ShellException(e.getMessage() + " : location=[" + location + "]", e);
+    } catch (GSException e) {
+      throw new GSException(e.getMessage() + " : location=[" + location + "]", e);
     }
+    return row;
   }
 
   /**
-   * The main method for sub-command {@code putrow}.<br>
-   * Put a row to specified container.
-   *
-   * @param containerName container name
-   * @param columnValues column values
-   * @throws ShellException if it meets 1 of below conditions:
-   *     <ul>
-   *       <li>This connection has already been closed(NoSQL).
-   *       <li>This container does not exists.
-   *       <li>Missing argument when using command.
-   *       <li>Put row with invalid column type value.
-   *       <li>Put row with redundant column.
-   *       <li>Put row with key value is null.
-   *       <li>For composite key, if the number of values is less than number of row key columns.
-   *     </ul>
+   * Open the lines of the rows of {@code putrows}.
    *
-   * @see ExperimentalTool#getExtendedContainerInfo
+   * @param rows the lines of the rows, or {@code <} followed by a file name or {@code -}
+   * @return the reader of the lines
+   * @throws IOException if the file cannot be opened
    */
-  @GSCommand(assignall = true)
-  public void putRow(String containerName, String... columnValues) {
-    checkConnected();
-    // Check missing argument
-    if (columnValues.length == 0) {
-      throw new ShellException(getMessage("error.missingArgument"));
+  private BufferedReader openRowsReader(String rows) throws IOException {
+    if (!rows.startsWith("<")) {
+      return new BufferedReader(new StringReader(rows));
+    }
+    String fileName = rows.substring(1).trim();
+    if (fileName.equals("-")) {
+      // The standard input is not closed with the reader
+      return new BufferedReader(new InputStreamReader(System.in, CSV_ENCODING)) {
+        @Override
+        public void close() {
+          // Do nothing
+        }
+      };
     }
-    List<String> listColumnValuesSplit = getListColumnValuesSplit(columnValues[0]);
+    return Files.newBufferedReader(Paths.get(fileName), CSV_ENCODING);
+  }
 
-    ContainerInfo contInfo = null;
-    try {
-      contInfo = gridStore.getContainerInfo(containerName);
-      checkContainerExists(containerName, contInfo);
-    } catch (GSException e) {
-      throw new ShellException(
-          getMessage("error.puttingRow") + " : msg=[" + e.getMessage() + "]", e);
+  /**
+   * Create a row to be put from the values in the same way as {@code putrow}.
+   *
+   * @param contInfo the container information
+   * @param listColumnValuesSplit the values of the columns
+   * @return the row
+   * @throws GSException if the row cannot be created
+   */
+  private Row createPutRow(ContainerInfo contInfo, List<String> listColumnValuesSplit)
+      throws GSException {
+    // Put row with redundant column
+    if (listColumnValuesSplit.size() > contInfo.getColumnCount()) {
+      throw new ShellException(getMessage("error.puttingRowRedundantColumn"));
     }
-
-    try (Container<?, Row> container = gridStore.getContainer(containerName)) {
-      // Put row with redundant column
-      if (listColumnValuesSplit.size() > contInfo.getColumnCount()) {
-        throw new ShellException(getMessage("error.puttingRowRedundantColumn"));
-      }
-      List<Integer> listKeyColumns = contInfo.getRowKeyColumnList();
-      // Check the number of values is less than number of row key columns
-      if (listColumnValuesSplit.size() < listKeyColumns.size()) {
-        throw new ShellException(getMessage("error.putRowLessThanRowKey"));
-      }
-      Row row = container.createRow();
-      setValueColumn(listColumnValuesSplit, contInfo, row);
-      // The column has no value will be NULL
-      if (listColumnValuesSplit.size() < contInfo.getColumnCount()) {
-        for (int i = listColumnValuesSplit.size(); i < contInfo.getColumnCount(); i++) {
-          row.setNull(i);
-        }
-      }
-      container.put(row);
-    } catch (GSException e) {
-      throw new ShellException(
-          getMessage("error.puttingRow") + " : msg=[" + e.getMessage() + "]", e);
+    // Check the number of values is less than number of row key columns
+    if (listColumnValuesSplit.size() < contInfo.getRowKeyColumnList().size()) {
+      throw new ShellException(getMessage("error.putRowLessThanRowKey"));
     }
+    Row row = gridStore.createRow(contInfo);
+    setValueColumn(listColumnValuesSplit, contInfo, row);
+    // The column has no value will be NULL
+    for (int i = listColumnValuesSplit.size(); i < contInfo.getColumnCount(); i++) {
+      row.setNull(i);
+    }
+    return row;
   }
 
   private void setValueColumn(List<String> listColumnValuesSplit, ContainerInfo contInfo, Row row)
@@ -6346,58 +8778,63 @@ public class DataCommandClass extends AbstractCommandClass {
         }
 
       } else {
-        try {
-          switch (columnInfo.getType()) {
-            case STRING:
-              row.setString(i, valueColumn);
-              break;
-            case FLOAT:
-              row.setFloat(i, Float.parseFloat(valueColumn));
-              break;
-            case INTEGER:
-              row.setInteger(i, Integer.parseInt(valueColumn));
-              break;
-            case DOUBLE:
-              row.setDouble(i, Double.parseDouble(valueColumn));
-              break;
-            case BLOB:
-              if (!valueColumn.equalsIgnoreCase("null")) {
-                throw new ShellException(getMessage("error.puttingRowSpecifiedBlobValue"));
-              }
-              break;
-            case BOOL:
-              row.setBool(i, Boolean.parseBoolean(valueColumn));
-              break;
-            case LONG:
-              row.setLong(i, Long.parseLong(valueColumn));
-              break;
-            case TIMESTAMP:
-              if (columnInfo.getTimePrecision() == TimeUnit.MICROSECOND
-                  || columnInfo.getTimePrecision() == TimeUnit.NANOSECOND ) {
-                Timestamp columnTimeStamp = TimestampUtils.parsePrecise(valueColumn);
-                row.setPreciseTimestamp(i, columnTimeStamp);
-              }
-              else { // MILISECOND timestamp still use Date type
-                Date columnTimeStampDate = TimestampUtils.parse(valueColumn);
-                row.setTimestamp(i, columnTimeStampDate);
-              }
-              break;
-            case BYTE:
-              row.setByte(i, Byte.parseByte(valueColumn));
-              break;
-            case SHORT:
-              row.setShort(i, Short.parseShort(valueColumn));
-              break;
-            default:
-              throw new ShellException(
-                  getMessage("error.puttingRowColumnTypeNotSupport", columnInfo.getType()));
+        setValueColumn(valueColumn, i, columnInfo, row);
+      }
+    }
+  }
+
+  private void setValueColumn(String valueColumn, int i, ColumnInfo columnInfo, Row row)
+      throws GSException {
+    try {
+      switch (columnInfo.getType()) {
+        case STRING:
+          row.setString(i, valueColumn);
+          break;
+        case FLOAT:
+          row.setFloat(i, Float.parseFloat(valueColumn));
+          break;
+        case INTEGER:
+          row.setInteger(i, Integer.parseInt(valueColumn));
+          break;
+        case DOUBLE:
+          row.setDouble(i, Double.parseDouble(valueColumn));
+          break;
+        case BLOB:
+          if (!valueColumn.equalsIgnoreCase("null")) {
+            throw new ShellException(getMessage("error.puttingRowSpecifiedBlobValue"));
+          }
+          break;
+        case BOOL:
+          row.setBool(i, Boolean.parseBoolean(valueColumn));
+          break;
+        case LONG:
+          row.setLong(i, Long.parseLong(valueColumn));
+          break;
+        case TIMESTAMP:
+          if (columnInfo.getTimePrecision() == TimeUnit.MICROSECOND
+              || columnInfo.getTimePrecision() == TimeUnit.NANOSECOND ) {
+            Timestamp columnTimeStamp = TimestampUtils.parsePrecise(valueColumn);
+            row.setPreciseTimestamp(i, columnTimeStamp);
+          }
+          else { // MILISECOND timestamp still use Date type
+            Date columnTimeStampDate = TimestampUtils.parse(valueColumn);
+            row.setTimestamp(i, columnTimeStampDate);
           }
-        } catch (NumberFormatException | ParseException e) {
+          break;
+        case BYTE:
+          row.setByte(i, Byte.parseByte(valueColumn));
+          break;
+        case SHORT:
+          row.setShort(i, Short.parseShort(valueColumn));
+          break;
+        default:
           throw new ShellException(
-              getMessage("error.puttingRowInvalidColumnValue") + " : msg=[" + e.getMessage() + "]",
-              e);
-        }
+              getMessage("error.puttingRowColumnTypeNotSupport", columnInfo.getType()));
       }
+    } catch (NumberFormatException | ParseException e) {
+      throw new ShellException(
+          getMessage("error.puttingRowInvalidColumnValue") + " : msg=[" + e.getMessage() + "]",
+          e);
     }
   }
 
@@ -6454,6 +8891,7 @@ public class DataCommandClass extends AbstractCommandClass {
   @GSCommand(assignall = true)
   public void removeRow(String containerName, String... columnKeyValues) {
     checkConnected();
+    invalidateResultCache(containerName);
     if (columnKeyValues.length == 0) {
       throw new ShellException(getMessage("error.missingArgument"));
     }
@@ -6462,14 +8900,16 @@ public class DataCommandClass extends AbstractCommandClass {
     ContainerInfo contInfo = null;
 
     try {
-      contInfo = gridStore.getContainerInfo(containerName);
+      contInfo = getContainerInfo(containerName);
       checkContainerExists(containerName, contInfo);
     } catch (GSException e) {
       throw new ShellException(
           getMessage("error.removingRow") + " : msg=[" + e.getMessage() + "]", e);
     }
 
-    try (Container<Object, Row> container = gridStore.getContainer(containerName)) {
+    try {
+      Container<Object, Row> container = getPooledContainer(containerName);
+      checkContainerExists(containerName, container);
       List<Integer> listKeyColumn = contInfo.getRowKeyColumnList();
       // Check container is no row key
       // Check container is lack row key value
@@ -6491,10 +8931,295 @@ public class DataCommandClass extends AbstractCommandClass {
       setValueColumn(listKeyValuesSplit, contInfo, row);
       Key key = row.createKey();
       container.remove(key);
+    } catch (GSException e) {
+      // The schema may have been changed by another client, or the handle may be broken
+      invalidateSchemaCache(containerName);
+      throw new ShellException(
+          getMessage("error.removingRow") + " : msg=[" + e.getMessage() + "]", e);
+    }
+  }
+
+  /**
+   * The main method for sub-command {@code removerows}.<br>
+   * Remove rows from specified container by specifying many row keys.
+   *
+   * <p>The rows are removed with the auto commit disabled, and committed for every {@code
+   * GS_REMOVEROWS_BATCH_SIZE} rows.
+   *
+   * @param containerName container name
+   * @param keys the lines of the row keys, {@code <} followed by the name of the file which has the
+   *     lines ({@code -} for the standard input), or {@code @result} to remove the rows of the
+   *     keys of the current search results. A line has the values of a row key in the same syntax
+   *     as {@code removerow}, or several row keys if the row key has a single column.
+   * @throws ShellException if it meets 1 of below conditions:
+   *     <ul>
+   *       <li>This connection has already been closed(NoSQL).
+   *       <li>This container does not exists.
+   *       <li>Missing argument when using command.
+   *       <li>Remove row from container has no row key.
+   *       <li>The search results do not have the row key columns.
+   *       <li>The file cannot be read.
+   *     </ul>
+   */
+  @GSCommand(multiline = true)
+  public void removerows(String containerName, @GSNullable String keys) {
+    checkConnected();
+    if (keys == null || keys.trim().isEmpty()) {
+      throw new ShellException(getMessage("error.missingArgument"));
+    }
+    invalidateResultCache(containerName);
+
+    ContainerInfo contInfo = null;
+    try {
+      contInfo = getContainerInfo(containerName);
+      checkContainerExists(containerName, contInfo);
     } catch (GSException e) {
       throw new ShellException(
           getMessage("error.removingRow") + " : msg=[" + e.getMessage() + "]", e);
     }
+    if (contInfo.getRowKeyColumnList().isEmpty()) {
+      throw new ShellException(getMessage("error.removingNoRowKey"));
+    }
+
+    int batchSize =
+        getPositiveIntAttribute(
+            GridStoreShell.NAME_REMOVEROWS_BATCH_SIZE, REMOVEROWS_BATCH_SIZE_DEFAULT);
+    RowRemover remover = null;
+    long start = System.currentTimeMillis();
+    String trimmed = keys.trim();
+    try (Container<Object, Row> container = gridStore.getContainer(containerName)) {
+      checkContainerExists(containerName, container);
+      remover = new RowRemover(container, gridStore.createRowKey(contInfo), batchSize);
+      if (trimmed.equalsIgnoreCase("@result")) {
+        removeResultRows(remover);
+      } else {
+        removeKeyLines(remover, trimmed);
+      }
+      remover.commit();
+
+    } catch (GSException | SQLException e) {
+      throw new ShellException(
+          getMessage("error.removingRow")
+              + " : committed=["
+              + ((remover != null) ? remover.committed : 0)
+              + "] msg=["
+              + e.getMessage()
+              + "]",
+          e);
+    } catch (IOException e) {
+      throw new ShellException(
+          getMessage("error.putrowsFileErr") + " : msg=[" + e.getMessage() + "]", e);
+    }
+
+    long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+    println(
+        getMessage(
+            "message.removeRows",
+            remover.removed,
+            remover.notFound,
+            elapsed,
+            (remover.removed + remover.notFound) * 1000 / elapsed));
+  }
+
+  /**
+   * Removes the rows of a container by row key in transactions of a number of rows.
+   *
+   * <p>The row key object is created once and reused for all of the keys.
+   */
+  private class RowRemover {
+    private final Container<Object, Row> container;
+    private final Key key;
+    private final ContainerInfo keySchema;
+    private final int batchSize;
+    private int uncommitted;
+    private long removed;
+    private long notFound;
+    private long committed;
+
+    RowRemover(Container<Object, Row> container, Key key, int batchSize) throws GSException {
+      this.container = container;
+      this.key = key;
+      this.keySchema = key.getSchema();
+      this.batchSize = batchSize;
+      container.setAutoCommit(false);
+    }
+
+    int getKeyColumnCount() {
+      return keySchema.getColumnCount();
+    }
+
+    String getKeyColumnName(int column) {
+      return keySchema.getColumnInfo(column).getName();
+    }
+
+    /**
+     * Remove the row of a key given by strings.
+     *
+     * @param values the values of the key columns
+     * @throws GSException if the row cannot be removed
+     */
+    void remove(List<String> values) throws GSException {
+      for (int i = 0; i < values.size(); i++) {
+        setValueColumn(values.get(i), i, keySchema.getColumnInfo(i), key);
+      }
+      remove();
+    }
+
+    /**
+     * Remove the row of a key given by objects.
+     *
+     * @param values the values of the key columns
+     * @throws GSException if the row cannot be removed
+     */
+    void remove(Object[] values) throws GSException {
+      for (int i = 0; i < values.length; i++) {
+        key.setValue(i, values[i]);
+      }
+      remove();
+    }
+
+    /**
+     * Remove the row of the key in the current row of an SQL result. The values are converted
+     * to the types of the key columns in the same way as the keys given by strings.
+     *
+     * @param rs the result
+     * @param columns the column numbers of the key columns in the result
+     * @throws GSException if the row cannot be removed
+     * @throws SQLException if the values cannot be acquired
+     */
+    void remove(SqlRows rs, int[] columns) throws GSException, SQLException {
+      for (int i = 0; i < columns.length; i++) {
+        ColumnInfo columnInfo = keySchema.getColumnInfo(i);
+        Object value = rs.getObject(columns[i]);
+        if (value == null || rs.wasNull()) {
+          throw new ShellException(getMessage("error.putRowLessThanRowKey"));
+        }
+        if (columnInfo.getType() == GSType.TIMESTAMP && value instanceof Date) {
+          Timestamp timestamp = rs.getTimestamp(columns[i]);
+          if (columnInfo.getTimePrecision() == TimeUnit.MICROSECOND
+              || columnInfo.getTimePrecision() == TimeUnit.NANOSECOND) {
+            key.setPreciseTimestamp(i, timestamp);
+          } else {
+            key.setTimestamp(i, timestamp);
+          }
+        } else {
+          setValueColumn(rs.getString(columns[i]), i, columnInfo, key);
+        }
+      }
+      remove();
+    }
+
+    private void remove() throws GSException {
+      if (container.remove(key)) {
+        removed++;
+      } else {
+        notFound++;
+      }
+      if (++uncommitted >= batchSize) {
+        commit();
+        println(getMessage("message.removeRowsProgress", removed + notFound));
+      }
+    }
+
+    void commit() throws GSException {
+      if (uncommitted > 0) {
+        container.commit();
+        uncommitted = 0;
+        committed = removed;
+      }
+    }
+  }
+
+  private void removeKeyLines(RowRemover remover, String keys) throws GSException, IOException {
+    int keyCount = remover.getKeyColumnCount();
+    try (BufferedReader reader = openRowsReader(keys)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        List<String> values = getListColumnValuesSplit(line);
+        // Check key value is null
+        for (String value : values) {
+          if (value.equalsIgnoreCase("null")) {
+            throw new ShellException(getMessage("error.putRowLessThanRowKey"));
+          }
+        }
+        if (keyCount == 1) {
+          // Several keys in a line
+          for (String value : values) {
+            remover.remove(Collections.singletonList(value));
+          }
+        } else if (values.size() == keyCount) {
+          remover.remove(values);
+        } else {
+          throw new ShellException(getMessage("error.putRowLessThanRowKey"));
+        }
+      }
+    }
+  }
+
+  private void removeResultRows(RowRemover remover) throws GSException, SQLException {
+    int keyCount = remover.getKeyColumnCount();
+    int[] columns = new int[keyCount];
+    // The results are kept if the key columns are not found
+    if (queryRowSet != null) {
+      ContainerInfo schema = queryRowSet.getSchema();
+      for (int i = 0; i < keyCount; i++) {
+        columns[i] = -1;
+        for (int k = 0; k < schema.getColumnCount(); k++) {
+          if (schema.getColumnInfo(k).getName().equalsIgnoreCase(remover.getKeyColumnName(i))) {
+            columns[i] = k;
+            break;
+          }
+        }
+        if (columns[i] < 0) {
+          throw new ShellException(
+              getMessage("error.removeRowsNoKeyColumn", remover.getKeyColumnName(i)));
+        }
+      }
+    } else if (m_jdbcRS != null) {
+      for (int i = 0; i < keyCount; i++) {
+        columns[i] = -1;
+        for (int k = 1; k <= m_jdbcRS.getColumnCount(); k++) {
+          if (m_jdbcRS.getColumnLabel(k).equalsIgnoreCase(remover.getKeyColumnName(i))) {
+            columns[i] = k;
+            break;
+          }
+        }
+        if (columns[i] < 0) {
+          throw new ShellException(
+              getMessage("error.removeRowsNoKeyColumn", remover.getKeyColumnName(i)));
+        }
+      }
+    } else {
+      throw new ShellException(getMessage("error.noResultSet"));
+    }
+
+    try {
+      if (queryRowSet != null) {
+        Object[] values = new Object[keyCount];
+        while (queryRowSet.hasNext()) {
+          Object obj = queryRowSet.next();
+          if (!(obj instanceof Row)) {
+            throw new ShellException(
+                getMessage("error.removeRowsNoKeyColumn", remover.getKeyColumnName(0)));
+          }
+          for (int i = 0; i < keyCount; i++) {
+            values[i] = ((Row) obj).getValue(columns[i]);
+          }
+          remover.remove(values);
+        }
+      } else {
+        while (m_jdbcRS.next()) {
+          remover.remove(m_jdbcRS, columns);
+        }
+      }
+    } finally {
+      // The results are consumed
+      queryObjClose();
+    }
   }
 
   /**
@@ -6568,11 +9293,20 @@ public class DataCommandClass extends AbstractCommandClass {
    * The main method for sub-command {@code setresultformat}.<br>
    * Set the format to display the query result
    *
-   * @param format The format of query result: choose TABLE or CSV.
-   * @throws ShellException when format is invalid.
+   * @param format The format of query result: choose TABLE, CSV or STREAM.
+   * @param sampleRows The number of rows used to decide the column widths when the format is
+   *     STREAM. 0 means every column has the maximum width.
+   * @throws ShellException when format or the number of sample rows is invalid.
    */
   @GSCommand(name = "setresultformat")
-  public void setResultFormat(@GSNullable String format) {
+  public void setResultFormat(@GSNullable String format, @GSNullable Integer sampleRows) {
+    if (sampleRows != null) {
+      if (sampleRows < MIN_RESULT_SAMPLE_ROWS_LIMIT || sampleRows > MAX_RESULT_SAMPLE_ROWS_LIMIT) {
+        throw new ShellException(getMessage(
+            "error.illegalEnum", sampleRows, ": "
+            + MIN_RESULT_SAMPLE_ROWS_LIMIT + " -> " + MAX_RESULT_SAMPLE_ROWS_LIMIT));
+      }
+    }
     if (format != null) {
       String resultFormat = format.toUpperCase();
       try {
@@ -6584,12 +9318,17 @@ public class DataCommandClass extends AbstractCommandClass {
     } else {
       m_resultFormat = ResultFormat.TABLE;
     }
+    m_resultSampleRows = (sampleRows != null) ? sampleRows : RESULT_SAMPLE_ROWS_DEFAULT;
   }
 
   private int getResultMaxColumnWidth() {
     return m_resultMaxWidth != null ? m_resultMaxWidth : MAX_COLUMN_WIDTH_DEFAULT;
   }
 
+  private int getResultSampleRows() {
+    return m_resultSampleRows != null ? m_resultSampleRows : RESULT_SAMPLE_ROWS_DEFAULT;
+  }
+
   private ResultFormat getResultFormat() {
     return m_resultFormat != null ? m_resultFormat : ResultFormat.TABLE;
   }
@@ -0,0 +1,159 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded LRU map with expiry and the statistics shown by the cache sub-commands, shared by
+ * {@link QueryResultCache} and {@link SchemaCache}.
+ *
+ * <p>This class is not thread-safe. The caches synchronize the access to it.
+ *
+ * @param <V> type of the values
+ */
+class LruCache<V> {
+
+  private final LinkedHashMap<String, Entry<V>> entries =
+      new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+
+  private static class Entry<V> {
+    final V value;
+    final long createdNanos;
+
+    Entry(V value) {
+      this.value = value;
+      this.createdNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Get a value, and mark it as the most recently used. An expired entry is removed. Neither a
+   * hit nor a miss is counted.
+   *
+   * @param key the key
+   * @param ttlMillis time to live of the entries in milliseconds, 0 or less for no expiry
+   * @return the value, or {@code null} if not cached or expired
+   */
+  V get(String key, long ttlMillis) {
+    Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (ttlMillis > 0 && (System.nanoTime() - entry.createdNanos) / 1000000 >= ttlMillis) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.value;
+  }
+
+  /**
+   * Add a value, and evict the least recently used entries over the maximum number.
+   *
+   * @param key the key
+   * @param value the value
+   * @param maxEntries maximum number of entries
+   */
+  void put(String key, V value, int maxEntries) {
+    entries.put(key, new Entry<V>(value));
+    Iterator<Entry<V>> it = entries.values().iterator();
+    while (entries.size() > maxEntries && it.hasNext()) {
+      it.next();
+      it.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * Invalidate an entry.
+   *
+   * @param key the key
+   */
+  void invalidate(String key) {
+    if (entries.remove(key) != null) {
+      invalidations++;
+    }
+  }
+
+  /**
+   * Invalidate the entries whose values match a condition.
+   *
+   * @param filter the condition
+   */
+  void invalidateIf(Predicate<V> filter) {
+    Iterator<Entry<V>> it = entries.values().iterator();
+    while (it.hasNext()) {
+      if (filter.test(it.next().value)) {
+        it.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  /** Invalidate all of the entries. */
+  void invalidateAll() {
+    invalidations += entries.size();
+    entries.clear();
+  }
+
+  /** Count a hit. */
+  void hit() {
+    hits++;
+  }
+
+  /** Count a miss. */
+  void miss() {
+    misses++;
+  }
+
+  /**
+   * Get the values, from the least recently used.
+   *
+   * @return the values
+   */
+  List<V> values() {
+    List<V> values = new ArrayList<V>(entries.size());
+    for (Entry<V> entry : entries.values()) {
+      values.add(entry.value);
+    }
+    return values;
+  }
+
+  /**
+   * Get the statistics for display.
+   *
+   * @return the statistics in the order of entries, hits, misses, hit ratio (%), evictions and
+   *     invalidations
+   */
+  Object[] getStatistics() {
+    long total = hits + misses;
+    return new Object[] {
+      entries.size(),
+      hits,
+      misses,
+      String.format("%.1f", total == 0 ? 0.0 : 100.0 * hits / total),
+      evictions,
+      invalidations
+    };
+  }
+}
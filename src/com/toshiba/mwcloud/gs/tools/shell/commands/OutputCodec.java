@@ -0,0 +1,52 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the bytes of a file written by a sub-command, such as {@code getcsv}.
+ *
+ * <p>The codecs other than the built-in ones ({@code none} and {@code gzip}) are loaded with
+ * {@link java.util.ServiceLoader}. See {@link OutputCodecs}.
+ */
+public interface OutputCodec {
+
+  /**
+   * Get the name of the codec, which is specified by hidden variable GS_COMPRESSION.
+   *
+   * @return name of the codec (case insensitive)
+   */
+  String getName();
+
+  /**
+   * Get the file name extension of the codec, which selects the codec when GS_COMPRESSION is not
+   * specified.
+   *
+   * @return file name extension including the leading dot, or an empty string if there is none
+   */
+  String getExtension();
+
+  /**
+   * Wrap the output stream of a file.
+   *
+   * @param out the output stream of the file
+   * @param bufferSize buffer size in bytes
+   * @param level compression level, or -1 for the default level of the codec
+   * @return the stream which encodes the bytes written to it, closing it closes {@code out}
+   * @throws IOException if an I/O error occurs
+   */
+  OutputStream wrap(OutputStream out, int bufferSize, int level) throws IOException;
+}
@@ -0,0 +1,180 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/** Built-in {@link OutputCodec}s and the utilities to open files with them. */
+final class OutputCodecs {
+
+  /** Codec which writes the bytes as they are. */
+  static final OutputCodec NONE =
+      new OutputCodec() {
+        @Override
+        public String getName() {
+          return "none";
+        }
+
+        @Override
+        public String getExtension() {
+          return "";
+        }
+
+        @Override
+        public OutputStream wrap(OutputStream out, int bufferSize, int level) {
+          return new BufferedOutputStream(out, bufferSize);
+        }
+      };
+
+  /** Codec which compresses the bytes in the gzip format. */
+  static final OutputCodec GZIP =
+      new OutputCodec() {
+        @Override
+        public String getName() {
+          return "gzip";
+        }
+
+        @Override
+        public String getExtension() {
+          return ".gz";
+        }
+
+        @Override
+        public OutputStream wrap(OutputStream out, int bufferSize, int level) throws IOException {
+          final int deflaterLevel = (level < 0) ? Deflater.DEFAULT_COMPRESSION : level;
+          return new GZIPOutputStream(out, bufferSize) {
+            {
+              def.setLevel(deflaterLevel);
+            }
+          };
+        }
+      };
+
+  private static List<OutputCodec> codecs;
+
+  private OutputCodecs() {}
+
+  /**
+   * Get the available codecs.
+   *
+   * @return the built-in codecs followed by the codecs loaded with {@code ServiceLoader}
+   */
+  static synchronized List<OutputCodec> getCodecs() {
+    if (codecs == null) {
+      List<OutputCodec> list = new ArrayList<OutputCodec>();
+      list.add(NONE);
+      list.add(GZIP);
+      for (OutputCodec codec :
+          ServiceLoader.load(OutputCodec.class, OutputCodec.class.getClassLoader())) {
+        list.add(codec);
+      }
+      codecs = Collections.unmodifiableList(list);
+    }
+    return codecs;
+  }
+
+  /**
+   * Get the codec of the name.
+   *
+   * @param name name of the codec (case insensitive)
+   * @return the codec, or {@code null} if there is no such codec
+   */
+  static OutputCodec forName(String name) {
+    String lowerName = name.toLowerCase(Locale.ROOT);
+    for (OutputCodec codec : getCodecs()) {
+      if (codec.getName().toLowerCase(Locale.ROOT).equals(lowerName)) {
+        return codec;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the codec of the file name extension.
+   *
+   * @param fileName the file name
+   * @return the codec, or {@link #NONE} if no codec has the extension
+   */
+  static OutputCodec forFileName(String fileName) {
+    String lowerName = fileName.toLowerCase(Locale.ROOT);
+    for (OutputCodec codec : getCodecs()) {
+      String ext = codec.getExtension();
+      if (!ext.isEmpty() && lowerName.endsWith(ext.toLowerCase(Locale.ROOT))) {
+        return codec;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Open a file to write with the codec.
+   *
+   * @param path the file
+   * @param codec the codec
+   * @param bufferSize buffer size in bytes
+   * @param level compression level, or -1 for the default level of the codec
+   * @return the output stream
+   * @throws IOException if the file cannot be opened
+   */
+  static OutputStream newOutputStream(Path path, OutputCodec codec, int bufferSize, int level)
+      throws IOException {
+    OutputStream out = Files.newOutputStream(path);
+    try {
+      return codec.wrap(out, bufferSize, level);
+    } catch (IOException | RuntimeException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Open a file to write with the codec as a channel.
+   *
+   * <p>If the codec is {@link #NONE}, the {@code FileChannel} of the file is returned so that the
+   * buffers are written to the file directly.
+   *
+   * @param path the file
+   * @param codec the codec
+   * @param bufferSize buffer size in bytes
+   * @param level compression level, or -1 for the default level of the codec
+   * @return the channel
+   * @throws IOException if the file cannot be opened
+   */
+  static WritableByteChannel newChannel(Path path, OutputCodec codec, int bufferSize, int level)
+      throws IOException {
+    if (codec == NONE) {
+      return FileChannel.open(
+          path,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    return Channels.newChannel(newOutputStream(path, codec, bufferSize, level));
+  }
+}
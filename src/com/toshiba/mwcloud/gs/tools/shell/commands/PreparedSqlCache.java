@@ -0,0 +1,310 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of the prepared statements of a connection, used by {@code sql} to execute
+ * the statements with shell variables as parameters.
+ *
+ * <p>A {@code $var} reference outside of the quotes, whose value is a number or a boolean, is
+ * turned into a {@code ?} parameter by {@link Template}. The SQL text sent to the server is then
+ * the same for all of the values of the variables, so that the statement is parsed only once.
+ *
+ * <p>Only the references which are standalone operands are turned into parameters, and the
+ * statements with the other references are expanded as text. A string is never bound, because
+ * the server converts a string literal to the type of the other operand, e.g. TIMESTAMP, while a
+ * string parameter is compared as a string.
+ */
+class PreparedSqlCache implements Closeable {
+
+  private final LinkedHashMap<String, PreparedStatement> statements =
+      new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+
+  /**
+   * Get the prepared statement of an SQL text, preparing it if it is not cached.
+   *
+   * @param con the connection
+   * @param sql the SQL text with parameters
+   * @param maxSize maximum number of the cached statements
+   * @return the prepared statement, which must not be closed by the caller
+   * @throws SQLException if the statement cannot be prepared
+   */
+  PreparedStatement prepare(Connection con, String sql, int maxSize) throws SQLException {
+    PreparedStatement stmt = statements.get(sql);
+    if (stmt != null && !stmt.isClosed()) {
+      return stmt;
+    }
+    stmt = con.prepareStatement(sql);
+    statements.put(sql, stmt);
+    Iterator<PreparedStatement> it = statements.values().iterator();
+    while (statements.size() > maxSize && it.hasNext()) {
+      closeQuietly(it.next());
+      it.remove();
+    }
+    return stmt;
+  }
+
+  /**
+   * Close a statement and remove it from the cache, for example after it failed.
+   *
+   * @param sql the SQL text with parameters
+   */
+  void remove(String sql) {
+    PreparedStatement stmt = statements.remove(sql);
+    if (stmt != null) {
+      closeQuietly(stmt);
+    }
+  }
+
+  /** Close all of the cached statements. */
+  @Override
+  public void close() {
+    for (PreparedStatement stmt : statements.values()) {
+      closeQuietly(stmt);
+    }
+    statements.clear();
+  }
+
+  private static void closeQuietly(PreparedStatement stmt) {
+    try {
+      stmt.close();
+    } catch (SQLException e) {
+      // Do nothing
+    }
+  }
+
+  /** An SQL text whose variable references are replaced with parameters. */
+  static class Template {
+
+    private static final Pattern INTEGER = Pattern.compile("[+-]?\\d+");
+    private static final Pattern DECIMAL =
+        Pattern.compile("[+-]?(\\d+\\.\\d*|\\.\\d+|\\d+(?=[eE]))([eE][+-]?\\d+)?");
+    private static final String OPERAND_PRECEDING = "=<>(,";
+    private static final String OPERAND_FOLLOWING = "=<>!),;";
+
+    private final String sql;
+    private final List<String> variables;
+
+    private Template(String sql, List<String> variables) {
+      this.sql = sql;
+      this.variables = variables;
+    }
+
+    /**
+     * Parse an SQL text.
+     *
+     * @param text the SQL text
+     * @return the template, or {@code null} if the text has no variable references, or has a
+     *     variable reference which cannot be a parameter (in a comment, in a quoted string,
+     *     following an identifier character, or not a standalone operand)
+     */
+    static Template parse(String text) {
+      StringBuilder sql = new StringBuilder(text.length());
+      List<String> variables = new ArrayList<String>();
+      int len = text.length();
+      int i = 0;
+      while (i < len) {
+        char c = text.charAt(i);
+        if (c == '$') {
+          int end = identifierEnd(text, i + 1);
+          if (end > i + 1 && i > 0 && VariableTemplate.isNameChar(text.charAt(i - 1))) {
+            // A part of an identifier, e.g. sensor_$suffix
+            return null;
+          }
+          if (end > i + 1) {
+            if (!isOperand(text, i, end)) {
+              // e.g. x-$v, which would change its meaning with a negative value
+              return null;
+            }
+            variables.add(text.substring(i + 1, end));
+            sql.append('?');
+            i = end;
+            continue;
+          }
+        } else if (c == '\'' || c == '"' || text.startsWith("--", i) || text.startsWith("/*", i)) {
+          int end;
+          if (c == '\'' || c == '"') {
+            end = literalEnd(text, i, c);
+          } else if (c == '-') {
+            end = text.indexOf('\n', i);
+            end = (end < 0) ? len : end;
+          } else {
+            end = text.indexOf("*/", i + 2);
+            end = (end < 0) ? len : end + 2;
+          }
+          if (hasReference(text, i, end)) {
+            return null;
+          }
+          sql.append(text, i, end);
+          i = end;
+          continue;
+        }
+        sql.append(c);
+        i++;
+      }
+      if (variables.isEmpty()) {
+        return null;
+      }
+      return new Template(sql.toString(), variables);
+    }
+
+    /**
+     * Check whether a variable reference is a standalone operand, which follows a comparison
+     * operator, {@code (}, {@code ,}, {@code AND} or {@code BETWEEN}, and is followed by a
+     * comparison operator, {@code )}, {@code ,}, {@code ;}, a keyword or the end of the text.
+     * The references next to the arithmetic or concatenation operators are not operands.
+     *
+     * @param text the SQL text
+     * @param start the position of {@code $}
+     * @param end the end of the variable name
+     * @return {@code true} if the reference is a standalone operand
+     */
+    private static boolean isOperand(String text, int start, int end) {
+      int prev = start - 1;
+      while (prev >= 0 && Character.isWhitespace(text.charAt(prev))) {
+        prev--;
+      }
+      if (prev < 0) {
+        return false;
+      }
+      if (OPERAND_PRECEDING.indexOf(text.charAt(prev)) < 0) {
+        int wordStart = prev + 1;
+        while (wordStart > 0 && VariableTemplate.isNameChar(text.charAt(wordStart - 1))) {
+          wordStart--;
+        }
+        String word = text.substring(wordStart, prev + 1);
+        if (!word.equalsIgnoreCase("AND") && !word.equalsIgnoreCase("BETWEEN")) {
+          return false;
+        }
+      }
+      int next = end;
+      while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+        next++;
+      }
+      if (next == text.length() || OPERAND_FOLLOWING.indexOf(text.charAt(next)) >= 0) {
+        return true;
+      }
+      return Character.isLetter(text.charAt(next));
+    }
+
+    private static boolean hasReference(String text, int start, int end) {
+      for (int i = text.indexOf('$', start); i >= 0 && i < end; i = text.indexOf('$', i + 1)) {
+        if (identifierEnd(text, i + 1) > i + 1) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static int identifierEnd(String text, int start) {
+      int i = start;
+      while (i < text.length() && VariableTemplate.isNameChar(text.charAt(i))) {
+        i++;
+      }
+      return i;
+    }
+
+    private static int literalEnd(String text, int start, char quote) {
+      int i = start + 1;
+      while (i < text.length()) {
+        if (text.charAt(i) == quote) {
+          if (i + 1 < text.length() && text.charAt(i + 1) == quote) {
+            i += 2;
+            continue;
+          }
+          return i + 1;
+        }
+        i++;
+      }
+      return text.length();
+    }
+
+    /**
+     * Get the SQL text with parameters.
+     *
+     * @return the SQL text
+     */
+    String getSql() {
+      return sql;
+    }
+
+    /**
+     * Check whether the values of the variables can be bound as parameters. A value must be a
+     * literal of a number or a boolean, because it is not a parameter but a part of the SQL text
+     * otherwise, and a string literal is converted by the server to the type of the other operand.
+     *
+     * @param values returns the value of a variable
+     * @return {@code true} if all of the variables can be bound
+     */
+    boolean isBindable(Function<String, String> values) {
+      for (int i = 0; i < variables.size(); i++) {
+        String value = values.apply(variables.get(i));
+        if (value == null) {
+          return false;
+        }
+        if (toParameter(value.trim()) == null) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Bind the values of the variables to the parameters of a statement.
+     *
+     * @param stmt the statement prepared by {@link #getSql()}
+     * @param values returns the value of a variable, which must be bindable
+     * @throws SQLException if a value cannot be bound
+     */
+    void bind(PreparedStatement stmt, Function<String, String> values) throws SQLException {
+      for (int i = 0; i < variables.size(); i++) {
+        String value = values.apply(variables.get(i));
+        stmt.setObject(i + 1, toParameter(value.trim()));
+      }
+    }
+
+    /**
+     * Convert a literal to the value of a parameter.
+     *
+     * @param literal the literal
+     * @return the value, or {@code null} if it is not a literal of a number or a boolean
+     */
+    private static Object toParameter(String literal) {
+      if (INTEGER.matcher(literal).matches()) {
+        try {
+          return Long.valueOf(literal);
+        } catch (NumberFormatException e) {
+          // Out of the range of LONG, expanded as text
+          return null;
+        }
+      } else if (DECIMAL.matcher(literal).matches()) {
+        return Double.valueOf(literal);
+      } else if (literal.equalsIgnoreCase("true") || literal.equalsIgnoreCase("false")) {
+        return Boolean.valueOf(literal);
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,582 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import com.toshiba.mwcloud.gs.ContainerInfo;
+import com.toshiba.mwcloud.gs.GSException;
+import com.toshiba.mwcloud.gs.RowSet;
+
+/**
+ * Size-bounded LRU cache of the results of {@code tql} and {@code sql} queries.
+ *
+ * <p>The results are keyed by the database, the container and the query text with the whitespace
+ * outside of the quotes normalized. An entry expires after the TTL, and the entries are
+ * invalidated when the session writes to the database. A cached result is replayed by a new
+ * cursor each time it is hit.
+ */
+class QueryResultCache {
+
+  /** A cached result. */
+  interface Result {
+    /**
+     * Get the number of rows.
+     *
+     * @return number of rows
+     */
+    int size();
+  }
+
+  private final LruCache<Entry> entries = new LruCache<Entry>();
+
+  /** Incremented by every invalidation, to detect the results read across an invalidation. */
+  private long generation;
+
+  private boolean enabled;
+
+  private static class Entry {
+    final String container;
+    final Result result;
+
+    Entry(String container, Result result) {
+      this.container = container;
+      this.result = result;
+    }
+  }
+
+  /**
+   * Create the key of a query.
+   *
+   * @param language "TQL" or "SQL"
+   * @param database the database name
+   * @param container the container name, {@code null} for SQL
+   * @param query the query text
+   * @return the key
+   */
+  static String key(String language, String database, String container, String query) {
+    return language + '\0' + database + '\0'
+        + (container == null ? "" : container.toLowerCase(Locale.ROOT)) + '\0'
+        + normalize(query);
+  }
+
+  /**
+   * Normalize a query text by collapsing the whitespace outside of the quotes into one space.
+   *
+   * @param query the query text
+   * @return the normalized text
+   */
+  static String normalize(String query) {
+    StringBuilder builder = new StringBuilder(query.length());
+    char quote = 0;
+    boolean space = false;
+    for (int i = 0; i < query.length(); i++) {
+      char c = query.charAt(i);
+      if (quote == 0 && Character.isWhitespace(c)) {
+        space = true;
+        continue;
+      }
+      if (space && builder.length() > 0) {
+        builder.append(' ');
+      }
+      space = false;
+      if (quote == 0 && (c == '\'' || c == '"')) {
+        quote = c;
+      } else if (c == quote) {
+        quote = 0;
+      }
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Get a result, and count a hit or a miss.
+   *
+   * @param key the key of the query
+   * @param ttlMillis time to live of the entries in milliseconds, 0 or less for no expiry
+   * @return the result, or {@code null} if not cached or expired
+   */
+  synchronized Result get(String key, long ttlMillis) {
+    Entry entry = entries.get(key, ttlMillis);
+    if (entry == null) {
+      entries.miss();
+      return null;
+    }
+    entries.hit();
+    return entry.result;
+  }
+
+  /**
+   * Add a result, and evict the least recently used entries over the maximum number.
+   *
+   * @param key the key of the query
+   * @param container the container name, {@code null} for SQL
+   * @param result the result
+   * @param maxEntries maximum number of entries
+   */
+  synchronized void put(String key, String container, Result result, int maxEntries) {
+    entries.put(
+        key,
+        new Entry(container == null ? null : container.toLowerCase(Locale.ROOT), result),
+        maxEntries);
+  }
+
+  /**
+   * Add a result which has been read since {@link #getGeneration()} returned {@code generation},
+   * unless the entries have been invalidated in the meantime.
+   *
+   * @param key the key of the query
+   * @param container the container name, {@code null} for SQL
+   * @param result the result
+   * @param maxEntries maximum number of entries
+   * @param generation the generation when the query was executed
+   */
+  synchronized void put(
+      String key, String container, Result result, int maxEntries, long generation) {
+    if (generation == this.generation) {
+      put(key, container, result, maxEntries);
+    }
+  }
+
+  /**
+   * Get the generation of the entries, which changes when the entries are invalidated.
+   *
+   * @return the generation
+   */
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Set whether the cache is enabled. All of the entries are invalidated once when the cache is
+   * disabled, so that the results are not kept while they are not used.
+   *
+   * @param enabled {@code true} if the cache is enabled
+   */
+  synchronized void setEnabled(boolean enabled) {
+    if (this.enabled && !enabled) {
+      invalidate(null);
+    }
+    this.enabled = enabled;
+  }
+
+  /**
+   * Invalidate the entries which may contain the rows of a container, that is, the TQL results
+   * of the container and all of the SQL results.
+   *
+   * @param container the container name, or {@code null} to invalidate all of the entries
+   */
+  synchronized void invalidate(String container) {
+    generation++;
+    if (container == null) {
+      entries.invalidateAll();
+      return;
+    }
+    String name = container.toLowerCase(Locale.ROOT);
+    entries.invalidateIf(entry -> entry.container == null || entry.container.equals(name));
+  }
+
+  /** A cached TQL result. */
+  static class TqlResult implements Result {
+    private final ContainerInfo schema;
+    private final List<Object> rows;
+
+    /**
+     * Read all of the rows of a TQL result.
+     *
+     * @param rowSet the result, which is not closed
+     * @throws GSException if the rows cannot be read
+     */
+    TqlResult(RowSet<?> rowSet) throws GSException {
+      this.schema = rowSet.getSchema();
+      this.rows = new ArrayList<Object>(rowSet.size());
+      while (rowSet.hasNext()) {
+        rows.add(rowSet.next());
+      }
+    }
+
+    /**
+     * Hold the rows of a TQL result which have already been read.
+     *
+     * @param schema the schema of the rows
+     * @param rows the rows, which must not be modified
+     */
+    TqlResult(ContainerInfo schema, List<Object> rows) {
+      this.schema = schema;
+      this.rows = rows;
+    }
+
+    @Override
+    public int size() {
+      return rows.size();
+    }
+
+    /**
+     * Open a cursor on the rows. The rows are shared by the cursors, and must not be modified.
+     *
+     * @return the cursor
+     */
+    RowSet<Object> open() {
+      final Iterator<Object> it = rows.iterator();
+      return new RowSet<Object>() {
+        @Override
+        public boolean hasNext() {
+          return it.hasNext();
+        }
+
+        @Override
+        public Object next() throws GSException {
+          try {
+            return it.next();
+          } catch (NoSuchElementException e) {
+            throw new GSException(e);
+          }
+        }
+
+        @Override
+        public void remove() throws GSException {
+          throw new GSException("Cached result cannot be modified");
+        }
+
+        @Override
+        public void update(Object rowObj) throws GSException {
+          throw new GSException("Cached result cannot be modified");
+        }
+
+        @Override
+        public int size() {
+          return rows.size();
+        }
+
+        @Override
+        public ContainerInfo getSchema() {
+          return schema;
+        }
+
+        @Override
+        public void close() {
+          // Do nothing
+        }
+      };
+    }
+  }
+
+  /**
+   * A cached SQL result.
+   *
+   * <p>The result is recorded while it is read by {@link #recording}, so that the rows are not
+   * read before they are needed, and replayed by {@link #open()}. The value, the string and the
+   * timestamp of a cell are recorded as the driver returned them, and a BLOB value as its bytes.
+   */
+  static class SqlResult implements Result {
+    private final String[] names;
+    private final String[] labels;
+    private final int[] types;
+    private final String[] typeNames;
+    private final List<Object[]> rows;
+
+    private SqlResult(SqlRows meta, List<Object[]> rows) throws SQLException {
+      int colCount = meta.getColumnCount();
+      this.names = new String[colCount];
+      this.labels = new String[colCount];
+      this.types = new int[colCount];
+      this.typeNames = new String[colCount];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        names[colNo] = meta.getColumnName(colNo + 1);
+        labels[colNo] = meta.getColumnLabel(colNo + 1);
+        types[colNo] = meta.getColumnType(colNo + 1);
+        typeNames[colNo] = meta.getColumnTypeName(colNo + 1);
+      }
+      this.rows = rows;
+    }
+
+    @Override
+    public int size() {
+      return rows.size();
+    }
+
+    /**
+     * Open a cursor on the rows.
+     *
+     * @return the cursor
+     */
+    SqlRows open() {
+      return new CachedRows(this);
+    }
+
+    /**
+     * Wrap an SQL result so that its rows are recorded while they are read through the wrapper.
+     * When all of the rows have been read and there are at most {@code maxRows} rows, the
+     * recorded result is passed to {@code onComplete}. A result which has more rows, or which is
+     * closed before the end, is not recorded.
+     *
+     * @param rows the result
+     * @param maxRows maximum number of rows of a recorded result
+     * @param onComplete receives the recorded result, on the thread which reads the last row
+     * @return the wrapper, which closes {@code rows} when closed
+     * @throws SQLException if the metadata cannot be read
+     */
+    static SqlRows recording(SqlRows rows, int maxRows, Consumer<SqlResult> onComplete)
+        throws SQLException {
+      return new RecordingRows(rows, maxRows, onComplete);
+    }
+  }
+
+  /** Cursor on the rows of a cached SQL result. */
+  private static final class CachedRows implements SqlRows {
+    private final SqlResult result;
+    private int index = -1;
+    private boolean wasNull;
+
+    CachedRows(SqlResult result) {
+      this.result = result;
+    }
+
+    @Override
+    public int getColumnCount() {
+      return result.names.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return result.names[column - 1];
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+      return result.labels[column - 1];
+    }
+
+    @Override
+    public int getColumnType(int column) {
+      return result.types[column - 1];
+    }
+
+    @Override
+    public String getColumnTypeName(int column) {
+      return result.typeNames[column - 1];
+    }
+
+    @Override
+    public boolean next() {
+      if (index + 1 < result.rows.size()) {
+        index++;
+        return true;
+      }
+      index = result.rows.size();
+      return false;
+    }
+
+    @Override
+    public Object getObject(int column) throws SQLException {
+      Object value = getValue(column);
+      return (value instanceof byte[]) ? new SerialBlob((byte[]) value) : value;
+    }
+
+    @Override
+    public String getString(int column) throws SQLException {
+      Object value = getValue(column);
+      if (value instanceof byte[]) {
+        throw new SQLException("Not a string column: " + column);
+      }
+      return (value == null) ? null : (String) currentRow()[(column - 1) * 2 + 1];
+    }
+
+    @Override
+    public Timestamp getTimestamp(int column) throws SQLException {
+      Object value = getValue(column);
+      if (value == null || value instanceof Timestamp) {
+        return (Timestamp) value;
+      } else if (value instanceof java.util.Date) {
+        return new Timestamp(((java.util.Date) value).getTime());
+      }
+      throw new SQLException("Not a timestamp column: " + column);
+    }
+
+    @Override
+    public byte[] getBytes(int column) throws SQLException {
+      Object value = getValue(column);
+      if (value == null || value instanceof byte[]) {
+        return (byte[]) value;
+      }
+      throw new SQLException("Not a binary column: " + column);
+    }
+
+    @Override
+    public boolean wasNull() {
+      return wasNull;
+    }
+
+    @Override
+    public void close() {
+      index = result.rows.size();
+    }
+
+    private Object[] currentRow() throws SQLException {
+      if (index < 0 || index >= result.rows.size()) {
+        throw new SQLException("No current row");
+      }
+      return result.rows.get(index);
+    }
+
+    private Object getValue(int column) throws SQLException {
+      Object value = currentRow()[(column - 1) * 2];
+      wasNull = (value == null);
+      return value;
+    }
+  }
+
+  /** Cursor which records the rows of an SQL result while they are read. */
+  private static final class RecordingRows implements SqlRows {
+    private final SqlRows rows;
+    private final int maxRows;
+    private final Consumer<SqlResult> onComplete;
+    private final int colCount;
+    private final int[] types;
+    private List<Object[]> recorded = new ArrayList<Object[]>();
+
+    RecordingRows(SqlRows rows, int maxRows, Consumer<SqlResult> onComplete)
+        throws SQLException {
+      this.rows = rows;
+      this.maxRows = maxRows;
+      this.onComplete = onComplete;
+      this.colCount = rows.getColumnCount();
+      this.types = new int[colCount];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        types[colNo] = rows.getColumnType(colNo + 1);
+      }
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+      return rows.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+      return rows.getColumnName(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+      return rows.getColumnLabel(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+      return rows.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+      return rows.getColumnTypeName(column);
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+      boolean hasNext = rows.next();
+      if (recorded != null) {
+        if (!hasNext) {
+          SqlResult result = new SqlResult(rows, recorded);
+          recorded = null;
+          onComplete.accept(result);
+        } else if (recorded.size() < maxRows) {
+          recorded.add(readRow());
+        } else {
+          recorded = null;
+        }
+      }
+      return hasNext;
+    }
+
+    /** Read the value and the string of each column of the current row. */
+    private Object[] readRow() throws SQLException {
+      Object[] cells = new Object[colCount * 2];
+      for (int colNo = 0; colNo < colCount; ++colNo) {
+        switch (types[colNo]) {
+          case Types.BLOB:
+          case Types.BINARY:
+          case Types.VARBINARY:
+          case Types.LONGVARBINARY:
+            cells[colNo * 2] = rows.getBytes(colNo + 1);
+            break;
+          case Types.TIMESTAMP:
+            cells[colNo * 2] = rows.getTimestamp(colNo + 1);
+            cells[colNo * 2 + 1] = rows.getString(colNo + 1);
+            break;
+          default:
+            cells[colNo * 2] = rows.getObject(colNo + 1);
+            cells[colNo * 2 + 1] = rows.getString(colNo + 1);
+            break;
+        }
+        if (rows.wasNull()) {
+          cells[colNo * 2] = null;
+        }
+      }
+      return cells;
+    }
+
+    @Override
+    public Object getObject(int column) throws SQLException {
+      return rows.getObject(column);
+    }
+
+    @Override
+    public String getString(int column) throws SQLException {
+      return rows.getString(column);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int column) throws SQLException {
+      return rows.getTimestamp(column);
+    }
+
+    @Override
+    public byte[] getBytes(int column) throws SQLException {
+      return rows.getBytes(column);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+      return rows.wasNull();
+    }
+
+    @Override
+    public void close() throws SQLException {
+      recorded = null;
+      rows.close();
+    }
+  }
+
+  /**
+   * Get the statistics for display.
+   *
+   * @return the statistics in the order of entries, hits, misses, hit ratio (%), evictions and
+   *     invalidations
+   */
+  synchronized Object[] getStatistics() {
+    return entries.getStatistics();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing breakdown of a query executed by {@code tql} or {@code sql}, in nanoseconds.
+ *
+ * <ul>
+ *   <li>execute: {@code Query.fetch()} or {@code Statement.executeQuery()}
+ *   <li>first row: from the start of the first {@code get} to the first row of the result
+ *   <li>fetch: reading the rows from the result, by the fetch thread if the prefetch is enabled
+ *   <li>format: converting the values of the rows to strings, summed over the formatting threads
+ *   <li>output: writing the rows to the standard output or the file
+ * </ul>
+ *
+ * <p>The fetch, format and output times are accumulated over the {@code get} sub-commands of the
+ * query, and can be added by several threads.
+ */
+class QueryTiming {
+
+  private final String language;
+  private final String statement;
+  private final long startMillis;
+  private final long executeNanos;
+  private volatile long firstRowNanos = -1;
+  private final LongAdder fetchNanos = new LongAdder();
+  private final LongAdder formatNanos = new LongAdder();
+  private final LongAdder outputNanos = new LongAdder();
+  private final LongAdder rows = new LongAdder();
+
+  /**
+   * Constructor for {@code QueryTiming}.
+   *
+   * @param language "TQL" or "SQL"
+   * @param statement the executed statement
+   * @param startMillis the time when the query was started, in milliseconds since the epoch
+   * @param executeNanos the execution time of the query
+   */
+  QueryTiming(String language, String statement, long startMillis, long executeNanos) {
+    this.language = language;
+    this.statement = statement;
+    this.startMillis = startMillis;
+    this.executeNanos = executeNanos;
+  }
+
+  /**
+   * Wrap a source of rows so that the time to read the rows is added to the fetch time.
+   *
+   * @param source the source
+   * @param <T> type of a row
+   * @param <E> type of the exception thrown by the source
+   * @return the wrapped source
+   */
+  <T, E extends Exception> RowPrefetcher.Source<T, E> timed(RowPrefetcher.Source<T, E> source) {
+    return () -> {
+      long start = System.nanoTime();
+      try {
+        return source.fetch();
+      } finally {
+        fetchNanos.add(System.nanoTime() - start);
+      }
+    };
+  }
+
+  /**
+   * Record the time to the first row, if it has not been recorded yet.
+   *
+   * @param getStartNanos the value of {@link System#nanoTime()} at the start of {@code get}
+   */
+  void firstRow(long getStartNanos) {
+    if (firstRowNanos < 0) {
+      firstRowNanos = System.nanoTime() - getStartNanos;
+    }
+  }
+
+  void addFormat(long nanos) {
+    formatNanos.add(nanos);
+  }
+
+  void addOutput(long nanos) {
+    outputNanos.add(nanos);
+  }
+
+  void addRows(long count) {
+    rows.add(count);
+  }
+
+  String getLanguage() {
+    return language;
+  }
+
+  String getStatement() {
+    return statement;
+  }
+
+  long getStartMillis() {
+    return startMillis;
+  }
+
+  long getExecuteNanos() {
+    return executeNanos;
+  }
+
+  /**
+   * Get the time to the first row.
+   *
+   * @return the time, or -1 if no rows have been acquired
+   */
+  long getFirstRowNanos() {
+    return firstRowNanos;
+  }
+
+  long getFetchNanos() {
+    return fetchNanos.sum();
+  }
+
+  long getFormatNanos() {
+    return formatNanos.sum();
+  }
+
+  long getOutputNanos() {
+    return outputNanos.sum();
+  }
+
+  long getRows() {
+    return rows.sum();
+  }
+
+  /**
+   * Format a time in nanoseconds as milliseconds with 3 decimal places.
+   *
+   * @param nanos the time, or a negative value if not measured
+   * @return the formatted time, or "-" if not measured
+   */
+  static String toMillis(long nanos) {
+    return (nanos < 0) ? "-" : String.format("%.3f", nanos / 1000000.0);
+  }
+}
@@ -0,0 +1,252 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the rows of a query result in batches.
+ *
+ * <p>When the background mode is enabled, the rows are read by a fetch thread into a bounded
+ * queue while the caller formats and outputs the previous batch. The source is accessed only by
+ * the fetch thread until {@link #close()} returns, and never more than {@code limit} rows are
+ * read from it, so the rows which are not requested remain in the source.
+ *
+ * <p>If {@link #close()} is called before all of the rows read by the fetch thread are returned,
+ * for example because the output failed, those rows cannot be returned to the source. The
+ * discard action is then run, so that the caller can close the source instead of leaving a gap
+ * in the rows read later.
+ *
+ * @param <T> type of a row
+ * @param <E> type of the exception thrown by the source
+ */
+class RowPrefetcher<T, E extends Exception> implements Closeable {
+
+  /**
+   * Source of the rows.
+   *
+   * @param <T> type of a row
+   * @param <E> type of the exception thrown by the source
+   */
+  interface Source<T, E extends Exception> {
+    /**
+     * Read the next row.
+     *
+     * @return the next row, or {@code null} if there are no more rows
+     * @throws E if an error occurs while reading the row
+     */
+    T fetch() throws E;
+  }
+
+  /** Number of batches which can be queued ahead of the caller. */
+  private static final int QUEUE_CAPACITY = 2;
+
+  private static final long POLL_INTERVAL_MS = 100;
+
+  private static final List<Object> END_OF_ROWS = Collections.emptyList();
+
+  private final Source<T, E> source;
+  private final Runnable onDiscard;
+  private final int batchSize;
+  private final BlockingQueue<List<?>> queue;
+  private final Thread fetchThread;
+
+  private volatile boolean cancelled;
+  private volatile Throwable error;
+  private volatile boolean exhausted;
+  private volatile boolean discarded;
+  private long remaining;
+  private Iterator<T> current = Collections.emptyIterator();
+  private boolean finished;
+
+  /**
+   * Constructor for {@code RowPrefetcher}.
+   *
+   * @param source source of the rows
+   * @param limit maximum number of rows read from the source
+   * @param batchSize number of rows in a batch
+   * @param background {@code true} to read the rows by a fetch thread, {@code false} to read them
+   *     by the calling thread
+   * @param onDiscard action run by {@link #close()} if rows read from the source are discarded
+   */
+  RowPrefetcher(Source<T, E> source, long limit, int batchSize, boolean background,
+      Runnable onDiscard) {
+    this.source = source;
+    this.onDiscard = onDiscard;
+    this.remaining = limit;
+    this.batchSize = Math.max(1, batchSize);
+    if (background && limit > 1) {
+      this.queue = new ArrayBlockingQueue<List<?>>(QUEUE_CAPACITY);
+      this.fetchThread = new Thread(this::fetchLoop, "gs_sh-prefetch");
+      this.fetchThread.setDaemon(true);
+      this.fetchThread.start();
+    } else {
+      this.queue = null;
+      this.fetchThread = null;
+    }
+  }
+
+  /**
+   * Get the next row.
+   *
+   * @return the next row, or {@code null} if there are no more rows or the limit is reached
+   * @throws E if an error occurs while reading the row
+   */
+  T next() throws E {
+    if (fetchThread == null) {
+      if (remaining <= 0) {
+        return null;
+      }
+      T row = source.fetch();
+      if (row == null) {
+        exhausted = true;
+        return null;
+      }
+      remaining--;
+      return row;
+    }
+
+    while (!current.hasNext()) {
+      if (finished) {
+        return null;
+      }
+      List<?> batch;
+      try {
+        batch = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      if (batch == END_OF_ROWS) {
+        finished = true;
+        rethrowError();
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      List<T> rows = (List<T>) batch;
+      current = rows.iterator();
+    }
+    return current.next();
+  }
+
+  /**
+   * Check whether the source reported the end of the rows.
+   *
+   * @return {@code true} if there are no more rows in the source
+   */
+  boolean isExhausted() {
+    return exhausted;
+  }
+
+  /**
+   * Stop the fetch thread and wait for it, so that the source can be used by the caller. If the
+   * rows read from the source have not all been returned, run the discard action.
+   */
+  @Override
+  public void close() {
+    if (fetchThread == null) {
+      return;
+    }
+    cancelled = true;
+    if (current.hasNext()) {
+      discarded = true;
+    }
+    while (fetchThread.isAlive()) {
+      drain();
+      try {
+        fetchThread.join(POLL_INTERVAL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    drain();
+    if (discarded) {
+      onDiscard.run();
+    }
+  }
+
+  private void drain() {
+    List<?> batch;
+    while ((batch = queue.poll()) != null) {
+      if (batch != END_OF_ROWS) {
+        discarded = true;
+      }
+    }
+  }
+
+  private void fetchLoop() {
+    while (!cancelled && remaining > 0) {
+      int size = (int) Math.min(batchSize, remaining);
+      List<T> batch = new ArrayList<T>(size);
+      try {
+        while (batch.size() < size) {
+          T row = source.fetch();
+          if (row == null) {
+            exhausted = true;
+            break;
+          }
+          batch.add(row);
+        }
+      } catch (Throwable t) {
+        // The rows read before the error are delivered first
+        error = t;
+      }
+      remaining -= batch.size();
+      if (!batch.isEmpty() && !put(batch)) {
+        discarded = true;
+        return;
+      }
+      if (exhausted || error != null) {
+        break;
+      }
+    }
+    put(END_OF_ROWS);
+  }
+
+  private boolean put(List<?> batch) {
+    try {
+      while (!cancelled) {
+        if (queue.offer(batch, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void rethrowError() throws E {
+    Throwable t = error;
+    if (t == null) {
+      return;
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    throw (E) t;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.toshiba.mwcloud.gs.ContainerInfo;
+import com.toshiba.mwcloud.gs.GSException;
+import com.toshiba.mwcloud.gs.GridStore;
+import com.toshiba.mwcloud.gs.experimental.ExperimentalTool;
+import com.toshiba.mwcloud.gs.experimental.ExtendedContainerInfo;
+
+/**
+ * Size-bounded LRU cache of the {@link ContainerInfo} and {@link ExtendedContainerInfo} of the
+ * containers of a connection.
+ *
+ * <p>The entries are keyed by the container name, which is case-insensitive. An entry expires
+ * after the TTL, and the entries are invalidated when the session changes the schema of a
+ * container. A container which does not exist is not cached, so that a container created by
+ * another client is found at once.
+ */
+class SchemaCache {
+
+  private final LruCache<Entry> entries = new LruCache<Entry>();
+
+  private static class Entry {
+    final String name;
+    ContainerInfo info;
+    ExtendedContainerInfo extInfo;
+
+    Entry(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Get the schema of a container, from the store if it is not cached.
+   *
+   * @param store the store
+   * @param name the container name
+   * @param ttlMillis time to live of the entries in milliseconds
+   * @param maxEntries maximum number of entries
+   * @return the schema, or {@code null} if the container does not exist
+   * @throws GSException if the schema cannot be acquired
+   * @see GridStore#getContainerInfo
+   */
+  synchronized ContainerInfo getContainerInfo(
+      GridStore store, String name, long ttlMillis, int maxEntries) throws GSException {
+    Entry entry = getEntry(name, ttlMillis);
+    if (entry != null && entry.info != null) {
+      entries.hit();
+      return entry.info;
+    }
+    entries.miss();
+    ContainerInfo info = store.getContainerInfo(name);
+    if (info != null) {
+      if (entry == null) {
+        entry = putEntry(name, maxEntries);
+      }
+      entry.info = info;
+    }
+    return info;
+  }
+
+  /**
+   * Get the extended information of a container, from the store if it is not cached.
+   *
+   * @param store the store
+   * @param name the container name
+   * @param ttlMillis time to live of the entries in milliseconds
+   * @param maxEntries maximum number of entries
+   * @return the information, or {@code null} if the container does not exist
+   * @throws GSException if the information cannot be acquired
+   * @see ExperimentalTool#getExtendedContainerInfo
+   */
+  synchronized ExtendedContainerInfo getExtendedContainerInfo(
+      GridStore store, String name, long ttlMillis, int maxEntries) throws GSException {
+    Entry entry = getEntry(name, ttlMillis);
+    if (entry != null && entry.extInfo != null) {
+      entries.hit();
+      return entry.extInfo;
+    }
+    entries.miss();
+    ExtendedContainerInfo extInfo = ExperimentalTool.getExtendedContainerInfo(store, name);
+    if (extInfo != null) {
+      if (entry == null) {
+        entry = putEntry(name, maxEntries);
+      }
+      entry.extInfo = extInfo;
+    }
+    return extInfo;
+  }
+
+  private Entry getEntry(String name, long ttlMillis) {
+    return entries.get(name.toLowerCase(Locale.ROOT), ttlMillis);
+  }
+
+  private Entry putEntry(String name, int maxEntries) {
+    Entry entry = new Entry(name);
+    entries.put(name.toLowerCase(Locale.ROOT), entry, maxEntries);
+    return entry;
+  }
+
+  /**
+   * Invalidate the schema of a container.
+   *
+   * @param name the container name, or {@code null} to invalidate all of the entries
+   */
+  synchronized void invalidate(String name) {
+    if (name == null) {
+      entries.invalidateAll();
+    } else {
+      entries.invalidate(name.toLowerCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Get the names of the cached containers, from the least recently used.
+   *
+   * @return the container names
+   */
+  synchronized List<String> getNames() {
+    List<String> names = new ArrayList<String>();
+    for (Entry entry : entries.values()) {
+      names.add(entry.name);
+    }
+    return names;
+  }
+
+  /**
+   * Get the statistics for display.
+   *
+   * @return the statistics in the order of entries, hits, misses, hit ratio (%), evictions and
+   *     invalidations
+   */
+  synchronized Object[] getStatistics() {
+    return entries.getStatistics();
+  }
+}
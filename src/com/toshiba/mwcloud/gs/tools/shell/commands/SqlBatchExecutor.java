@@ -0,0 +1,302 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes independent SQL statements concurrently.
+ *
+ * <p>Each worker thread borrows a connection from the {@link SqlConnectionPool} and executes the
+ * statements in the order of the batch until none is left, so that the statements are started in
+ * order and at most the given number of statements run at the same time. The rows of a query are
+ * read and counted, but not kept.
+ */
+class SqlBatchExecutor implements Closeable {
+
+  /** Status of a statement. */
+  enum Status {
+    OK,
+    ERROR,
+    SKIPPED
+  }
+
+  /** Result of a statement. */
+  static class Result {
+    private final String sql;
+    private Status status = Status.SKIPPED;
+    private boolean query;
+    private long count = -1;
+    private long elapsedMillis;
+    private String error;
+
+    Result(String sql) {
+      this.sql = sql;
+    }
+
+    /**
+     * Get the statement.
+     *
+     * @return the statement
+     */
+    String getSql() {
+      return sql;
+    }
+
+    /**
+     * Get the status.
+     *
+     * @return the status
+     */
+    Status getStatus() {
+      return status;
+    }
+
+    /**
+     * Check whether the statement returned rows.
+     *
+     * @return {@code true} if the statement is a query
+     */
+    boolean isQuery() {
+      return query;
+    }
+
+    /**
+     * Get the number of the rows of a query, or the update count of the other statements.
+     *
+     * @return the count, or -1 if the statement failed or was skipped
+     */
+    long getCount() {
+      return count;
+    }
+
+    /**
+     * Get the execution time.
+     *
+     * @return the execution time in milliseconds
+     */
+    long getElapsedMillis() {
+      return elapsedMillis;
+    }
+
+    /**
+     * Get the error message.
+     *
+     * @return the message, or {@code null} if the statement did not fail
+     */
+    String getError() {
+      return error;
+    }
+  }
+
+  private final SqlConnectionPool pool;
+  private final int threads;
+  private final boolean stopOnError;
+  private final AtomicBoolean failed = new AtomicBoolean();
+  private ExecutorService executor;
+
+  /**
+   * Constructor for {@code SqlBatchExecutor}.
+   *
+   * @param pool the pool of the connections
+   * @param threads maximum number of statements executed at the same time
+   * @param stopOnError whether to skip the statements which are not started after a failure
+   */
+  SqlBatchExecutor(SqlConnectionPool pool, int threads, boolean stopOnError) {
+    this.pool = pool;
+    this.threads = Math.max(1, threads);
+    this.stopOnError = stopOnError;
+  }
+
+  /**
+   * Start executing the statements.
+   *
+   * @param sqls the statements
+   * @return the results in the order of the statements, completed when the statements finish
+   */
+  List<CompletableFuture<Result>> start(final List<String> sqls) {
+    final List<CompletableFuture<Result>> futures =
+        new ArrayList<CompletableFuture<Result>>(sqls.size());
+    for (int i = 0; i < sqls.size(); i++) {
+      futures.add(new CompletableFuture<Result>());
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicInteger threadNo = new AtomicInteger();
+    int count = Math.min(threads, sqls.size());
+    executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, count),
+            r -> {
+              Thread t = new Thread(r, "gs_sh-sqlbatch-" + threadNo.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+    for (int i = 0; i < count; i++) {
+      executor.execute(
+          () -> {
+            Connection con = null;
+            int no = -1;
+            try {
+              for (no = next.getAndIncrement(); no < sqls.size(); no = next.getAndIncrement()) {
+                Result result = new Result(sqls.get(no));
+                try {
+                  if (!(stopOnError && failed.get())) {
+                    if (con == null) {
+                      con = pool.borrow();
+                    }
+                    execute(con, result);
+                  }
+                  futures.get(no).complete(result);
+                } catch (SQLException e) {
+                  fail(result, e);
+                  futures.get(no).complete(result);
+                } catch (RuntimeException e) {
+                  failed.set(true);
+                  futures.get(no).completeExceptionally(e);
+                }
+              }
+            } catch (Throwable e) {
+              // Complete the current and the remaining statements so that no one waits forever
+              failed.set(true);
+              if (no >= 0 && no < sqls.size()) {
+                futures.get(no).completeExceptionally(e);
+              }
+              for (int rest = next.getAndIncrement();
+                  rest < sqls.size();
+                  rest = next.getAndIncrement()) {
+                futures.get(rest).completeExceptionally(e);
+              }
+            } finally {
+              if (con != null) {
+                pool.release(con);
+              }
+            }
+          });
+    }
+    executor.shutdown();
+    return futures;
+  }
+
+  private void execute(Connection con, Result result) {
+    long start = System.nanoTime();
+    try (Statement stmt = con.createStatement()) {
+      if (stmt.execute(result.sql)) {
+        result.query = true;
+        long rows = 0;
+        try (ResultSet rs = stmt.getResultSet()) {
+          while (rs.next()) {
+            rows++;
+          }
+        }
+        result.count = rows;
+      } else {
+        result.count = stmt.getUpdateCount();
+      }
+      result.status = Status.OK;
+    } catch (SQLException e) {
+      fail(result, e);
+    } finally {
+      result.elapsedMillis = (System.nanoTime() - start) / 1000000;
+    }
+  }
+
+  private void fail(Result result, SQLException e) {
+    result.status = Status.ERROR;
+    result.error = e.getMessage();
+    failed.set(true);
+  }
+
+  /** Stop the workers. The statements which are running are not cancelled. */
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Split a text into SQL statements at the semicolons outside of the quotes and the comments.
+   *
+   * @param text the text
+   * @param lineBreaks whether a line break outside of the quotes and the comments also ends a
+   *     statement
+   * @return the statements, without the empty ones
+   */
+  static List<String> split(String text, boolean lineBreaks) {
+    List<String> statements = new ArrayList<String>();
+    StringBuilder builder = new StringBuilder();
+    int len = text.length();
+    int i = 0;
+    while (i < len) {
+      char c = text.charAt(i);
+      int end = i + 1;
+      if (c == '\'' || c == '"') {
+        end = text.indexOf(c, i + 1);
+        while (end >= 0 && end + 1 < len && text.charAt(end + 1) == c) {
+          end = text.indexOf(c, end + 2);
+        }
+        end = (end < 0) ? len : end + 1;
+      } else if (text.startsWith("--", i)) {
+        end = text.indexOf('\n', i);
+        end = (end < 0) ? len : end;
+      } else if (text.startsWith("/*", i)) {
+        end = text.indexOf("*/", i + 2);
+        end = (end < 0) ? len : end + 2;
+      } else if (c == ';' || (lineBreaks && (c == '\n' || c == '\r'))) {
+        addStatement(statements, builder);
+        i = end;
+        continue;
+      }
+      builder.append(text, i, end);
+      i = end;
+    }
+    addStatement(statements, builder);
+    return statements;
+  }
+
+  private static void addStatement(List<String> statements, StringBuilder builder) {
+    String sql = stripLeadingComments(builder.toString().trim());
+    builder.setLength(0);
+    if (!sql.isEmpty()) {
+      statements.add(sql);
+    }
+  }
+
+  private static String stripLeadingComments(String sql) {
+    while (true) {
+      int end;
+      if (sql.startsWith("--")) {
+        end = sql.indexOf('\n');
+        end = (end < 0) ? sql.length() : end + 1;
+      } else if (sql.startsWith("/*")) {
+        end = sql.indexOf("*/", 2);
+        end = (end < 0) ? sql.length() : end + 2;
+      } else {
+        return sql;
+      }
+      sql = sql.substring(end).trim();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Pool of the auxiliary SQL connections of a session.
+ *
+ * <p>The connections are opened to the same URL as the connection of the {@code sql}
+ * sub-command, so that the metadata lookups, the result counts and the monitoring queries do not
+ * wait behind the result set of that connection. A pooled connection is validated before it is
+ * reused, and a work which failed on a broken connection is retried once on a new connection.
+ */
+class SqlConnectionPool implements Closeable {
+
+  /**
+   * A work executed on a pooled connection.
+   *
+   * @param <T> the type of the result
+   * @param <E> the type of the exception thrown by the work other than {@code SQLException}
+   */
+  interface SqlWork<T, E extends Exception> {
+
+    /**
+     * Execute the work. The connection must not be closed.
+     *
+     * @param con the connection
+     * @return the result
+     * @throws E if the work fails
+     * @throws SQLException if an error occurs
+     */
+    T run(Connection con) throws E, SQLException;
+  }
+
+  /** Timeout (sec) of the validation of a pooled connection. */
+  private static final int VALIDATION_TIMEOUT_SEC = 5;
+
+  private final String url;
+  private final Properties prop;
+  private final int maxIdle;
+  private final ArrayDeque<Connection> idle = new ArrayDeque<Connection>();
+  private boolean closed;
+
+  /**
+   * Constructor for {@code SqlConnectionPool}.
+   *
+   * @param url the JDBC URL
+   * @param prop the connection properties
+   * @param maxIdle maximum number of the idle connections kept open
+   */
+  SqlConnectionPool(String url, Properties prop, int maxIdle) {
+    this.url = url;
+    this.prop = prop;
+    this.maxIdle = Math.max(1, maxIdle);
+  }
+
+  /**
+   * Get a connection, a pooled one if there is a valid one, or a new one.
+   *
+   * @return the connection, which must be returned by {@link #release(Connection)}
+   * @throws SQLException if the pool is closed or a connection cannot be opened
+   */
+  Connection borrow() throws SQLException {
+    while (true) {
+      Connection con;
+      synchronized (this) {
+        if (closed) {
+          throw new SQLException("Connection pool is closed");
+        }
+        con = idle.pollFirst();
+      }
+      if (con == null) {
+        return DriverManager.getConnection(url, prop);
+      }
+      if (isValid(con)) {
+        return con;
+      }
+      closeQuietly(con);
+    }
+  }
+
+  /**
+   * Return a connection to the pool. The connection is closed if the pool is closed or full.
+   *
+   * @param con the connection
+   */
+  void release(Connection con) {
+    synchronized (this) {
+      if (!closed && idle.size() < maxIdle) {
+        idle.addFirst(con);
+        return;
+      }
+    }
+    closeQuietly(con);
+  }
+
+  /**
+   * Execute a work on a pooled connection. If the work fails and the connection turns out to be
+   * broken, the connection is discarded and the work is retried once on a new connection.
+   *
+   * @param work the work
+   * @return the result of the work
+   * @throws E if the work fails
+   * @throws SQLException if the work fails, or a connection cannot be opened
+   */
+  <T, E extends Exception> T execute(SqlWork<T, E> work) throws E, SQLException {
+    for (int retry = 0; ; retry++) {
+      Connection con = borrow();
+      boolean broken = false;
+      try {
+        return work.run(con);
+      } catch (Exception e) {
+        if (!(e instanceof SQLException) && !(e.getCause() instanceof SQLException)) {
+          throw e;
+        }
+        broken = !isValid(con);
+        if (!broken || retry >= 1) {
+          throw e;
+        }
+      } finally {
+        if (broken) {
+          closeQuietly(con);
+        } else {
+          release(con);
+        }
+      }
+    }
+  }
+
+  /** Close the idle connections. The borrowed connections are closed when they are returned. */
+  @Override
+  public void close() {
+    List<Connection> connections;
+    synchronized (this) {
+      closed = true;
+      connections = new ArrayList<Connection>(idle);
+      idle.clear();
+    }
+    for (Connection con : connections) {
+      closeQuietly(con);
+    }
+  }
+
+  /**
+   * Check whether a connection can be used.
+   *
+   * @param con the connection
+   * @return {@code true} if the connection is valid
+   */
+  static boolean isValid(Connection con) {
+    try {
+      return con.isValid(VALIDATION_TIMEOUT_SEC);
+    } catch (SQLFeatureNotSupportedException e) {
+      try {
+        return !con.isClosed();
+      } catch (SQLException e2) {
+        return false;
+      }
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(Connection con) {
+    try {
+      con.close();
+    } catch (SQLException e) {
+      // Do nothing
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Forward-only cursor on the rows of an SQL result, read by the {@code get} sub-commands.
+ *
+ * <p>The rows are read either from the cluster through {@link #of(ResultSet)} or from a result
+ * recorded by {@link QueryResultCache}. The columns are numbered from 1, as in {@link ResultSet}.
+ */
+interface SqlRows extends AutoCloseable {
+
+  /**
+   * Get the number of columns.
+   *
+   * @return number of columns
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  int getColumnCount() throws SQLException;
+
+  /**
+   * Get the name of a column.
+   *
+   * @param column the column number
+   * @return the name
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  String getColumnName(int column) throws SQLException;
+
+  /**
+   * Get the label of a column.
+   *
+   * @param column the column number
+   * @return the label
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  String getColumnLabel(int column) throws SQLException;
+
+  /**
+   * Get the SQL type of a column.
+   *
+   * @param column the column number
+   * @return the type from {@link java.sql.Types}
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  int getColumnType(int column) throws SQLException;
+
+  /**
+   * Get the type name of a column.
+   *
+   * @param column the column number
+   * @return the type name
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  String getColumnTypeName(int column) throws SQLException;
+
+  /**
+   * Move to the next row.
+   *
+   * @return {@code false} if there are no more rows
+   * @throws SQLException if the row cannot be read
+   */
+  boolean next() throws SQLException;
+
+  /**
+   * Get a value of the current row.
+   *
+   * @param column the column number
+   * @return the value, or {@code null} if it is NULL
+   * @throws SQLException if the value cannot be acquired
+   */
+  Object getObject(int column) throws SQLException;
+
+  /**
+   * Get a value of the current row as a string.
+   *
+   * @param column the column number
+   * @return the string, or {@code null} if it is NULL
+   * @throws SQLException if the value cannot be acquired
+   */
+  String getString(int column) throws SQLException;
+
+  /**
+   * Get a value of the current row as a timestamp.
+   *
+   * @param column the column number
+   * @return the timestamp, or {@code null} if it is NULL
+   * @throws SQLException if the value cannot be acquired
+   */
+  Timestamp getTimestamp(int column) throws SQLException;
+
+  /**
+   * Get a value of the current row as bytes.
+   *
+   * @param column the column number
+   * @return the bytes, or {@code null} if it is NULL
+   * @throws SQLException if the value cannot be acquired
+   */
+  byte[] getBytes(int column) throws SQLException;
+
+  /**
+   * Check whether the last value acquired was NULL.
+   *
+   * @return {@code true} if the value was NULL
+   * @throws SQLException if the result is closed
+   */
+  boolean wasNull() throws SQLException;
+
+  @Override
+  void close() throws SQLException;
+
+  /**
+   * Read the rows of a JDBC result.
+   *
+   * @param rs the result, which is closed with the cursor
+   * @return the cursor
+   * @throws SQLException if the metadata cannot be acquired
+   */
+  static SqlRows of(ResultSet rs) throws SQLException {
+    return new JdbcRows(rs);
+  }
+
+  /** Cursor on a JDBC result. */
+  final class JdbcRows implements SqlRows {
+    private final ResultSet rs;
+    private final ResultSetMetaData meta;
+
+    private JdbcRows(ResultSet rs) throws SQLException {
+      this.rs = rs;
+      this.meta = rs.getMetaData();
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+      return meta.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+      return meta.getColumnName(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+      return meta.getColumnLabel(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+      return meta.getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+      return meta.getColumnTypeName(column);
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+      return rs.next();
+    }
+
+    @Override
+    public Object getObject(int column) throws SQLException {
+      return rs.getObject(column);
+    }
+
+    @Override
+    public String getString(int column) throws SQLException {
+      return rs.getString(column);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int column) throws SQLException {
+      return rs.getTimestamp(column);
+    }
+
+    @Override
+    public byte[] getBytes(int column) throws SQLException {
+      return rs.getBytes(column);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+      return rs.wasNull();
+    }
+
+    @Override
+    public void close() throws SQLException {
+      rs.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ 	Copyright (c) 2021 TOSHIBA Digital Solutions Corporation.
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.toshiba.mwcloud.gs.tools.shell.commands;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A text with {@code $name} variable references, split into literal and variable segments.
+ *
+ * <p>A variable name consists of the letters, the digits and underscores following {@code $}. The
+ * templates are cached by text by {@link #compile(String)}, so that a query executed repeatedly is
+ * parsed only once.
+ */
+class VariableTemplate {
+
+  /** Maximum number of the cached templates. */
+  private static final int CACHE_SIZE = 256;
+
+  private static final Map<String, VariableTemplate> CACHE =
+      new LinkedHashMap<String, VariableTemplate>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VariableTemplate> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  /** Literal segments; there is one more literal than variables. */
+  private final String[] literals;
+
+  /** Variable names; the i-th variable is between the i-th and (i+1)-th literals. */
+  private final String[] variables;
+
+  private final int literalLength;
+
+  private VariableTemplate(List<String> literals, List<String> variables) {
+    this.literals = literals.toArray(new String[literals.size()]);
+    this.variables = variables.toArray(new String[variables.size()]);
+    int length = 0;
+    for (String literal : literals) {
+      length += literal.length();
+    }
+    this.literalLength = length;
+  }
+
+  /**
+   * Get the template of a text, parsing it if it is not cached.
+   *
+   * @param text the text
+   * @return the template
+   */
+  static VariableTemplate compile(String text) {
+    synchronized (CACHE) {
+      VariableTemplate template = CACHE.get(text);
+      if (template == null) {
+        template = parse(text);
+        CACHE.put(text, template);
+      }
+      return template;
+    }
+  }
+
+  private static VariableTemplate parse(String text) {
+    List<String> literals = new ArrayList<String>();
+    List<String> variables = new ArrayList<String>();
+    int len = text.length();
+    int literalStart = 0;
+    int i = text.indexOf('$');
+    while (i >= 0) {
+      int end = i + 1;
+      while (end < len && isNameChar(text.charAt(end))) {
+        end++;
+      }
+      if (end > i + 1) {
+        literals.add(text.substring(literalStart, i));
+        variables.add(text.substring(i + 1, end));
+        literalStart = end;
+      }
+      i = text.indexOf('$', end);
+    }
+    literals.add(text.substring(literalStart));
+    return new VariableTemplate(literals, variables);
+  }
+
+  /**
+   * Check whether a character can be a part of a variable name. The same rule is used for the
+   * variables bound as parameters by {@link PreparedSqlCache.Template}.
+   *
+   * @param c the character
+   * @return {@code true} if the character is an ASCII letter, digit or underscore
+   */
+  static boolean isNameChar(char c) {
+    return (c >= 'a' && c <= 'z')
+        || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9')
+        || c == '_';
+  }
+
+  /**
+   * Expand the variables.
+   *
+   * @param lookup returns the value of a variable, or {@code null} if the variable is not
+   *     expanded
+   * @return the expanded text, in which a reference to a variable which is not expanded is left as
+   *     it is
+   */
+  String expand(Function<String, String> lookup) {
+    if (variables.length == 0) {
+      return literals[0];
+    }
+    StringBuilder builder = new StringBuilder(literalLength + variables.length * 16);
+    builder.append(literals[0]);
+    for (int i = 0; i < variables.length; i++) {
+      String value = lookup.apply(variables[i]);
+      if (value != null) {
+        builder.append(value);
+      } else {
+        builder.append('$').append(variables[i]);
+      }
+      builder.append(literals[i + 1]);
+    }
+    return builder.toString();
+  }
+}